@@ -1,5 +1,5 @@
 import { Link } from 'react-router-dom';
-import { Clock, User, Tag } from 'lucide-react';
+import { Clock, User, Tag, MessageSquare } from 'lucide-react';
 import { IncidentSummary } from '../types/incident';
 import { formatRelativeTime, getSeverityColor, getStatusColor, cn } from '../lib/utils';
 
@@ -41,6 +41,10 @@ export function IncidentCard({ incident }: IncidentCardProps) {
             <Clock className="h-4 w-4 mr-1" />
             {formatRelativeTime(incident.createdAt)}
           </div>
+          <div className="flex items-center" title={`${incident.timelineCount} events, ${incident.noteCount} notes`}>
+            <MessageSquare className="h-4 w-4 mr-1" />
+            {incident.timelineCount + incident.noteCount}
+          </div>
         </div>
         
         {incident.tags.length > 0 && (
@@ -1,5 +1,7 @@
 import { useState, KeyboardEvent } from 'react';
+import { useQuery } from '@tanstack/react-query';
 import { X, Tag } from 'lucide-react';
+import { incidentApi } from '../lib/api';
 import { cn } from '../lib/utils';
 
 interface TagInputProps {
@@ -11,6 +13,14 @@ interface TagInputProps {
 
 export function TagInput({ tags, onChange, placeholder = "Add tags...", disabled }: TagInputProps) {
   const [inputValue, setInputValue] = useState('');
+  const prefix = inputValue.trim();
+
+  const { data: suggestions = [] } = useQuery({
+    queryKey: ['tags', prefix],
+    queryFn: () => incidentApi.completeTags(prefix),
+    enabled: !disabled && prefix.length > 0,
+    staleTime: 30000,
+  });
 
   const handleKeyDown = (e: KeyboardEvent<HTMLInputElement>) => {
     if (e.key === 'Enter' || e.key === ',') {
@@ -67,10 +77,20 @@ export function TagInput({ tags, onChange, placeholder = "Add tags...", disabled
             onChange={(e) => setInputValue(e.target.value)}
             onKeyDown={handleKeyDown}
             onBlur={addTag}
+            list="tag-suggestions"
             placeholder={tags.length === 0 ? placeholder : ''}
             className="flex-1 min-w-[120px] outline-none bg-transparent text-sm"
           />
         )}
+        <datalist id="tag-suggestions">
+          {suggestions
+            .filter((suggestion) => !tags.includes(suggestion.tag))
+            .map((suggestion) => (
+              <option key={suggestion.tag} value={suggestion.tag}>
+                {suggestion.count} incidents
+              </option>
+            ))}
+        </datalist>
       </div>
       {!disabled && (
         <p className="text-xs text-gray-500">
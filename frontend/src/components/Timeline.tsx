@@ -1,4 +1,4 @@
-import { useState } from 'react';
+import { useEffect, useRef, useState } from 'react';
 import { Plus, Clock, MessageSquare, AlertCircle, CheckCircle } from 'lucide-react';
 import { TimelineEvent, Note } from '../types/incident';
 import { formatDate, formatRelativeTime, cn, generateId } from '../lib/utils';
@@ -9,6 +9,9 @@ interface TimelineProps {
   onAddEvent: (event: Omit<TimelineEvent, 'id'>) => void;
   onAddNote: (note: Omit<Note, 'id'>) => void;
   isEditable?: boolean;
+  hasOlder?: boolean;
+  isLoadingOlder?: boolean;
+  onLoadOlder?: () => void;
 }
 
 interface TimelineItem {
@@ -20,8 +23,32 @@ interface TimelineItem {
   isEvent?: boolean;
 }
 
-export function Timeline({ events, notes, onAddEvent, onAddNote, isEditable = true }: TimelineProps) {
+export function Timeline({
+  events,
+  notes,
+  onAddEvent,
+  onAddNote,
+  isEditable = true,
+  hasOlder = false,
+  isLoadingOlder = false,
+  onLoadOlder,
+}: TimelineProps) {
   const [showEventForm, setShowEventForm] = useState(false);
+  const olderSentinel = useRef<HTMLDivElement>(null);
+
+  // Items are newest first, so older pages are requested once the end of the list scrolls into view
+  useEffect(() => {
+    const sentinel = olderSentinel.current;
+    if (!sentinel || !hasOlder || !onLoadOlder) return;
+
+    const observer = new IntersectionObserver((entries) => {
+      if (entries.some((entry) => entry.isIntersecting)) {
+        onLoadOlder();
+      }
+    }, { rootMargin: '200px' });
+    observer.observe(sentinel);
+    return () => observer.disconnect();
+  }, [hasOlder, onLoadOlder]);
   const [showNoteForm, setShowNoteForm] = useState(false);
   const [eventDescription, setEventDescription] = useState('');
   const [noteContent, setNoteContent] = useState('');
@@ -205,7 +232,15 @@ export function Timeline({ events, notes, onAddEvent, onAddNote, isEditable = tr
             </div>
           ))}
           
-          {timelineItems.length === 0 && (
+          {hasOlder && (
+            <div ref={olderSentinel} className="flex justify-center py-4">
+              {isLoadingOlder && (
+                <div className="animate-spin rounded-full h-6 w-6 border-b-2 border-primary-600"></div>
+              )}
+            </div>
+          )}
+
+          {timelineItems.length === 0 && !hasOlder && (
             <div className="text-center py-8 text-gray-500">
               <Clock className="h-12 w-12 mx-auto mb-3 text-gray-300" />
               <p>No timeline events yet</p>
@@ -1,5 +1,5 @@
 import axios from 'axios';
-import { Incident, IncidentSummary, CreateIncidentRequest } from '../types/incident';
+import { Incident, IncidentSummary, CreateIncidentRequest, ElementPage, TimelineEvent, Note, TagFacet } from '../types/incident';
 
 const API_BASE_URL = 'http://localhost:8080/api';
 
@@ -11,15 +11,36 @@ const api = axios.create({
 });
 
 export const incidentApi = {
-  // Get all incidents (summaries)
-  getIncidentSummaries: async (): Promise<IncidentSummary[]> => {
-    const response = await api.get('/incidents/summaries');
+  // Get all incidents (summaries), optionally only those carrying a tag
+  getIncidentSummaries: async (tag?: string): Promise<IncidentSummary[]> => {
+    const response = await api.get('/incidents/summaries', { params: { tag } });
     return response.data;
   },
 
-  // Get full incident details
-  getIncident: async (id: string): Promise<Incident> => {
-    const response = await api.get(`/incidents/${id}`);
+  // Get the most used tags starting with a prefix, with their counts per status and severity
+  completeTags: async (prefix: string, limit = 10): Promise<TagFacet[]> => {
+    const response = await api.get('/incidents/tags', { params: { prefix, limit } });
+    return response.data;
+  },
+
+  // Get incident details, optionally keeping only the newest timeline events and notes
+  getIncident: async (
+    id: string,
+    slices?: { timelineLimit?: number; notesLimit?: number },
+  ): Promise<Incident> => {
+    const response = await api.get(`/incidents/${id}`, { params: slices });
+    return response.data;
+  },
+
+  // Get a page of timeline events ending before the cursor (newest page when omitted)
+  getTimelinePage: async (id: string, limit: number, before?: string): Promise<ElementPage<TimelineEvent>> => {
+    const response = await api.get(`/incidents/${id}/timeline`, { params: { limit, before } });
+    return response.data;
+  },
+
+  // Get a page of notes ending before the cursor (newest page when omitted)
+  getNotesPage: async (id: string, limit: number, before?: string): Promise<ElementPage<Note>> => {
+    const response = await api.get(`/incidents/${id}/notes`, { params: { limit, before } });
     return response.data;
   },
 
@@ -16,22 +16,23 @@ export function formatRelativeTime(date: string | Date) {
 
 export function getSeverityColor(severity: string) {
   const colors = {
-    low: 'bg-green-100 text-green-800 border-green-200',
-    medium: 'bg-yellow-100 text-yellow-800 border-yellow-200',
-    high: 'bg-red-100 text-red-800 border-red-200',
-    critical: 'bg-red-200 text-red-900 border-red-300',
+    Low: 'bg-green-100 text-green-800 border-green-200',
+    Medium: 'bg-yellow-100 text-yellow-800 border-yellow-200',
+    High: 'bg-red-100 text-red-800 border-red-200',
+    Critical: 'bg-red-200 text-red-900 border-red-300',
   };
-  return colors[severity.toLowerCase() as keyof typeof colors] || 'bg-gray-100 text-gray-800 border-gray-200';
+  // the API always returns the canonical labels
+  return colors[severity as keyof typeof colors] || 'bg-gray-100 text-gray-800 border-gray-200';
 }
 
 export function getStatusColor(status: string) {
   const colors = {
-    open: 'bg-red-100 text-red-800 border-red-200',
-    'in_progress': 'bg-yellow-100 text-yellow-800 border-yellow-200',
-    resolved: 'bg-green-100 text-green-800 border-green-200',
-    closed: 'bg-gray-100 text-gray-800 border-gray-200',
+    OPEN: 'bg-red-100 text-red-800 border-red-200',
+    IN_PROGRESS: 'bg-yellow-100 text-yellow-800 border-yellow-200',
+    RESOLVED: 'bg-green-100 text-green-800 border-green-200',
+    CLOSED: 'bg-gray-100 text-gray-800 border-gray-200',
   };
-  return colors[status.toLowerCase() as keyof typeof colors] || 'bg-gray-100 text-gray-800 border-gray-200';
+  return colors[status as keyof typeof colors] || 'bg-gray-100 text-gray-800 border-gray-200';
 }
 
 export function generateId() {
@@ -1,6 +1,6 @@
 import { useState } from 'react';
 import { useParams, useNavigate, Link } from 'react-router-dom';
-import { useQuery, useMutation, useQueryClient } from '@tanstack/react-query';
+import { useQuery, useInfiniteQuery, useMutation, useQueryClient } from '@tanstack/react-query';
 import { ArrowLeft, Edit2, Save, X, Trash2, CheckCircle } from 'lucide-react';
 import { incidentApi } from '../lib/api';
 import { Timeline } from '../components/Timeline';
@@ -10,6 +10,8 @@ import { TagInput } from '../components/TagInput';
 import { Incident, IncidentStatus, TimelineEvent, Note } from '../types/incident';
 import { formatDate, getSeverityColor, getStatusColor, cn, generateId } from '../lib/utils';
 
+const PAGE_SIZE = 20;
+
 export function IncidentDetail() {
   const { id } = useParams<{ id: string }>();
   const navigate = useNavigate();
@@ -19,12 +21,41 @@ export function IncidentDetail() {
   const [editedIncident, setEditedIncident] = useState<Incident | null>(null);
   const [resolutionNote, setResolutionNote] = useState('');
 
+  // timeline and notes are paged separately below, the incident itself only carries the scalar fields
   const { data: incident, isLoading, error } = useQuery({
     queryKey: ['incident', id],
-    queryFn: () => incidentApi.getIncident(id!),
+    queryFn: () => incidentApi.getIncident(id!, { timelineLimit: 0, notesLimit: 0 }),
+    enabled: !!id,
+  });
+
+  const timelinePages = useInfiniteQuery({
+    queryKey: ['incident', id, 'timeline'],
+    queryFn: ({ pageParam }) => incidentApi.getTimelinePage(id!, PAGE_SIZE, pageParam),
+    initialPageParam: undefined as string | undefined,
+    getNextPageParam: (lastPage) => lastPage.before ?? undefined,
+    enabled: !!id,
+  });
+
+  const notesPages = useInfiniteQuery({
+    queryKey: ['incident', id, 'notes'],
+    queryFn: ({ pageParam }) => incidentApi.getNotesPage(id!, PAGE_SIZE, pageParam),
+    initialPageParam: undefined as string | undefined,
+    getNextPageParam: (lastPage) => lastPage.before ?? undefined,
     enabled: !!id,
   });
 
+  const timelineEvents = timelinePages.data?.pages.flatMap((page) => page.items) ?? [];
+  const notes = notesPages.data?.pages.flatMap((page) => page.items) ?? [];
+
+  const handleLoadOlder = () => {
+    if (timelinePages.hasNextPage && !timelinePages.isFetchingNextPage) {
+      timelinePages.fetchNextPage();
+    }
+    if (notesPages.hasNextPage && !notesPages.isFetchingNextPage) {
+      notesPages.fetchNextPage();
+    }
+  };
+
   const updateMutation = useMutation({
     mutationFn: ({ id, updates }: { id: string; updates: Partial<Incident> }) =>
       incidentApi.updateIncident(id, updates),
@@ -99,11 +130,12 @@ export function IncidentDetail() {
 
   const handleAddEvent = (event: Omit<TimelineEvent, 'id'>) => {
     if (incident) {
-      const newEvent = { ...event, id: generateId() };
+      const newEvent = { ...event, id: generateId(), _op: 'add' };
       updateMutation.mutate({
         id: incident.id,
         updates: {
-          timeline: [...incident.timeline, newEvent],
+          // elements are patched by id, an element with an id of our own is added explicitly
+          timeline: [newEvent],
         },
       });
     }
@@ -111,11 +143,11 @@ export function IncidentDetail() {
 
   const handleAddNote = (note: Omit<Note, 'id'>) => {
     if (incident) {
-      const newNote = { ...note, id: generateId() };
+      const newNote = { ...note, id: generateId(), _op: 'add' };
       updateMutation.mutate({
         id: incident.id,
         updates: {
-          notes: [...incident.notes, newNote],
+          notes: [newNote],
         },
       });
     }
@@ -231,11 +263,14 @@ export function IncidentDetail() {
           {/* Timeline */}
           <div className="card p-6">
             <Timeline
-              events={currentIncident.timeline}
-              notes={currentIncident.notes}
+              events={timelineEvents}
+              notes={notes}
               onAddEvent={handleAddEvent}
               onAddNote={handleAddNote}
               isEditable={!isEditing}
+              hasOlder={timelinePages.hasNextPage || notesPages.hasNextPage}
+              isLoadingOlder={timelinePages.isFetchingNextPage || notesPages.isFetchingNextPage}
+              onLoadOlder={handleLoadOlder}
             />
           </div>
         </div>
@@ -10,20 +10,29 @@ export function IncidentList() {
   const [searchTerm, setSearchTerm] = useState('');
   const [statusFilter, setStatusFilter] = useState<string>('all');
   const [severityFilter, setSeverityFilter] = useState<string>('all');
+  const [tagFilter, setTagFilter] = useState('');
+  const tag = tagFilter.trim();
 
+  // the tag filter is applied by the server, through its tags index
   const { data: incidents = [], isLoading, error } = useQuery({
-    queryKey: ['incidents'],
-    queryFn: incidentApi.getIncidentSummaries,
+    queryKey: ['incidents', tag],
+    queryFn: () => incidentApi.getIncidentSummaries(tag || undefined),
     refetchInterval: 30000, // Refresh every 30 seconds
   });
 
+  const { data: tagSuggestions = [] } = useQuery({
+    queryKey: ['tags', tag],
+    queryFn: () => incidentApi.completeTags(tag),
+    staleTime: 30000,
+  });
+
   const filteredIncidents = incidents.filter((incident: IncidentSummary) => {
     const matchesSearch = incident.title.toLowerCase().includes(searchTerm.toLowerCase()) ||
                          incident.summary.toLowerCase().includes(searchTerm.toLowerCase()) ||
                          incident.tags.some(tag => tag.toLowerCase().includes(searchTerm.toLowerCase()));
     
     const matchesStatus = statusFilter === 'all' || incident.status === statusFilter;
-    const matchesSeverity = severityFilter === 'all' || incident.severity.toLowerCase() === severityFilter;
+    const matchesSeverity = severityFilter === 'all' || incident.severity === severityFilter;
     
     return matchesSearch && matchesStatus && matchesSeverity;
   });
@@ -67,7 +76,7 @@ export function IncidentList() {
 
       {/* Filters */}
       <div className="card p-4">
-        <div className="grid grid-cols-1 md:grid-cols-3 gap-4">
+        <div className="grid grid-cols-1 md:grid-cols-4 gap-4">
           {/* Search */}
           <div className="relative">
             <Search className="absolute left-3 top-1/2 transform -translate-y-1/2 h-4 w-4 text-gray-400" />
@@ -100,11 +109,28 @@ export function IncidentList() {
             className="input"
           >
             <option value="all">All Severities</option>
-            <option value="low">Low</option>
-            <option value="medium">Medium</option>
-            <option value="high">High</option>
-            <option value="critical">Critical</option>
+            <option value="Low">Low</option>
+            <option value="Medium">Medium</option>
+            <option value="High">High</option>
+            <option value="Critical">Critical</option>
           </select>
+
+          {/* Tag Filter */}
+          <input
+            type="text"
+            placeholder="Filter by tag..."
+            value={tagFilter}
+            onChange={(e) => setTagFilter(e.target.value)}
+            list="tag-filter-suggestions"
+            className="input"
+          />
+          <datalist id="tag-filter-suggestions">
+            {tagSuggestions.map((suggestion) => (
+              <option key={suggestion.tag} value={suggestion.tag}>
+                {suggestion.count} incidents
+              </option>
+            ))}
+          </datalist>
         </div>
       </div>
 
@@ -115,7 +141,7 @@ export function IncidentList() {
             <AlertTriangle className="h-12 w-12 text-gray-300 mx-auto mb-4" />
             <h3 className="text-lg font-medium text-gray-900 mb-2">No incidents found</h3>
             <p className="text-gray-600">
-              {searchTerm || statusFilter !== 'all' || severityFilter !== 'all'
+              {searchTerm || tag || statusFilter !== 'all' || severityFilter !== 'all'
                 ? 'Try adjusting your filters'
                 : 'Create your first incident to get started'
               }
@@ -25,6 +25,10 @@ export interface IncidentSummary {
   resolutionNote?: string;
   resolvedAt?: string;
   tags: string[];
+  noteCount: number;
+  timelineCount: number;
+  lastActivityAt?: string;
+  openSeconds: number;
 }
 
 export interface TimelineEvent {
@@ -41,6 +45,20 @@ export interface Note {
   timestamp: string;
 }
 
+export interface TagFacet {
+  tag: string;
+  count: number;
+  // incidents carrying the tag per status / severity, values without incidents are left out
+  byStatus: Record<string, number>;
+  bySeverity: Record<string, number>;
+}
+
+export interface ElementPage<T> {
+  items: T[];
+  // opaque cursor for the next older page, null once the oldest element is reached
+  before: string | null;
+}
+
 export type IncidentStatus = 'OPEN' | 'IN_PROGRESS' | 'RESOLVED' | 'CLOSED';
 
 export interface CreateIncidentRequest {
@@ -0,0 +1,95 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of rate limiting one request, from 8 threads: the lock-free bucket against a synchronized one when
+ * every thread hits the same client, and the full limiter (rule matching and bucket lookup) for one hot client
+ * and for requests spread over many clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final int CLIENTS = 10_000;
+    private static final String HOT_KEY = "hot";
+
+    private TokenBucket bucket;
+    private SynchronizedBucket synchronizedBucket;
+    private RateLimiter rateLimiter;
+    private String[] clients;
+
+    @Setup
+    public void setup() {
+        // never empty, the benchmark measures the bookkeeping rather than refusals
+        bucket = new TokenBucket(Integer.MAX_VALUE, 1e9);
+        synchronizedBucket = new SynchronizedBucket(Integer.MAX_VALUE, 1e9);
+        rateLimiter = new RateLimiter(new RateLimitProperties(true, "X-API-Key", Set.of(HOT_KEY), CLIENTS * 2L,
+                Duration.ofMinutes(10),
+                new RateLimitProperties.Limit(Integer.MAX_VALUE, 1e9), List.of(
+                new RateLimitProperties.Endpoint("GET", "/incidents/summaries/**", Integer.MAX_VALUE, 1e9))),
+                new SimpleMeterRegistry());
+        clients = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "ip:10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @Benchmark
+    public long lockFreeBucket() {
+        return bucket.tryConsume(System.nanoTime());
+    }
+
+    @Benchmark
+    public long synchronizedBucket() {
+        return synchronizedBucket.tryConsume(System.nanoTime());
+    }
+
+    @Benchmark
+    public boolean limiterOneClient() {
+        return rateLimiter.tryAcquire("key:" + HOT_KEY, "GET", "/incidents/summaries").allowed();
+    }
+
+    @Benchmark
+    public boolean limiterManyClients() {
+        String client = clients[ThreadLocalRandom.current().nextInt(CLIENTS)];
+        return rateLimiter.tryAcquire(client, "PATCH", "/incidents/42").allowed();
+    }
+
+    /** Classic token count and refill timestamp behind a lock, the baseline. */
+    static final class SynchronizedBucket {
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        SynchronizedBucket(int capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.tokensPerNano = refillPerSecond / 1e9;
+            this.tokens = capacity;
+        }
+
+        synchronized long tryConsume(long nowNanos) {
+            tokens = Math.min(capacity, tokens + (nowNanos - refilledAt) * tokensPerNano);
+            refilledAt = nowNanos;
+            if (tokens < 1) {
+                return -1;
+            }
+            tokens--;
+            return (long) tokens;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package fr.paulevans.incidents.validator;
+
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentStatus;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the enum lookup with the previous substring scan over the joined constant names,
+ * and measures a full property validation of {@code status} for valid and invalid values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnumValidatorBenchmark {
+
+    @Param({"IN_PROGRESS", "in_progress", "INVALID"})
+    public String value;
+
+    private String joinedNames;
+    private EnumLookup lookup;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    @Setup
+    public void setup() {
+        joinedNames = Arrays.stream(IncidentStatus.values())
+                .map(Enum::name)
+                .collect(Collectors.joining(", "));
+        lookup = EnumLookup.of(IncidentStatus.class);
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public boolean substringScan() {
+        return joinedNames.contains(value);
+    }
+
+    @Benchmark
+    public boolean lookup() {
+        return lookup.contains(value, false);
+    }
+
+    @Benchmark
+    public boolean lookupIgnoreCase() {
+        return lookup.contains(value, true);
+    }
+
+    @Benchmark
+    public int validateStatusProperty() {
+        return validator.validateValue(Incident.class, "status", value).size();
+    }
+}
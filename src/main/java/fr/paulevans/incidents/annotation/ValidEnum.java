@@ -14,6 +14,7 @@ import static java.lang.annotation.ElementType.*;
 @Constraint(validatedBy = EnumValidator.class)
 public @interface ValidEnum {
     Class<? extends Enum<?>> enumClass();
+    boolean ignoreCase() default false;
     String message() default "must be one of the allowed values: {allowedValues}";
     Class<?>[] groups() default {};
     Class<? extends Payload>[] payload() default {};
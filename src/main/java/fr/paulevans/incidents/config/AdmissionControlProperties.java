@@ -0,0 +1,36 @@
+package fr.paulevans.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Concurrency limit in front of the incidents API. The limit adapts to latency: it shrinks by
+ * {@code backoffRatio} when a request started after the last backoff takes longer than {@code targetLatency},
+ * and grows by one while requests complete in time and at least half of it is in use. Lower priority traffic
+ * may only use a share of it, so that writes still get in when polling saturates the instance.
+ *
+ * @param enabled        shed requests above the limit
+ * @param initialLimit   concurrent requests allowed at startup
+ * @param minLimit       the limit never backs off below this
+ * @param maxLimit       the limit never grows above this
+ * @param targetLatency  slower requests are taken as a sign of overload
+ * @param backoffRatio   factor applied to the limit on a slow request
+ * @param readShare      part of the limit single-incident reads may use
+ * @param bulkReadShare  part of the limit list and summary reads may use
+ * @param retryAfter     sent as {@code Retry-After} with shed requests
+ */
+@ConfigurationProperties(prefix = "incidents.admission")
+public record AdmissionControlProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100") int initialLimit,
+        @DefaultValue("10") int minLimit,
+        @DefaultValue("500") int maxLimit,
+        @DefaultValue("500ms") Duration targetLatency,
+        @DefaultValue("0.9") double backoffRatio,
+        @DefaultValue("0.8") double readShare,
+        @DefaultValue("0.5") double bulkReadShare,
+        @DefaultValue("1s") Duration retryAfter
+) {
+}
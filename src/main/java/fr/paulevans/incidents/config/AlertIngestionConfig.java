@@ -0,0 +1,52 @@
+package fr.paulevans.incidents.config;
+
+import fr.paulevans.incidents.exceptions.InvalidAlertException;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+@Configuration
+@ConditionalOnProperty(prefix = "incidents.alerts", name = "enabled", havingValue = "true")
+public class AlertIngestionConfig {
+
+    public static final String CONTAINER_FACTORY = "alertListenerContainerFactory";
+
+    /**
+     * Configured like the auto-configured factory, plus the alert error handler. Only the alert listener uses
+     * it: the other listeners (cache invalidation) keep the default handling and never dead-letter.
+     */
+    @Bean(CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> alertListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer, ConsumerFactory<Object, Object> consumerFactory,
+            KafkaOperations<Object, Object> kafkaOperations, AlertIngestionProperties properties) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setCommonErrorHandler(alertErrorHandler(kafkaOperations, properties));
+        return factory;
+    }
+
+    /**
+     * When the listener reports the failing record of a batch, the records before it are committed, the failing
+     * one is retried and then sent to the dead-letter topic, and the rest of the batch is redelivered.
+     */
+    private static CommonErrorHandler alertErrorHandler(KafkaOperations<Object, Object> kafkaOperations,
+                                                        AlertIngestionProperties properties) {
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaOperations,
+                (record, ex) -> new TopicPartition(properties.deadLetterTopic(), -1));
+
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer,
+                new FixedBackOff(properties.retryBackoff().toMillis(), properties.retryAttempts()));
+        // a malformed alert will not get better by retrying it
+        errorHandler.addNotRetryableExceptions(InvalidAlertException.class);
+        return errorHandler;
+    }
+}
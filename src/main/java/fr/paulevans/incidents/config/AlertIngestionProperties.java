@@ -0,0 +1,27 @@
+package fr.paulevans.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Kafka ingestion of monitoring alerts.
+ *
+ * @param enabled         start the batch listener on {@code topic}
+ * @param topic           topic the monitoring systems publish alerts to
+ * @param deadLetterTopic records that still fail after the retries (or cannot be parsed at all) are published here
+ * @param concurrency     consumer threads, at most one per partition is useful
+ * @param retryAttempts   redeliveries of a failing record before it is dead-lettered
+ * @param retryBackoff    pause between two redeliveries; the consumer does not poll meanwhile
+ */
+@ConfigurationProperties(prefix = "incidents.alerts")
+public record AlertIngestionProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("incident-alerts") String topic,
+        @DefaultValue("incident-alerts-dlt") String deadLetterTopic,
+        @DefaultValue("3") int concurrency,
+        @DefaultValue("3") int retryAttempts,
+        @DefaultValue("1s") Duration retryBackoff
+) {
+}
@@ -0,0 +1,34 @@
+package fr.paulevans.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Change stream on the incidents collection, turned into {@code IncidentChangedEvent}s.
+ *
+ * @param enabled      tail the change stream (needs a replica set)
+ * @param checkpointId key of the stored resume token; must be stable across restarts and unique per instance,
+ *                     so it has no default and is required once the stream is enabled
+ * @param batchSize    changes dispatched and checkpointed together; the next batch is only read once the
+ *                     listeners are done with the current one
+ * @param maxAwait     how long the server holds an empty getMore, and so the latency of a partial batch
+ * @param retryBackoff pause before reopening the stream after an error
+ */
+@ConfigurationProperties(prefix = "incidents.change-stream")
+public record ChangeStreamProperties(
+        @DefaultValue("false") boolean enabled,
+        String checkpointId,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("1s") Duration maxAwait,
+        @DefaultValue("5s") Duration retryBackoff
+) {
+
+    public ChangeStreamProperties {
+        if (enabled && (checkpointId == null || checkpointId.isBlank())) {
+            throw new IllegalArgumentException(
+                    "incidents.change-stream.checkpoint-id must be set per instance when the change stream is enabled");
+        }
+    }
+}
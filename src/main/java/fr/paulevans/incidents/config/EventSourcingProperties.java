@@ -0,0 +1,22 @@
+package fr.paulevans.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Event sourcing mode for incidents.
+ *
+ * @param enabled          append every mutation to incident_events and treat incidents as a projection of it
+ * @param snapshotInterval take a snapshot every N events, bounding the number of events replayed per read
+ * @param compactAfter     history older than this is folded into its latest snapshot by the compaction job;
+ *                         time travel before that snapshot is no longer possible
+ */
+@ConfigurationProperties(prefix = "incidents.event-sourcing")
+public record EventSourcingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("50") int snapshotInterval,
+        @DefaultValue("30d") Duration compactAfter
+) {
+}
@@ -1,11 +1,18 @@
 package fr.paulevans.incidents.config;
 
 import fr.paulevans.incidents.exceptions.IncidentValidationException;
+import fr.paulevans.incidents.exceptions.InvalidPatchException;
+import fr.paulevans.incidents.exceptions.PatchTargetNotFoundException;
+import fr.paulevans.incidents.exceptions.PatchTestFailedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.List;
 import java.util.Map;
 
 @RestControllerAdvice
@@ -31,13 +38,50 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Map<String, Object>> handleIncidentValidation(
             IncidentValidationException ex) {
 
-        Map<String, Object> body = Map.of(
-                "details", ex.getViolations()
-                        .stream()
-                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
-                        .toList()
-        );
+        Map<String, Object> body = Map.of("details", ex.getDetails());
+
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(PatchTargetNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handlePatchTargetNotFound(
+            PatchTargetNotFoundException ex) {
+
+        Map<String, Object> body = Map.of("details", ex.getMissing());
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
+    }
+
+    @ExceptionHandler(InvalidPatchException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidPatch(InvalidPatchException ex) {
+
+        Map<String, Object> body = Map.of("details", List.of(ex.getMessage()));
 
         return ResponseEntity.badRequest().body(body);
     }
+
+    @ExceptionHandler(PatchTestFailedException.class)
+    public ResponseEntity<Map<String, Object>> handlePatchTestFailed(PatchTestFailedException ex) {
+
+        Map<String, Object> body = Map.of("details", List.of(ex.getMessage()));
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleConcurrentModification(
+            OptimisticLockingFailureException ex) {
+
+        Map<String, Object> body = Map.of("details", List.of(ex.getMessage()));
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity<Map<String, Object>> handleQueryTimeout(QueryTimeoutException ex) {
+
+        Map<String, Object> body = Map.of("details", List.of(ex.getMessage()));
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
 }
@@ -0,0 +1,24 @@
+package fr.paulevans.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Handling of the {@code Idempotency-Key} header on POST and PATCH requests.
+ *
+ * @param enabled     honour the header; requests without it are never affected
+ * @param ttl         how long a response is kept for replay after it was produced
+ * @param lockTimeout how long a request may hold a key before another one may take it over, covers instances
+ *                    that died mid-request
+ * @param waitTimeout how long a duplicate waits for the request holding the key before getting a 409
+ */
+@ConfigurationProperties(prefix = "incidents.idempotency")
+public record IdempotencyProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("24h") Duration ttl,
+        @DefaultValue("30s") Duration lockTimeout,
+        @DefaultValue("10s") Duration waitTimeout
+) {
+}
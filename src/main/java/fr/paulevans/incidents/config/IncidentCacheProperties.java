@@ -0,0 +1,29 @@
+package fr.paulevans.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Per-instance cache of incidents and summaries.
+ *
+ * @param enabled     serve reads from the local cache
+ * @param ttl         entries are reloaded after this long at the latest, which bounds staleness when an
+ *                    invalidation from another instance is lost
+ * @param maxSize     maximum number of cached incidents
+ * @param bus         how changes made by other instances are learned about: {@code none} relies on the ttl only,
+ *                    {@code kafka} broadcasts every local change on {@code topic}
+ * @param topic       invalidation topic when {@code bus} is {@code kafka}
+ * @param nodeId      identifies this instance on the bus so it skips its own messages
+ */
+@ConfigurationProperties(prefix = "incidents.cache")
+public record IncidentCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("30s") Duration ttl,
+        @DefaultValue("10000") long maxSize,
+        @DefaultValue("none") String bus,
+        @DefaultValue("incident-changes") String topic,
+        String nodeId
+) {
+}
@@ -0,0 +1,21 @@
+package fr.paulevans.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Storage settings for the incident update history.
+ *
+ * @param bucketSpan       time window grouped into one bucket document
+ * @param bucketMaxEntries maximum number of updates per bucket, a new bucket is opened once reached
+ * @param retention        how long a bucket is kept after its window closes; only applies to buckets written afterwards
+ */
+@ConfigurationProperties(prefix = "incidents.updates")
+public record IncidentUpdateProperties(
+        @DefaultValue("1h") Duration bucketSpan,
+        @DefaultValue("200") int bucketMaxEntries,
+        @DefaultValue("90d") Duration retention
+) {
+}
@@ -0,0 +1,41 @@
+package fr.paulevans.incidents.config;
+
+import fr.paulevans.incidents.IncidentsApplication;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.annotation.Annotation;
+
+@Configuration
+public class LazyInitializationConfig {
+
+    /**
+     * Beans kept eager under {@code spring.main.lazy-initialization}. Scheduled tasks and Kafka listeners are only
+     * registered when their bean is created, and startup callbacks ({@link SmartInitializingSingleton},
+     * {@link SmartLifecycle}) only run on beans that exist, so a lazy one would never run; controllers, and through
+     * them the services and repositories, are what the first request needs.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerBeans() {
+        return (beanName, definition, beanType) -> beanType != null && (beanType == IncidentsApplication.class
+                || SmartInitializingSingleton.class.isAssignableFrom(beanType)
+                || SmartLifecycle.class.isAssignableFrom(beanType)
+                || AnnotatedElementUtils.hasAnnotation(beanType, RestController.class)
+                || hasMethodAnnotated(beanType, Scheduled.class)
+                || hasMethodAnnotated(beanType, KafkaListener.class));
+    }
+
+    private static boolean hasMethodAnnotated(Class<?> type, Class<? extends Annotation> annotation) {
+        return !MethodIntrospector.selectMethods(type, (ReflectionUtils.MethodFilter) method ->
+                AnnotatedElementUtils.hasAnnotation(method, annotation)).isEmpty();
+    }
+}
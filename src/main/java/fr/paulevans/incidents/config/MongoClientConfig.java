@@ -0,0 +1,78 @@
+package fr.paulevans.incidents.config;
+
+import com.mongodb.MongoCompressor;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MongoClientConfig {
+
+    /**
+     * Applies {@link MongoClientProperties}. Boot's own customizer applies the URI first, so these settings win
+     * over the same options given in the URI. Pool size, checked-out connections and wait queue are already
+     * published by Boot as {@code mongodb.driver.pool.*}; this adds the time checkouts wait for a connection.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoClientTuning(MongoClientProperties properties,
+                                                                  MeterRegistry meterRegistry) {
+        MongoClientProperties.Pool pool = properties.pool();
+        ConnectionPoolListener checkoutTimer = checkoutTimer(meterRegistry);
+        return settings -> {
+            settings.applyToConnectionPoolSettings(builder -> builder
+                            .maxSize(pool.maxSize())
+                            .minSize(pool.minSize())
+                            .maxWaitTime(pool.maxWaitTime().toMillis(), TimeUnit.MILLISECONDS)
+                            .maxConnectionIdleTime(pool.maxConnectionIdleTime().toMillis(), TimeUnit.MILLISECONDS)
+                            .maxConnecting(pool.maxConnecting())
+                            .addConnectionPoolListener(checkoutTimer))
+                    .applyToSocketSettings(builder -> builder
+                            .connectTimeout((int) properties.connectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                            .readTimeout((int) properties.socketTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                    .applyToClusterSettings(builder -> builder
+                            .serverSelectionTimeout(properties.serverSelectionTimeout().toMillis(), TimeUnit.MILLISECONDS));
+            // none configured keeps the ones of the URI, if any
+            if (!properties.compressors().isEmpty()) {
+                settings.compressorList(properties.compressors().stream().map(MongoClientConfig::compressor).toList());
+            }
+        };
+    }
+
+    private static ConnectionPoolListener checkoutTimer(MeterRegistry meterRegistry) {
+        Timer acquired = Timer.builder("incidents.mongo.pool.wait")
+                .description("Time a checkout waited for a pooled connection")
+                .tag("outcome", "acquired")
+                .register(meterRegistry);
+        Timer failed = Timer.builder("incidents.mongo.pool.wait")
+                .description("Time a checkout waited for a pooled connection")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        return new ConnectionPoolListener() {
+            @Override
+            public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+                acquired.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+                failed.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    private static MongoCompressor compressor(String name) {
+        return switch (name) {
+            case "zlib" -> MongoCompressor.createZlibCompressor();
+            case "snappy" -> MongoCompressor.createSnappyCompressor();
+            case "zstd" -> MongoCompressor.createZstdCompressor();
+            default -> throw new IllegalArgumentException("Unknown Mongo compressor: " + name);
+        };
+    }
+}
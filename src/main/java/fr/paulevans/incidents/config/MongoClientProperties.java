@@ -0,0 +1,72 @@
+package fr.paulevans.incidents.config;
+
+import com.mongodb.ReadPreference;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mongo client tuning, applied over what {@code spring.data.mongodb.uri} sets. Writes and reads go to the primary
+ * unless stated otherwise; only the dashboard reads listed under {@code dashboardReads} may be served by
+ * secondaries.
+ *
+ * @param pool                   connection pool of each server
+ * @param connectTimeout         time allowed to open a connection
+ * @param socketTimeout          time allowed for a reply once a command is sent; 0 waits forever
+ * @param serverSelectionTimeout time a command waits for a suitable server, e.g. during an election
+ * @param compressors            wire compressors offered to the server, in order of preference ({@code zlib} needs
+ *                               no extra library; {@code snappy} and {@code zstd} need theirs on the class path)
+ * @param dashboardReads         read preference of the summary list shown by the dashboard
+ */
+@ConfigurationProperties(prefix = "incidents.mongo")
+public record MongoClientProperties(
+        @DefaultValue Pool pool,
+        @DefaultValue("5s") Duration connectTimeout,
+        @DefaultValue("30s") Duration socketTimeout,
+        @DefaultValue("10s") Duration serverSelectionTimeout,
+        List<String> compressors,
+        @DefaultValue DashboardReads dashboardReads
+) {
+
+    /**
+     * @param maxSize               connections open at most; further checkouts wait
+     * @param minSize               connections kept open even when idle
+     * @param maxWaitTime           time a checkout waits for a free connection before failing
+     * @param maxConnectionIdleTime idle connections are closed after this long
+     * @param maxConnecting         connections being opened at once, bounds connection storms on restarts
+     */
+    public record Pool(
+            @DefaultValue("100") int maxSize,
+            @DefaultValue("0") int minSize,
+            @DefaultValue("2s") Duration maxWaitTime,
+            @DefaultValue("5m") Duration maxConnectionIdleTime,
+            @DefaultValue("2") int maxConnecting
+    ) {
+    }
+
+    /**
+     * @param readPreference mode name, e.g. {@code primary} or {@code secondaryPreferred}
+     * @param maxStaleness   secondaries lagging more than this are not read from; at least 90s, as required by
+     *                       the server selection specification
+     */
+    public record DashboardReads(
+            @DefaultValue("primary") String readPreference,
+            @DefaultValue("90s") Duration maxStaleness
+    ) {
+
+        public ReadPreference toReadPreference() {
+            ReadPreference mode = ReadPreference.valueOf(readPreference);
+            if (mode.equals(ReadPreference.primary())) {
+                return mode; // the primary is never stale
+            }
+            return ReadPreference.valueOf(readPreference, List.of(), maxStaleness.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public List<String> compressors() {
+        return compressors == null ? List.of() : compressors;
+    }
+}
@@ -0,0 +1,22 @@
+package fr.paulevans.incidents.config;
+
+import fr.paulevans.incidents.repository.DeadlineAwareMongoDatabaseFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+@Configuration
+public class MongoQueryConfig {
+
+    /**
+     * Replaces the auto-configured template, which the repositories use as well. Only the template sees the
+     * deadline aware factory: declaring a factory bean would switch off the auto-configured client.
+     */
+    @Bean
+    public MongoTemplate mongoTemplate(MongoDatabaseFactory factory, MongoConverter converter,
+                                       QueryProperties properties) {
+        return new MongoTemplate(new DeadlineAwareMongoDatabaseFactory(factory, properties), converter);
+    }
+}
@@ -0,0 +1,34 @@
+package fr.paulevans.incidents.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import fr.paulevans.incidents.filter.RequestTimings;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MongoTimingConfig {
+
+    /**
+     * The sync driver notifies listeners on the thread that ran the command, so the time lands on the request
+     * that issued it.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer requestTimingCommandListener() {
+        return settings -> settings.addCommandListener(new CommandListener() {
+            @Override
+            public void commandSucceeded(CommandSucceededEvent event) {
+                RequestTimings.recordDatabase(event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+
+            @Override
+            public void commandFailed(CommandFailedEvent event) {
+                RequestTimings.recordDatabase(event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package fr.paulevans.incidents.config;
+
+import fr.paulevans.incidents.converter.SeverityCodeConverter;
+import fr.paulevans.incidents.converter.StatusCodeConverter;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.validator.EnumValidator;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.util.List;
+
+/**
+ * Reflection the native image needs beyond what AOT processing derives from the beans: the incident model is
+ * validated outside any bean, and Spring Data and Hibernate Validator instantiate the converters and the
+ * validator from annotations. The patch path itself goes through {@code IncidentSchema} and needs none.
+ */
+public class NativeImageHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> model : List.of(Incident.class, Incident.Note.class, Incident.TimelineEvent.class)) {
+            hints.reflection().registerType(model, MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        for (Class<?> instantiated : List.of(StatusCodeConverter.class, SeverityCodeConverter.class,
+                EnumValidator.class)) {
+            hints.reflection().registerType(instantiated, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        }
+    }
+}
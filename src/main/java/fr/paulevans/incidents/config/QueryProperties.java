@@ -0,0 +1,29 @@
+package fr.paulevans.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Time budgets of database operations. Each operation gets a timeout, which the driver enforces client side and
+ * sends to the server as {@code maxTimeMS}, so an abandoned query stops on the server too.
+ *
+ * @param maxTime           budget of one operation served to an HTTP request; each round trip of a stream counts
+ *                          as one operation
+ * @param requestTimeout    budget of all the operations of an HTTP request together
+ * @param timeoutHeader     header in which a caller (e.g. a proxy) passes the milliseconds it will still wait;
+ *                          shortens {@code requestTimeout}, never extends it
+ * @param backgroundMaxTime budget of one operation outside requests (startup loads, scheduled flushes, Kafka
+ *                          listeners); 0 leaves them unbounded
+ * @param streamBatchSize   documents fetched per round trip by streamed reads, which bounds their memory
+ */
+@ConfigurationProperties(prefix = "incidents.queries")
+public record QueryProperties(
+        @DefaultValue("5s") Duration maxTime,
+        @DefaultValue("10s") Duration requestTimeout,
+        @DefaultValue("X-Request-Timeout") String timeoutHeader,
+        @DefaultValue("5m") Duration backgroundMaxTime,
+        @DefaultValue("500") int streamBatchSize
+) {
+}
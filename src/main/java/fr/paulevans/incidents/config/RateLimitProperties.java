@@ -0,0 +1,61 @@
+package fr.paulevans.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Per-client rate limits of the incidents API. A client is the value of {@code apiKeyHeader} when it is one of
+ * the configured {@code apiKeys}, its IP address otherwise; every client gets one token bucket per matching
+ * endpoint rule. Unknown keys count as the IP, so that sending random keys neither escapes the per-IP limit
+ * nor fills the buckets cache.
+ *
+ * @param enabled      throttle clients above their limit
+ * @param apiKeyHeader header identifying the calling integration
+ * @param apiKeys      keys of the integrations, limited per key rather than per IP
+ * @param maxClients   buckets kept at most, least recently used clients are forgotten first
+ * @param idleTimeout  buckets of clients idle for this long are dropped, they would be full again anyway
+ * @param defaults     limit of the requests no endpoint rule matches
+ * @param endpoints    endpoint rules, the first one matching the method and path applies
+ */
+@ConfigurationProperties(prefix = "incidents.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("X-API-Key") String apiKeyHeader,
+        Set<String> apiKeys,
+        @DefaultValue("100000") long maxClients,
+        @DefaultValue("10m") Duration idleTimeout,
+        @DefaultValue Limit defaults,
+        List<Endpoint> endpoints
+) {
+
+    /**
+     * @param capacity        burst size, requests allowed at once by a full bucket
+     * @param refillPerSecond sustained rate
+     */
+    public record Limit(
+            @DefaultValue("200") int capacity,
+            @DefaultValue("100") double refillPerSecond
+    ) {
+    }
+
+    /**
+     * @param method          HTTP method, any when omitted
+     * @param pattern         path pattern below the context path, e.g. {@code /incidents/summaries/**}
+     * @param capacity        burst size
+     * @param refillPerSecond sustained rate
+     */
+    public record Endpoint(String method, String pattern, int capacity, double refillPerSecond) {
+    }
+
+    public Set<String> apiKeys() {
+        return apiKeys == null ? Set.of() : apiKeys;
+    }
+
+    public List<Endpoint> endpoints() {
+        return endpoints == null ? List.of() : endpoints;
+    }
+}
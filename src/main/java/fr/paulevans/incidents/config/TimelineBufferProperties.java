@@ -0,0 +1,23 @@
+package fr.paulevans.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Write-behind buffering of timeline appends. Events appended within one {@code flushInterval} are written with
+ * a single update per incident; the interval is how long an appended event can stay invisible to readers, and
+ * so the trade-off between write amplification and visibility latency.
+ *
+ * @param enabled       queue appends and write them in batches; when off every append is written immediately
+ * @param flushInterval delay between two flushes
+ * @param maxPending    maximum number of queued events; an append finding the buffer full flushes it first
+ */
+@ConfigurationProperties(prefix = "incidents.timeline-buffer")
+public record TimelineBufferProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("2s") Duration flushInterval,
+        @DefaultValue("10000") int maxPending
+) {
+}
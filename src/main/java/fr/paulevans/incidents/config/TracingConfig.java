@@ -0,0 +1,36 @@
+package fr.paulevans.incidents.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paulevans.incidents.tracing.FileSpanExporter;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.observability.ContextProviderFactory;
+import org.springframework.data.mongodb.observability.MongoObservationCommandListener;
+
+import java.io.IOException;
+
+@Configuration
+public class TracingConfig {
+
+    /**
+     * A span per Mongo command. The context provider hands the current observation to the driver, so the
+     * command spans are children of the stage that issued them rather than new traces.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoObservationCustomizer(ObservationRegistry observationRegistry) {
+        return settings -> settings
+                .contextProvider(ContextProviderFactory.create(observationRegistry))
+                .addCommandListener(new MongoObservationCommandListener(observationRegistry));
+    }
+
+    /** Picked up by the auto-configured span processor, next to the OTLP exporter when that one is configured */
+    @Bean
+    @ConditionalOnProperty(prefix = "incidents.tracing", name = "file")
+    public FileSpanExporter fileSpanExporter(TracingProperties properties, ObjectMapper objectMapper)
+            throws IOException {
+        return new FileSpanExporter(properties.file(), objectMapper);
+    }
+}
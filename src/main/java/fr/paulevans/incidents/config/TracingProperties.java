@@ -0,0 +1,17 @@
+package fr.paulevans.incidents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Local span export. Sampling and OTLP export are configured with the standard {@code management.tracing} and
+ * {@code management.otlp.tracing} properties; this adds a file exporter for machines without a collector.
+ *
+ * @param file when set, sampled spans are appended to this file, one JSON object per line
+ */
+@ConfigurationProperties(prefix = "incidents.tracing")
+public record TracingProperties(
+        Path file
+) {
+}
@@ -1,10 +1,18 @@
 package fr.paulevans.incidents.controller;
 
 
+import fr.paulevans.incidents.dto.ElementPage;
 import fr.paulevans.incidents.dto.IncidentSummaryDto;
+import fr.paulevans.incidents.dto.TagFacet;
+import fr.paulevans.incidents.index.OpenIncidentIndex;
+import fr.paulevans.incidents.index.OpenIncidentQuery;
+import fr.paulevans.incidents.index.TagIndex;
 import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.patch.JsonPatchCodec;
+import fr.paulevans.incidents.patch.PatchOperation;
 import fr.paulevans.incidents.service.IncidentService;
 import fr.paulevans.incidents.service.IncidentUpdateService;
+import fr.paulevans.incidents.service.TimelineAppender;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
 import jakarta.validation.Validator;
@@ -15,9 +23,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
 import java.util.*;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/incidents")
@@ -27,30 +37,141 @@ public class IncidentController {
     @Autowired
     private Validator validator;
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int DEFAULT_TAG_SUGGESTIONS = 10;
+
     private final IncidentService incidentService;
 
     private final IncidentUpdateService incidentUpdateService;
 
+    private final JsonPatchCodec jsonPatchCodec;
+
+    private final OpenIncidentIndex openIncidentIndex;
+
+    private final TagIndex tagIndex;
+
+    private final TimelineAppender timelineAppender;
+
+    /** Written as the cursor is read; Jackson closes the stream once serialized. */
     @GetMapping
-    public List<Incident> getAllIncidents() {
+    public Stream<Incident> getAllIncidents() {
         return incidentService.getAllIncidents();
     }
 
     @GetMapping("/summaries")
-    public List<IncidentSummaryDto> getIncidentSummaries() {
-        return incidentService.getAllIncidentSummaries();
+    public List<IncidentSummaryDto> getIncidentSummaries(@RequestParam(required = false) String tag) {
+        return tag == null ? incidentService.getAllIncidentSummaries() : incidentService.getIncidentSummariesByTag(tag);
+    }
+
+    @GetMapping("/tags")
+    public List<TagFacet> completeTags(
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "" + DEFAULT_TAG_SUGGESTIONS) int limit) {
+        return tagIndex.complete(prefix, Math.clamp(limit, 1, MAX_PAGE_SIZE));
+    }
+
+    @GetMapping("/tags/{tag}")
+    public ResponseEntity<TagFacet> getTagFacet(@PathVariable String tag) {
+        TagFacet facet = tagIndex.facet(tag);
+        return facet == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(facet);
+    }
+
+    @GetMapping("/summaries/open")
+    public List<IncidentSummaryDto> getOpenIncidentSummaries(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String severity,
+            @RequestParam(required = false) String tag,
+            @RequestParam(defaultValue = "CREATED_AT") OpenIncidentQuery.Sort sort,
+            @RequestParam(defaultValue = "" + MAX_PAGE_SIZE) int limit) {
+        return openIncidentIndex.find(new OpenIncidentQuery(status, severity, tag), sort, pageLimit(limit));
+    }
+
+    @GetMapping("/summaries/open/count")
+    public Map<String, Integer> countOpenIncidents(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String severity,
+            @RequestParam(required = false) String tag) {
+        return Map.of("count", openIncidentIndex.count(new OpenIncidentQuery(status, severity, tag)));
+    }
+
+    @GetMapping("/summaries/open/groups")
+    public Map<String, Integer> groupOpenIncidents(
+            @RequestParam OpenIncidentQuery.Dimension by,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String severity,
+            @RequestParam(required = false) String tag) {
+        return openIncidentIndex.countBy(new OpenIncidentQuery(status, severity, tag), by);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Incident> getIncidentById(@PathVariable String id) {
+    public ResponseEntity<Incident> getIncidentById(
+            @PathVariable String id,
+            @RequestParam(required = false) Integer timelineLimit,
+            @RequestParam(required = false) Integer notesLimit) {
         try {
-            Incident incident = incidentService.getIncidentById(id);
+            Incident incident = timelineLimit == null && notesLimit == null
+                    ? incidentService.getIncidentById(id)
+                    : incidentService.getIncidentById(id, sliceLimit(timelineLimit), sliceLimit(notesLimit));
             return ResponseEntity.ok(incident);
         } catch (NoSuchElementException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<ElementPage<Incident.TimelineEvent>> getTimelinePage(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String before) {
+        try {
+            return ResponseEntity.ok(incidentService.getTimelinePage(id, pageLimit(limit), before));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // a cursor not handed out by a previous page
+        }
+    }
+
+    @GetMapping("/{id}/notes")
+    public ResponseEntity<ElementPage<Incident.Note>> getNotesPage(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) String before) {
+        try {
+            return ResponseEntity.ok(incidentService.getNotesPage(id, pageLimit(limit), before));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // a cursor not handed out by a previous page
+        }
+    }
+
+    /**
+     * Appends one event without reading the incident. 202 Accepted when the write-behind buffer queued it, it
+     * shows up in reads after the next flush.
+     */
+    @PostMapping("/{id}/timeline")
+    public ResponseEntity<Incident.TimelineEvent> appendTimelineEvent(
+            @PathVariable String id,
+            @Valid @RequestBody Incident.TimelineEvent event) {
+        try {
+            boolean queued = timelineAppender.append(id, event);
+            return ResponseEntity.status(queued ? HttpStatus.ACCEPTED : HttpStatus.CREATED).body(event);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /** An omitted limit on the detail view still returns the whole array. */
+    private static int sliceLimit(Integer limit) {
+        return limit == null ? Integer.MAX_VALUE : Math.max(0, limit);
+    }
+
+    private static int pageLimit(int limit) {
+        return Math.clamp(limit, 1, MAX_PAGE_SIZE);
+    }
+
     @PostMapping
     public ResponseEntity<Incident> createIncident(@Valid @RequestBody Incident incident) {
         // Could add more business validation here
@@ -66,7 +187,7 @@ public class IncidentController {
 
         Incident incident;
         try {
-            incident = incidentService.getIncidentById(id);
+            incident = incidentService.getIncidentForUpdate(id);
         } catch (NoSuchElementException e) {
             return ResponseEntity.notFound().build();
         }
@@ -75,6 +196,27 @@ public class IncidentController {
         return ResponseEntity.ok(updatedIncident);
     }
 
+    @PatchMapping(value = "/{id}", consumes = JsonPatchCodec.JSON_PATCH)
+    public ResponseEntity<Incident> jsonPatchIncident(@PathVariable String id, InputStream body) throws IOException {
+        return applyPatchOperations(id, jsonPatchCodec.parseJsonPatch(body));
+    }
+
+    @PatchMapping(value = "/{id}", consumes = JsonPatchCodec.MERGE_PATCH)
+    public ResponseEntity<Incident> mergePatchIncident(@PathVariable String id, InputStream body) throws IOException {
+        return applyPatchOperations(id, jsonPatchCodec.parseMergePatch(body));
+    }
+
+    private ResponseEntity<Incident> applyPatchOperations(String id, List<PatchOperation> operations) {
+        Incident incident;
+        try {
+            incident = incidentService.getIncidentForUpdate(id);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(incidentService.applyPatchOperations(incident, operations));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteIncident(@PathVariable String id) {
         if (!incidentService.existsById(id)) {
@@ -83,16 +225,4 @@ public class IncidentController {
         incidentService.deleteIncident(id);
         return ResponseEntity.noContent().build();
     }
-
-    // Helper to convert JSON value to the proper field type
-    private Object convertValueToFieldType(Field field, Object value) {
-        Class<?> type = field.getType();
-        if (type.isEnum() && value instanceof String) {
-            return Enum.valueOf((Class<Enum>) type, (String) value);
-        }
-        if (type == Instant.class && value instanceof String) {
-            return Instant.parse((String) value);
-        }
-        return value; // for String, primitives, etc.
-    }
-}
\ No newline at end of file
+}
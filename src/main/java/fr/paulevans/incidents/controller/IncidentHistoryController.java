@@ -0,0 +1,33 @@
+package fr.paulevans.incidents.controller;
+
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.service.IncidentEventStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/incidents")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "incidents.event-sourcing", name = "enabled", havingValue = "true")
+public class IncidentHistoryController {
+
+    private final IncidentEventStore incidentEventStore;
+
+    /** State of the incident as of {@code at} (defaults to now), replayed from the event log. */
+    @GetMapping("/{id}/history")
+    public ResponseEntity<Incident> getIncidentAt(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant at) {
+        return ResponseEntity.of(incidentEventStore.replay(id, at != null ? at : Instant.now()));
+    }
+
+    @PostMapping("/{id}/rebuild")
+    public ResponseEntity<Incident> rebuildIncident(@PathVariable String id) {
+        return ResponseEntity.of(incidentEventStore.rebuild(id));
+    }
+}
@@ -0,0 +1,29 @@
+package fr.paulevans.incidents.converter;
+
+import fr.paulevans.incidents.model.Severity;
+import fr.paulevans.incidents.validator.EnumLookup;
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+import org.springframework.data.mongodb.core.convert.MongoValueConverter;
+
+/**
+ * Stores a severity, whatever its case, as its {@link Severity#code()} and reads it back as its label.
+ * Values that are not a severity are stored as is, and pre-encoding documents are still read.
+ */
+public class SeverityCodeConverter implements MongoValueConverter<String, Object> {
+
+    @Override
+    public Object write(String value, MongoConversionContext context) {
+        return EnumLookup.of(Severity.class).find(value, true)
+                .<Object>map(severity -> ((Severity) severity).code())
+                .orElse(value);
+    }
+
+    @Override
+    public String read(Object value, MongoConversionContext context) {
+        if (value instanceof Number code) {
+            Severity severity = Severity.fromCode(code.intValue());
+            return severity != null ? severity.label() : code.toString();
+        }
+        return value.toString();
+    }
+}
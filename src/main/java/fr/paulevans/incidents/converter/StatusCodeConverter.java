@@ -0,0 +1,29 @@
+package fr.paulevans.incidents.converter;
+
+import fr.paulevans.incidents.model.IncidentStatus;
+import fr.paulevans.incidents.validator.EnumLookup;
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+import org.springframework.data.mongodb.core.convert.MongoValueConverter;
+
+/**
+ * Stores a status as its {@link IncidentStatus#code()}. Values that are not a status are stored as is, and
+ * documents written before the encoding (plain strings) are still read.
+ */
+public class StatusCodeConverter implements MongoValueConverter<String, Object> {
+
+    @Override
+    public Object write(String value, MongoConversionContext context) {
+        return EnumLookup.of(IncidentStatus.class).find(value, false)
+                .<Object>map(status -> ((IncidentStatus) status).code())
+                .orElse(value);
+    }
+
+    @Override
+    public String read(Object value, MongoConversionContext context) {
+        if (value instanceof Number code) {
+            IncidentStatus status = IncidentStatus.fromCode(code.intValue());
+            return status != null ? status.name() : code.toString();
+        }
+        return value.toString();
+    }
+}
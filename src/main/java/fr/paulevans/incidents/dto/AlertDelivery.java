@@ -0,0 +1,14 @@
+package fr.paulevans.incidents.dto;
+
+import java.time.Instant;
+
+/**
+ * An alert as delivered by the broker. The id is the same on every redelivery, so writes keyed by it can be
+ * retried without duplicating anything.
+ *
+ * @param id         topic, partition and offset of the record, with the fingerprint of the alert and the record
+ *                   timestamp so that an offset seen again after a topic reset is a new delivery
+ * @param receivedAt timestamp of the record, stands in for a missing alert timestamp
+ */
+public record AlertDelivery(String id, Instant receivedAt, AlertMessage alert) {
+}
@@ -0,0 +1,43 @@
+package fr.paulevans.incidents.dto;
+
+import fr.paulevans.incidents.model.Severity;
+
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Alert pushed by a monitoring system on the alerts topic. Alerts sharing a fingerprint belong to the same
+ * incident as long as it is open; producers should key messages by fingerprint to keep them on one partition.
+ */
+public record AlertMessage(
+        String fingerprint,
+        String source,
+        String title,
+        String description,
+        String severity,
+        String status,
+        Instant timestamp
+) {
+
+    public static final String TAG_PREFIX = "alert:";
+
+    public String tag() {
+        return TAG_PREFIX + fingerprint;
+    }
+
+    public boolean isResolved() {
+        return "resolved".equalsIgnoreCase(status);
+    }
+
+    /** Maps monitoring severities onto incident severities, unknown values count as medium. */
+    public String incidentSeverity() {
+        String value = severity == null ? "" : severity.toLowerCase(Locale.ROOT);
+        Severity mapped = switch (value) {
+            case "critical", "page" -> Severity.CRITICAL;
+            case "high", "error" -> Severity.HIGH;
+            case "low", "info" -> Severity.LOW;
+            default -> Severity.MEDIUM;
+        };
+        return mapped.name().charAt(0) + mapped.name().substring(1).toLowerCase(Locale.ROOT);
+    }
+}
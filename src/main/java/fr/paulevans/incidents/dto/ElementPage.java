@@ -0,0 +1,14 @@
+package fr.paulevans.incidents.dto;
+
+import java.util.List;
+
+/**
+ * One page of an embedded incident array, oldest element first.
+ * {@code before} is the opaque cursor for the next older page, or null when this page reaches the oldest element.
+ */
+public record ElementPage<T>(List<T> items, String before) {
+
+    public static <T> ElementPage<T> empty() {
+        return new ElementPage<>(List.of(), null);
+    }
+}
@@ -1,8 +1,10 @@
 package fr.paulevans.incidents.dto;
 
 import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentSummary;
 import lombok.Builder;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 
@@ -17,23 +19,42 @@ public record IncidentSummaryDto(
         Instant createdAt,
         String resolutionNote,
         Instant resolvedAt,
-        List<String> tags
+        List<String> tags,
+        int noteCount,
+        int timelineCount,
+        Instant lastActivityAt,
+        long openSeconds // until resolution, or until now while unresolved
 ) {
 
     public static IncidentSummaryDto from(Incident incident) {
         if (incident == null) return null;
 
+        return from(IncidentSummary.of(incident));
+    }
+
+    public static IncidentSummaryDto from(IncidentSummary summary) {
+        if (summary == null) return null;
+
         return new IncidentSummaryDto(
-                incident.getId(),
-                incident.getTitle(),
-                incident.getSummary(),
-                incident.getSeverity(),
-                incident.getStatus(),
-                incident.getCreatedBy(),
-                incident.getCreatedAt(),
-                incident.getResolutionNote(),
-                incident.getResolvedAt(),
-                incident.getTags()
+                summary.getId(),
+                summary.getTitle(),
+                summary.getSummary(),
+                summary.getSeverity(),
+                summary.getStatus(),
+                summary.getCreatedBy(),
+                summary.getCreatedAt(),
+                summary.getResolutionNote(),
+                summary.getResolvedAt(),
+                summary.getTags(),
+                summary.getNoteCount(),
+                summary.getTimelineCount(),
+                summary.getLastActivityAt(),
+                openSeconds(summary.getCreatedAt(), summary.getResolvedAt())
         );
     }
+
+    private static long openSeconds(Instant createdAt, Instant resolvedAt) {
+        if (createdAt == null) return 0;
+        return Duration.between(createdAt, resolvedAt != null ? resolvedAt : Instant.now()).toSeconds();
+    }
 }
@@ -0,0 +1,7 @@
+package fr.paulevans.incidents.dto;
+
+import java.util.Map;
+
+/** Number of incidents carrying a tag, in total and per status and severity (values without incidents are left out). */
+public record TagFacet(String tag, int count, Map<String, Integer> byStatus, Map<String, Integer> bySeverity) {
+}
@@ -0,0 +1,18 @@
+package fr.paulevans.incidents.event;
+
+import fr.paulevans.incidents.model.IncidentEventType;
+
+/**
+ * Published on the application event bus after an incident was written.
+ *
+ * @param incidentId id of the changed incident
+ * @param type       kind of change
+ * @param remote     true when the change did not come from a write path of this instance: it was relayed from
+ *                   another instance or observed on the change stream. Such events are never relayed again.
+ */
+public record IncidentChangedEvent(String incidentId, IncidentEventType type, boolean remote) {
+
+    public static IncidentChangedEvent local(String incidentId, IncidentEventType type) {
+        return new IncidentChangedEvent(incidentId, type, false);
+    }
+}
@@ -0,0 +1,8 @@
+package fr.paulevans.incidents.event;
+
+/**
+ * Published when changes may have been missed, e.g. the change stream could not resume because its position
+ * fell off the oplog. Consumers should drop or rebuild everything they derived from incidents.
+ */
+public record IncidentChangesLostEvent(String reason) {
+}
@@ -0,0 +1,9 @@
+package fr.paulevans.incidents.exceptions;
+
+/** Thrown when the request holding an idempotency key did not complete within the wait timeout. */
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+    public IdempotencyKeyInProgressException(String key) {
+        super("A request with idempotency key " + key + " is still in progress");
+    }
+}
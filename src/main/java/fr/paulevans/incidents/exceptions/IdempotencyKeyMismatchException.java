@@ -0,0 +1,9 @@
+package fr.paulevans.incidents.exceptions;
+
+/** Thrown when an idempotency key is reused for a different request. */
+public class IdempotencyKeyMismatchException extends RuntimeException {
+
+    public IdempotencyKeyMismatchException(String key) {
+        super("Idempotency key " + key + " was used for a different request");
+    }
+}
@@ -4,18 +4,25 @@ package fr.paulevans.incidents.exceptions;
 import fr.paulevans.incidents.model.Incident;
 import jakarta.validation.ConstraintViolation;
 
+import java.util.List;
 import java.util.Set;
 
 public class IncidentValidationException extends RuntimeException {
 
-    private final Set<ConstraintViolation<Incident>> violations;
+    private final List<String> details; // "path: message", as reported to the client
 
     public IncidentValidationException(Set<ConstraintViolation<Incident>> violations) {
+        this(violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .toList());
+    }
+
+    public IncidentValidationException(List<String> details) {
         super("Incident validation failed");
-        this.violations = violations;
+        this.details = details;
     }
 
-    public Set<ConstraintViolation<Incident>> getViolations() {
-        return violations;
+    public List<String> getDetails() {
+        return details;
     }
 }
@@ -0,0 +1,13 @@
+package fr.paulevans.incidents.exceptions;
+
+/** Thrown when a message on the alerts topic cannot be turned into an incident change. */
+public class InvalidAlertException extends RuntimeException {
+
+    public InvalidAlertException(String message) {
+        super(message);
+    }
+
+    public InvalidAlertException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,13 @@
+package fr.paulevans.incidents.exceptions;
+
+/** Thrown when a JSON Patch or Merge Patch document is malformed or addresses an unsupported path. */
+public class InvalidPatchException extends RuntimeException {
+
+    public InvalidPatchException(String message) {
+        super(message);
+    }
+
+    public InvalidPatchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,19 @@
+package fr.paulevans.incidents.exceptions;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/** Thrown when a patch addresses nested elements (notes, timeline events) that do not exist. */
+public class PatchTargetNotFoundException extends NoSuchElementException {
+
+    private final List<String> missing; // one entry per element that could not be found
+
+    public PatchTargetNotFoundException(List<String> missing) {
+        super("Patch target not found: " + String.join(", ", missing));
+        this.missing = missing;
+    }
+
+    public List<String> getMissing() {
+        return missing;
+    }
+}
@@ -0,0 +1,9 @@
+package fr.paulevans.incidents.exceptions;
+
+/** Thrown when a JSON Patch {@code test} operation does not match the current incident. */
+public class PatchTestFailedException extends RuntimeException {
+
+    public PatchTestFailedException(String path) {
+        super("Test failed at " + path);
+    }
+}
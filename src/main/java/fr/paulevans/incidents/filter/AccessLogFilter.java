@@ -0,0 +1,57 @@
+package fr.paulevans.incidents.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Writes one access log line per request, with its outcome and the time spent in it and in the database. The
+ * fields are key-value pairs, so they come out as separate fields with structured logging. The
+ * {@value #LOGGER} logger can be turned off on its own.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1) // outermost, so throttled and shed requests are logged too
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    static final String LOGGER = "fr.paulevans.incidents.access";
+
+    private static final Logger log = LoggerFactory.getLogger(LOGGER);
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !log.isInfoEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        RequestTimings timings = RequestTimings.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestTimings.stop();
+            long durationMillis = (System.nanoTime() - start) / 1_000_000;
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            log.atInfo()
+                    .addKeyValue("method", request.getMethod())
+                    .addKeyValue("path", path)
+                    .addKeyValue("status", response.getStatus())
+                    .addKeyValue("duration_ms", durationMillis)
+                    .addKeyValue("db_ms", timings.dbMillis())
+                    .addKeyValue("db_calls", timings.dbCalls())
+                    .addKeyValue("client", request.getRemoteAddr())
+                    .log("{} {} {} {}ms (db {}ms in {} calls)", request.getMethod(), path, response.getStatus(),
+                            durationMillis, timings.dbMillis(), timings.dbCalls());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package fr.paulevans.incidents.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paulevans.incidents.config.AdmissionControlProperties;
+import fr.paulevans.incidents.service.AdmissionControl;
+import fr.paulevans.incidents.service.AdmissionControl.Decision;
+import fr.paulevans.incidents.service.AdmissionControl.Priority;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sheds incident API requests above the {@link AdmissionControl} limit before any work is done for them.
+ * Requests of a class over its share get a 429, requests finding the whole limit in use a 503, both with
+ * {@code Retry-After}.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 100) // before the idempotency filter, a shed request must not claim its key
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String INCIDENTS = "/incidents";
+
+    private final AdmissionControl admissionControl;
+    private final AdmissionControlProperties properties;
+    private final ObjectMapper objectMapper;
+
+    public AdmissionControlFilter(AdmissionControl admissionControl, AdmissionControlProperties properties,
+                                  ObjectMapper objectMapper) {
+        this.admissionControl = admissionControl;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.enabled() || !path(request).startsWith(INCIDENTS);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Priority priority = priority(request);
+        Decision decision = admissionControl.tryAcquire(priority);
+        if (decision != Decision.ADMITTED) {
+            HttpStatus status = decision == Decision.OVER_SHARE ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+            response.setStatus(status.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, properties.retryAfter().toSeconds())));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), Map.of("details", List.of("Server busy, retry later")));
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (isStreamed(request)) {
+                admissionControl.release(priority);
+            } else {
+                admissionControl.release(priority, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /** The full list is streamed, its duration grows with the number of incidents and the client's pace. */
+    static boolean isStreamed(HttpServletRequest request) {
+        String path = path(request);
+        return "GET".equals(request.getMethod()) && (path.equals(INCIDENTS) || path.equals(INCIDENTS + "/"));
+    }
+
+    /** Writes first, then single-incident reads, then the list and summary reads dashboards poll. */
+    static Priority priority(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return Priority.WRITE;
+        }
+        String path = path(request);
+        if (path.equals(INCIDENTS) || path.equals(INCIDENTS + "/") || path.startsWith(INCIDENTS + "/summaries")) {
+            return Priority.BULK_READ;
+        }
+        return Priority.READ;
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,200 @@
+package fr.paulevans.incidents.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paulevans.incidents.config.IdempotencyProperties;
+import fr.paulevans.incidents.exceptions.IdempotencyKeyInProgressException;
+import fr.paulevans.incidents.exceptions.IdempotencyKeyMismatchException;
+import fr.paulevans.incidents.service.IdempotencyService;
+import fr.paulevans.incidents.service.IdempotencyService.StoredResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Makes POST and PATCH requests carrying an {@code Idempotency-Key} header safe to retry: the first request
+ * with a key executes, every later or concurrent one with the same key gets its response replayed, marked with
+ * {@code Idempotent-Replayed: true}, without reaching the controller.
+ * <p>
+ * A key reused for a different request (method, path, query or body) is rejected with 422, a duplicate still
+ * waiting for the executing request after the wait timeout gets a 409.
+ * <p>
+ * Only successes and the client errors that a retry of the same request would get again (400, 404, 422) are
+ * stored. Any other response, such as a 409 or 429 telling the client to retry, or a 5xx, releases the key so
+ * that the retry executes.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Set<String> METHODS = Set.of("POST", "PATCH");
+    private static final Set<Integer> DETERMINISTIC_ERRORS = Set.of(400, 404, 422);
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyService idempotencyService;
+    private final IdempotencyProperties properties;
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyFilter(IdempotencyService idempotencyService, IdempotencyProperties properties,
+                             ObjectMapper objectMapper) {
+        this.idempotencyService = idempotencyService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.enabled() || !METHODS.contains(request.getMethod()) || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        HttpServletRequest replayable = new CachedBodyRequest(request, body);
+        StoredResponse replay;
+        try {
+            replay = idempotencyService.execute(key, fingerprint(request, body), () -> {
+                ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+                chain.doFilter(replayable, captured);
+                StoredResponse stored = new StoredResponse(captured.getStatus(), captured.getContentType(),
+                        captured.getContentAsByteArray());
+                captured.copyBodyToResponse();
+                return isReplayable(stored.status()) ? stored : null;
+            });
+        } catch (IdempotencyKeyMismatchException e) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+            return;
+        } catch (IdempotencyKeyInProgressException e) {
+            writeError(response, HttpStatus.CONFLICT, e.getMessage());
+            return;
+        }
+
+        if (replay != null) {
+            response.setStatus(replay.status());
+            if (replay.contentType() != null) {
+                response.setContentType(replay.contentType());
+            }
+            response.setHeader(REPLAYED_HEADER, "true");
+            if (replay.body() != null) {
+                response.getOutputStream().write(replay.body());
+            }
+        }
+    }
+
+    private static boolean isReplayable(int status) {
+        return status >= 200 && status < 300 || DETERMINISTIC_ERRORS.contains(status);
+    }
+
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return request.getMethod() + " " + request.getRequestURI()
+                    + (request.getQueryString() != null ? "?" + request.getQueryString() : "")
+                    + " " + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM provides SHA-256
+        }
+    }
+
+    /** Same body as {@link fr.paulevans.incidents.config.GlobalExceptionHandler} errors. */
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("details", List.of(message)));
+    }
+
+    /** The body was read to fingerprint it, downstream reads it again from memory. */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /** The whole body is already in memory: it is available at once, and then all read. */
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), getCharacterEncoding() != null
+                    ? Charset.forName(getCharacterEncoding())
+                    : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package fr.paulevans.incidents.filter;
+
+import fr.paulevans.incidents.config.QueryProperties;
+import fr.paulevans.incidents.repository.QueryDeadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Starts the {@link QueryDeadline} of each request: the configured request timeout, or less when the caller
+ * says it will not wait that long. Past it, the database work of the request stops instead of finishing for
+ * nobody. A load shared between requests runs under its first caller's deadline; the others fall back to their
+ * own when it times out, see {@code SingleFlight}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2) // the budget starts when the request arrives, before any queueing
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    private final QueryProperties properties;
+
+    public RequestDeadlineFilter(QueryProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryDeadline.start(budget(request.getHeader(properties.timeoutHeader())));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            QueryDeadline.clear();
+        }
+    }
+
+    private Duration budget(String header) {
+        if (header != null) {
+            try {
+                Duration callerTimeout = Duration.ofMillis(Long.parseLong(header.trim()));
+                if (callerTimeout.compareTo(properties.requestTimeout()) < 0) {
+                    return callerTimeout;
+                }
+            } catch (NumberFormatException e) {
+                // not a number of milliseconds, the configured timeout applies
+            }
+        }
+        return properties.requestTimeout();
+    }
+}
@@ -0,0 +1,45 @@
+package fr.paulevans.incidents.filter;
+
+/**
+ * Time spent by the current request thread in the hot paths it goes through, reported by the
+ * {@link AccessLogFilter}. Only the thread serving the request is accounted, work handed to other threads is not.
+ */
+public final class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private long dbNanos;
+    private int dbCalls;
+
+    private RequestTimings() {
+    }
+
+    static RequestTimings start() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Accounts a database command to the request served by the calling thread, if any.
+     */
+    public static void recordDatabase(long elapsedNanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.dbNanos += elapsedNanos;
+            timings.dbCalls++;
+        }
+    }
+
+    long dbMillis() {
+        return dbNanos / 1_000_000;
+    }
+
+    int dbCalls() {
+        return dbCalls;
+    }
+}
@@ -0,0 +1,44 @@
+package fr.paulevans.incidents.index;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks, one per hash bucket of incident ids, serializing the work done for one incident
+ * without a lock object per incident. Unrelated incidents sharing a stripe only wait for each other briefly.
+ */
+final class IncidentStripes {
+
+    private final ReentrantLock[] locks;
+
+    IncidentStripes(int stripes) {
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    void withLock(String incidentId, Runnable work) {
+        ReentrantLock lock = locks[Math.floorMod(incidentId.hashCode(), locks.length)];
+        lock.lock();
+        try {
+            work.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Runs {@code work} holding every stripe, taken in order, so no incident's work runs meanwhile. */
+    void withAllLocks(Runnable work) {
+        int locked = 0;
+        try {
+            for (; locked < locks.length; locked++) {
+                locks[locked].lock();
+            }
+            work.run();
+        } finally {
+            while (locked > 0) {
+                locks[--locked].unlock();
+            }
+        }
+    }
+}
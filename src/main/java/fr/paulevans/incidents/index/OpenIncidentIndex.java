@@ -0,0 +1,461 @@
+package fr.paulevans.incidents.index;
+
+import fr.paulevans.incidents.dto.AlertMessage;
+import fr.paulevans.incidents.dto.IncidentSummaryDto;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
+import fr.paulevans.incidents.event.IncidentChangesLostEvent;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.model.IncidentStatus;
+import fr.paulevans.incidents.model.IncidentSummary;
+import fr.paulevans.incidents.model.Severity;
+import fr.paulevans.incidents.repository.IncidentSummaryRepository;
+import fr.paulevans.incidents.service.TagDictionary;
+import fr.paulevans.incidents.validator.EnumLookup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process, column-oriented index of the OPEN and IN_PROGRESS incidents, answering the dashboard filters,
+ * sorts, counts and group-bys without a database round trip.
+ * <p>
+ * Every attribute is a primitive array indexed by row; status, severity and tags are dictionary-encoded and
+ * additionally kept as one row bitmap per value, so a filter is a few word-wise ANDs. Tag codes are the ids of
+ * the shared {@link TagDictionary}, claimed before the write lock is taken since a new tag goes to the database.
+ * Alert tags ({@code alert:<fingerprint>}) are left out of the dictionary: there is one per alerting incident,
+ * they would grow it without bound, and a filter on one is answered by scanning the rows. Rows of closed or
+ * deleted incidents are recycled. The columns are a handful
+ * of large arrays, which keeps the garbage collector out of the picture whatever the number of incidents; only
+ * the display strings are objects, interned per value.
+ * <p>
+ * Kept current from {@link IncidentChangedEvent}s by re-reading the (small) summary of the changed incident.
+ */
+@Slf4j
+@Component
+public class OpenIncidentIndex {
+
+    static final List<String> INDEXED_STATUSES = List.of(IncidentStatus.OPEN.name(), IncidentStatus.IN_PROGRESS.name());
+
+    private static final IncidentStatus[] STATUSES = IncidentStatus.values();
+    private static final Severity[] SEVERITIES = Severity.values();
+    private static final int REFRESH_STRIPES = 64;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final IncidentSummaryRepository summaryRepository;
+    private final TagDictionary tagDictionary;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IncidentStripes refreshes = new IncidentStripes(REFRESH_STRIPES);
+
+    private final Map<String, Integer> rowById = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final BitSet[] rowsByStatus = newBitSets(STATUSES.length);
+    private final BitSet[] rowsBySeverity = newBitSets(SEVERITIES.length);
+    private final List<BitSet> rowsByTag = new ArrayList<>(); // by tag id
+
+    // shared by all rows, pruned of the strings of closed incidents as it grows
+    private final Map<String, String> internedStrings = new HashMap<>();
+
+    // columns
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private byte[] status = new byte[INITIAL_CAPACITY];
+    private byte[] severity = new byte[INITIAL_CAPACITY]; // -1 when not a known severity
+    private String[] severityLabel = new String[INITIAL_CAPACITY];
+    private long[] createdAt = new long[INITIAL_CAPACITY];
+    private long[] lastActivityAt = new long[INITIAL_CAPACITY];
+    private int[] noteCount = new int[INITIAL_CAPACITY];
+    private int[] timelineCount = new int[INITIAL_CAPACITY];
+    private int[][] tags = new int[INITIAL_CAPACITY][]; // dictionary ids, alert tags excluded
+    private String[][] tagNames = new String[INITIAL_CAPACITY][]; // every tag, in the order of the incident
+    private String[] title = new String[INITIAL_CAPACITY];
+    private String[] summary = new String[INITIAL_CAPACITY];
+    private String[] createdBy = new String[INITIAL_CAPACITY];
+
+    public OpenIncidentIndex(IncidentSummaryRepository summaryRepository, TagDictionary tagDictionary) {
+        this.summaryRepository = summaryRepository;
+        this.tagDictionary = tagDictionary;
+    }
+
+    // ------------------ queries ------------------
+
+    public int count(OpenIncidentQuery query) {
+        lock.readLock().lock();
+        try {
+            return select(query).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Newest first according to {@code sort}, at most {@code limit} incidents. */
+    public List<IncidentSummaryDto> find(OpenIncidentQuery query, OpenIncidentQuery.Sort sort, int limit) {
+        lock.readLock().lock();
+        try {
+            long[] key = sort == OpenIncidentQuery.Sort.LAST_ACTIVITY ? lastActivityAt : createdAt;
+            int[] rows = topRows(select(query), key, limit);
+            List<IncidentSummaryDto> result = new ArrayList<>(rows.length);
+            Instant now = Instant.now();
+            for (int row : rows) {
+                result.add(toDto(row, now));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of matching incidents per value of {@code dimension}, values without incidents are left out. */
+    public Map<String, Integer> countBy(OpenIncidentQuery query, OpenIncidentQuery.Dimension dimension) {
+        lock.readLock().lock();
+        try {
+            BitSet rows = select(query);
+            int[] counts = new int[switch (dimension) {
+                case STATUS -> STATUSES.length;
+                case SEVERITY -> SEVERITIES.length;
+                case TAG -> rowsByTag.size();
+            }];
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                switch (dimension) {
+                    case STATUS -> counts[status[row]]++;
+                    case SEVERITY -> {
+                        if (severity[row] >= 0) counts[severity[row]]++;
+                    }
+                    case TAG -> {
+                        for (int tag : tags[row]) counts[tag]++;
+                    }
+                }
+            }
+
+            Map<String, Integer> result = new LinkedHashMap<>();
+            for (int value = 0; value < counts.length; value++) {
+                if (counts[value] > 0) {
+                    result.put(switch (dimension) {
+                        case STATUS -> STATUSES[value].name();
+                        case SEVERITY -> SEVERITIES[value].label();
+                        case TAG -> tagDictionary.name(value);
+                    }, counts[value]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet select(OpenIncidentQuery query) {
+        BitSet rows = (BitSet) live.clone();
+        if (query.status() != null) {
+            rows.and(bitmap(rowsByStatus, code(IncidentStatus.class, query.status(), false)));
+        }
+        if (query.severity() != null) {
+            rows.and(bitmap(rowsBySeverity, code(Severity.class, query.severity(), true)));
+        }
+        if (query.tag() != null && isAlertTag(query.tag())) {
+            rows.and(rowsTagged(query.tag()));
+        } else if (query.tag() != null) {
+            Integer tag = tagDictionary.find(query.tag());
+            rows.and(tag == null || tag >= rowsByTag.size() ? new BitSet() : rowsByTag.get(tag));
+        }
+        return rows;
+    }
+
+    private BitSet rowsTagged(String tag) {
+        BitSet rows = new BitSet();
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            if (Arrays.asList(tagNames[row]).contains(tag)) rows.set(row);
+        }
+        return rows;
+    }
+
+    /** Top {@code limit} rows by descending key, through a bounded min-heap instead of sorting every match. */
+    private static int[] topRows(BitSet rows, long[] key, int limit) {
+        int[] heap = new int[Math.min(limit, rows.cardinality())];
+        int size = 0;
+        for (int row = rows.nextSetBit(0); row >= 0 && heap.length > 0; row = rows.nextSetBit(row + 1)) {
+            if (size < heap.length) {
+                heap[size] = row;
+                siftUp(heap, size++, key);
+            } else if (key[row] > key[heap[0]]) {
+                heap[0] = row;
+                siftDown(heap, size, key);
+            }
+        }
+        // draining the min-heap yields ascending keys, fill from the end
+        int[] sorted = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, size, key);
+        }
+        return sorted;
+    }
+
+    private static void siftUp(int[] heap, int i, long[] key) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (key[heap[parent]] <= key[heap[i]]) return;
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, long[] key) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && key[heap[left]] < key[heap[smallest]]) smallest = left;
+            if (right < size && key[heap[right]] < key[heap[smallest]]) smallest = right;
+            if (smallest == i) return;
+            swap(heap, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+
+    private IncidentSummaryDto toDto(int row, Instant now) {
+        List<String> tagValues = List.of(tagNames[row]);
+        Instant created = Instant.ofEpochMilli(createdAt[row]);
+        return new IncidentSummaryDto(ids[row], title[row], summary[row], severityLabel[row], STATUSES[status[row]].name(),
+                createdBy[row], created, null, null, tagValues, noteCount[row], timelineCount[row],
+                Instant.ofEpochMilli(lastActivityAt[row]), Duration.between(created, now).toSeconds());
+    }
+
+    // ------------------ maintenance ------------------
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE) // the summaries are backfilled before the context is ready
+    public void load() {
+        // under every stripe: a change read before the load and applied after it would be overwritten by an
+        // older summary, or the reverse
+        refreshes.withAllLocks(() -> {
+            tagDictionary.load();
+            List<IncidentSummary> open = summaryRepository.findByStatusIn(INDEXED_STATUSES);
+            open.forEach(this::internTags);
+            lock.writeLock().lock();
+            try {
+                clear();
+                open.forEach(this::write);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Indexed {} open incidents", open.size());
+        });
+    }
+
+    /**
+     * Runs on the thread of the write, after it: a failure is logged rather than thrown, it would otherwise fail
+     * a write that succeeded. The row stays stale until the next change of the incident or the next load.
+     */
+    @EventListener
+    public void onIncidentChanged(IncidentChangedEvent event) {
+        try {
+            refresh(event);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh incident {} in the open incident index", event.incidentId(), e);
+        }
+    }
+
+    private void refresh(IncidentChangedEvent event) {
+        // read and applied under the stripe of the incident: two events of one incident handled on different
+        // threads could otherwise apply the summary read first after the one read last
+        refreshes.withLock(event.incidentId(), () -> {
+            Optional<IncidentSummary> summary = event.type() == IncidentEventType.DELETED
+                    ? Optional.empty()
+                    : summaryRepository.findById(event.incidentId());
+            summary.ifPresent(this::internTags);
+
+            lock.writeLock().lock();
+            try {
+                summary.ifPresentOrElse(this::write, () -> remove(event.incidentId()));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @EventListener
+    public void onIncidentChangesLost(IncidentChangesLostEvent event) {
+        load();
+    }
+
+    /** Inserts or overwrites the row of the incident, or drops it once the incident is no longer open. */
+    void write(IncidentSummary incident) {
+        if (!INDEXED_STATUSES.contains(incident.getStatus())) {
+            remove(incident.getId());
+            return;
+        }
+
+        Integer existing = rowById.get(incident.getId());
+        int row;
+        if (existing != null) {
+            row = existing;
+            unlink(row);
+        } else {
+            row = live.nextClearBit(0);
+            ensureCapacity(row + 1);
+            rowById.put(incident.getId(), row);
+        }
+
+        ids[row] = incident.getId();
+        status[row] = (byte) code(IncidentStatus.class, incident.getStatus(), false);
+        severity[row] = (byte) code(Severity.class, incident.getSeverity(), true);
+        severityLabel[row] = severity[row] >= 0 ? SEVERITIES[severity[row]].label() : intern(incident.getSeverity());
+        createdAt[row] = incident.getCreatedAt() == null ? 0 : incident.getCreatedAt().toEpochMilli();
+        lastActivityAt[row] = incident.getLastActivityAt() == null ? createdAt[row] : incident.getLastActivityAt().toEpochMilli();
+        noteCount[row] = incident.getNoteCount();
+        timelineCount[row] = incident.getTimelineCount();
+        title[row] = incident.getTitle();
+        summary[row] = incident.getSummary();
+        createdBy[row] = intern(incident.getCreatedBy());
+        tagNames[row] = incident.getTags() == null ? new String[0] : incident.getTags().toArray(String[]::new);
+        tags[row] = encodeTags(tagNames[row]);
+
+        live.set(row);
+        rowsByStatus[status[row]].set(row);
+        if (severity[row] >= 0) {
+            rowsBySeverity[severity[row]].set(row);
+        }
+        for (int tag : tags[row]) {
+            rowsByTag.get(tag).set(row);
+        }
+    }
+
+    private void remove(String incidentId) {
+        Integer row = rowById.remove(incidentId);
+        if (row != null) {
+            unlink(row);
+            ids[row] = null;
+            title[row] = null;
+            summary[row] = null;
+            tagNames[row] = null;
+        }
+    }
+
+    /** Takes the row out of every bitmap, its column values are overwritten on reuse. */
+    private void unlink(int row) {
+        live.clear(row);
+        rowsByStatus[status[row]].clear(row);
+        if (severity[row] >= 0) {
+            rowsBySeverity[severity[row]].clear(row);
+        }
+        for (int tag : tags[row]) {
+            rowsByTag.get(tag).clear(row);
+        }
+    }
+
+    private void clear() {
+        rowById.clear();
+        internedStrings.clear();
+        live.clear();
+        Arrays.stream(rowsByStatus).forEach(BitSet::clear);
+        Arrays.stream(rowsBySeverity).forEach(BitSet::clear);
+        rowsByTag.forEach(BitSet::clear);
+        Arrays.fill(ids, null);
+        Arrays.fill(title, null);
+        Arrays.fill(summary, null);
+        Arrays.fill(tagNames, null);
+    }
+
+    /** Assigns dictionary ids to the new tags of the incident, called without holding the lock. */
+    private void internTags(IncidentSummary incident) {
+        if (incident.getTags() != null && INDEXED_STATUSES.contains(incident.getStatus())) {
+            incident.getTags().stream().filter(tag -> !isAlertTag(tag)).forEach(tagDictionary::intern);
+        }
+    }
+
+    /**
+     * Ids of the tags interned beforehand by {@link #internTags}, alert tags are skipped. The values are
+     * replaced with the dictionary's strings, so that rows share one string per tag.
+     */
+    private int[] encodeTags(String[] values) {
+        int[] encoded = new int[values.length];
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            Integer id = isAlertTag(values[i]) ? null : tagDictionary.find(values[i]);
+            if (id == null) continue;
+            values[i] = tagDictionary.name(id);
+            encoded[size++] = id;
+            while (rowsByTag.size() <= id) {
+                rowsByTag.add(new BitSet());
+            }
+        }
+        return size == encoded.length ? encoded : Arrays.copyOf(encoded, size);
+    }
+
+    private static boolean isAlertTag(String tag) {
+        return tag.startsWith(AlertMessage.TAG_PREFIX);
+    }
+
+    private String intern(String value) {
+        if (value == null) return null;
+        String interned = internedStrings.putIfAbsent(value, value);
+        if (interned != null) return interned;
+        if (internedStrings.size() > Math.max(INITIAL_CAPACITY, 2 * rowById.size())) {
+            pruneInternedStrings(value);
+        }
+        return value;
+    }
+
+    /**
+     * Keeps only the strings of the live rows (and {@code value}, being written), dropping those of the rows
+     * closed since. Run once the map is twice the number of rows, so its cost is spread over the interning.
+     */
+    private void pruneInternedStrings(String value) {
+        internedStrings.clear();
+        internedStrings.put(value, value);
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            if (createdBy[row] != null) internedStrings.putIfAbsent(createdBy[row], createdBy[row]);
+            if (severity[row] < 0 && severityLabel[row] != null) {
+                internedStrings.putIfAbsent(severityLabel[row], severityLabel[row]);
+            }
+        }
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= ids.length) return;
+        int capacity = Math.max(rows, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        status = Arrays.copyOf(status, capacity);
+        severity = Arrays.copyOf(severity, capacity);
+        severityLabel = Arrays.copyOf(severityLabel, capacity);
+        createdAt = Arrays.copyOf(createdAt, capacity);
+        lastActivityAt = Arrays.copyOf(lastActivityAt, capacity);
+        noteCount = Arrays.copyOf(noteCount, capacity);
+        timelineCount = Arrays.copyOf(timelineCount, capacity);
+        tags = Arrays.copyOf(tags, capacity);
+        tagNames = Arrays.copyOf(tagNames, capacity);
+        title = Arrays.copyOf(title, capacity);
+        summary = Arrays.copyOf(summary, capacity);
+        createdBy = Arrays.copyOf(createdBy, capacity);
+    }
+
+    /** -1 when the value is not a constant of the enum */
+    private static int code(Class<? extends Enum<?>> type, String value, boolean ignoreCase) {
+        return EnumLookup.of(type).find(value, ignoreCase).map(Enum::ordinal).orElse(-1);
+    }
+
+    private static BitSet bitmap(BitSet[] bitmaps, int code) {
+        return code < 0 ? new BitSet() : bitmaps[code];
+    }
+
+    private static BitSet[] newBitSets(int count) {
+        BitSet[] bitSets = new BitSet[count];
+        Arrays.setAll(bitSets, i -> new BitSet());
+        return bitSets;
+    }
+}
@@ -0,0 +1,24 @@
+package fr.paulevans.incidents.index;
+
+/**
+ * Filter on the open incident index; null criteria match everything.
+ *
+ * @param status   exact status name, e.g. IN_PROGRESS
+ * @param severity severity, case-insensitive
+ * @param tag      exact tag
+ */
+public record OpenIncidentQuery(String status, String severity, String tag) {
+
+    public static final OpenIncidentQuery ALL = new OpenIncidentQuery(null, null, null);
+
+    public enum Sort {
+        CREATED_AT,
+        LAST_ACTIVITY
+    }
+
+    public enum Dimension {
+        STATUS,
+        SEVERITY,
+        TAG
+    }
+}
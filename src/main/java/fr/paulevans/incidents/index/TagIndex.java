@@ -0,0 +1,228 @@
+package fr.paulevans.incidents.index;
+
+import fr.paulevans.incidents.dto.AlertMessage;
+import fr.paulevans.incidents.dto.TagFacet;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
+import fr.paulevans.incidents.event.IncidentChangesLostEvent;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.model.IncidentStatus;
+import fr.paulevans.incidents.model.IncidentSummary;
+import fr.paulevans.incidents.model.Severity;
+import fr.paulevans.incidents.repository.IncidentSummaryRepository;
+import fr.paulevans.incidents.validator.EnumLookup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-process index of the tags of every incident, serving tag autocomplete and tag facets.
+ * <p>
+ * Tags are kept in a sorted map, so the tags starting with a prefix are one contiguous range of it, each with
+ * its incident counts per status and severity. For each incident only the tags, status and severity it was
+ * counted under are kept, which is what it takes to uncount it when it changes. Alert tags
+ * ({@code alert:<fingerprint>}) are left out: there is one per alerting incident, they are no facet and would
+ * grow the map without bound.
+ * <p>
+ * Kept current from {@link IncidentChangedEvent}s by re-reading the summary of the changed incident.
+ */
+@Slf4j
+@Component
+public class TagIndex {
+
+    private static final IncidentStatus[] STATUSES = IncidentStatus.values();
+    private static final Severity[] SEVERITIES = Severity.values();
+    private static final int REFRESH_STRIPES = 64;
+
+    private final IncidentSummaryRepository summaryRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IncidentStripes refreshes = new IncidentStripes(REFRESH_STRIPES);
+
+    // replaced as a whole by load()
+    private NavigableMap<String, Counts> tags = new TreeMap<>();
+    private Map<String, Entry> entries = new HashMap<>();
+
+    public TagIndex(IncidentSummaryRepository summaryRepository) {
+        this.summaryRepository = summaryRepository;
+    }
+
+    // ------------------ queries ------------------
+
+    /** The {@code limit} most used tags starting with {@code prefix}, most used first, then alphabetically. */
+    public List<TagFacet> complete(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            SortedMap<String, Counts> range = prefix == null || prefix.isEmpty()
+                    ? tags
+                    : tags.subMap(prefix, prefix + Character.MAX_VALUE);
+            // bounded min-heap on (count, reversed name), the root is the first candidate to drop
+            Comparator<Map.Entry<String, Counts>> order = Comparator
+                    .<Map.Entry<String, Counts>>comparingInt(e -> e.getValue().total)
+                    .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+            PriorityQueue<Map.Entry<String, Counts>> top = new PriorityQueue<>(order);
+            for (Map.Entry<String, Counts> tag : range.entrySet()) {
+                if (top.size() < limit) {
+                    top.add(tag);
+                } else if (limit > 0 && order.compare(tag, top.peek()) > 0) {
+                    top.poll();
+                    top.add(tag);
+                }
+            }
+            List<TagFacet> result = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                Map.Entry<String, Counts> tag = top.poll();
+                result.add(tag.getValue().toFacet(tag.getKey()));
+            }
+            return result.reversed();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return the counts of the tag, or null when no incident carries it */
+    public TagFacet facet(String tag) {
+        lock.readLock().lock();
+        try {
+            Counts counts = tags.get(tag);
+            return counts == null ? null : counts.toFacet(tag);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ------------------ maintenance ------------------
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE) // the summaries are backfilled before the context is ready
+    public void load() {
+        // under every stripe: a change read before the load and applied after it would be overwritten by an
+        // older summary, or the reverse
+        refreshes.withAllLocks(() -> {
+            // built without the lock, queries keep being served from the current maps during the read
+            NavigableMap<String, Counts> loadedTags = new TreeMap<>();
+            Map<String, Entry> loadedEntries = new HashMap<>();
+            try (Stream<IncidentSummary> summaries = summaryRepository.streamFacetsBy()) {
+                summaries.forEach(summary -> write(summary, loadedTags, loadedEntries));
+            }
+
+            lock.writeLock().lock();
+            try {
+                tags = loadedTags;
+                entries = loadedEntries;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Indexed {} tags of {} incidents", loadedTags.size(), loadedEntries.size());
+        });
+    }
+
+    /**
+     * Runs on the thread of the write, after it: a failure is logged rather than thrown, it would otherwise fail
+     * a write that succeeded. The incident's counts stay stale until its next change or the next load.
+     */
+    @EventListener
+    public void onIncidentChanged(IncidentChangedEvent event) {
+        try {
+            refresh(event);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh incident {} in the tag index", event.incidentId(), e);
+        }
+    }
+
+    private void refresh(IncidentChangedEvent event) {
+        // read and applied under the stripe of the incident: two events of one incident handled on different
+        // threads could otherwise apply the summary read first after the one read last
+        refreshes.withLock(event.incidentId(), () -> {
+            Optional<IncidentSummary> summary = event.type() == IncidentEventType.DELETED
+                    ? Optional.empty()
+                    : summaryRepository.findById(event.incidentId());
+
+            lock.writeLock().lock();
+            try {
+                summary.ifPresentOrElse(this::write, () -> count(entries.remove(event.incidentId()), -1, tags));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @EventListener
+    public void onIncidentChangesLost(IncidentChangesLostEvent event) {
+        load();
+    }
+
+    void write(IncidentSummary incident) {
+        write(incident, tags, entries);
+    }
+
+    private static void write(IncidentSummary incident, NavigableMap<String, Counts> tags, Map<String, Entry> entries) {
+        List<String> incidentTags = incident.getTags() == null ? List.of() : incident.getTags();
+        Entry entry = new Entry(
+                incidentTags.stream()
+                        .filter(tag -> !tag.startsWith(AlertMessage.TAG_PREFIX))
+                        .distinct()
+                        .map(tag -> canonical(tag, tags))
+                        .toArray(String[]::new),
+                code(IncidentStatus.class, incident.getStatus(), false),
+                code(Severity.class, incident.getSeverity(), true));
+        count(entries.put(incident.getId(), entry), -1, tags);
+        count(entry, 1, tags);
+    }
+
+    /** Adds {@code delta} to the counts of every tag of the entry, dropping tags no longer used. */
+    private static void count(Entry entry, int delta, NavigableMap<String, Counts> tags) {
+        if (entry == null) return;
+        for (String tag : entry.tags) {
+            Counts counts = tags.computeIfAbsent(tag, t -> new Counts());
+            counts.add(entry.status, entry.severity, delta);
+            if (counts.total == 0) {
+                tags.remove(tag);
+            }
+        }
+    }
+
+    /** The map's own key when the tag is known, so that every entry shares one string per tag. */
+    private static String canonical(String tag, NavigableMap<String, Counts> tags) {
+        String known = tags.ceilingKey(tag);
+        return tag.equals(known) ? known : tag;
+    }
+
+    /** -1 when the value is not a constant of the enum */
+    private static int code(Class<? extends Enum<?>> type, String value, boolean ignoreCase) {
+        return EnumLookup.of(type).find(value, ignoreCase).map(Enum::ordinal).orElse(-1);
+    }
+
+    private record Entry(String[] tags, int status, int severity) {
+    }
+
+    private static final class Counts {
+        private int total;
+        private final int[] byStatus = new int[STATUSES.length];
+        private final int[] bySeverity = new int[SEVERITIES.length];
+
+        void add(int status, int severity, int delta) {
+            total += delta;
+            if (status >= 0) byStatus[status] += delta;
+            if (severity >= 0) bySeverity[severity] += delta;
+        }
+
+        TagFacet toFacet(String tag) {
+            Map<String, Integer> statuses = new LinkedHashMap<>();
+            for (int i = 0; i < byStatus.length; i++) {
+                if (byStatus[i] > 0) statuses.put(STATUSES[i].name(), byStatus[i]);
+            }
+            Map<String, Integer> severities = new LinkedHashMap<>();
+            for (int i = 0; i < bySeverity.length; i++) {
+                if (bySeverity[i] > 0) severities.put(SEVERITIES[i].label(), bySeverity[i]);
+            }
+            return new TagFacet(tag, total, statuses, severities);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package fr.paulevans.incidents.listener;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paulevans.incidents.config.AlertIngestionConfig;
+import fr.paulevans.incidents.dto.AlertDelivery;
+import fr.paulevans.incidents.dto.AlertMessage;
+import fr.paulevans.incidents.exceptions.InvalidAlertException;
+import fr.paulevans.incidents.service.AlertIngestionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.record.RecordBatch;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consumes alerts in batches. Offsets are committed by the container once this method returns, so a batch
+ * is only acknowledged after its bulk write went through. A slow database slows down polling rather than
+ * piling up work in memory.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "incidents.alerts", name = "enabled", havingValue = "true")
+@RegisterReflectionForBinding(AlertMessage.class)
+public class AlertBatchListener {
+
+    private final AlertIngestionService alertIngestionService;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(
+            id = "incident-alerts",
+            containerFactory = AlertIngestionConfig.CONTAINER_FACTORY,
+            topics = "${incidents.alerts.topic}",
+            concurrency = "${incidents.alerts.concurrency}",
+            batch = "true")
+    public void onAlerts(List<ConsumerRecord<String, String>> records) {
+        List<AlertDelivery> alerts = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                alerts.add(delivery(records.get(i)));
+            } catch (InvalidAlertException e) {
+                // write the valid prefix so its offsets can be committed, then hand the bad record to the error handler
+                write(alerts);
+                throw new BatchListenerFailedException(e.getMessage(), e, i);
+            }
+        }
+        write(alerts);
+    }
+
+    /**
+     * A failed bulk write propagates as is: the error handler then retries the whole batch, and
+     * dead-letters it once the retries are exhausted. Delivery is at least once, and redelivered alerts
+     * are written once.
+     */
+    private void write(List<AlertDelivery> alerts) {
+        int written = alertIngestionService.ingest(alerts);
+        log.debug("Ingested {} of {} alerts", written, alerts.size());
+    }
+
+    private AlertDelivery delivery(ConsumerRecord<String, String> record) {
+        AlertMessage alert = parse(record);
+        boolean timestamped = record.timestamp() != RecordBatch.NO_TIMESTAMP;
+        Instant receivedAt = timestamped ? Instant.ofEpochMilli(record.timestamp()) : Instant.now();
+        // the offset alone repeats once the topic is recreated or its offsets reset, the fingerprint and the
+        // record timestamp (the same on every redelivery) tell such records apart
+        String id = record.topic() + "-" + record.partition() + "@" + record.offset() + "/" + alert.fingerprint()
+                + (timestamped ? "/" + record.timestamp() : "");
+        return new AlertDelivery(id, receivedAt, alert);
+    }
+
+    private AlertMessage parse(ConsumerRecord<String, String> record) {
+        if (record.value() == null) {
+            throw new InvalidAlertException("Empty alert at offset " + record.offset());
+        }
+        AlertMessage alert;
+        try {
+            alert = objectMapper.readValue(record.value(), AlertMessage.class);
+        } catch (JsonProcessingException e) {
+            throw new InvalidAlertException("Malformed alert at offset " + record.offset(), e);
+        }
+        if (isBlank(alert.fingerprint()) || isBlank(alert.title())) {
+            throw new InvalidAlertException("Alert at offset " + record.offset() + " needs a fingerprint and a title");
+        }
+        return alert;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
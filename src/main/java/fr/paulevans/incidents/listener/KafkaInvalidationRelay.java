@@ -0,0 +1,67 @@
+package fr.paulevans.incidents.listener;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paulevans.incidents.config.IncidentCacheProperties;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
+import fr.paulevans.incidents.model.IncidentEventType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Broadcasts incident changes between instances over Kafka. Every instance consumes the topic in its own
+ * consumer group, so each one sees every change; changes made locally are published, changes received from
+ * other instances are re-published on the local event bus. A lost message only delays the eviction until the
+ * cache ttl runs out.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "incidents.cache", name = "bus", havingValue = "kafka")
+@RegisterReflectionForBinding(KafkaInvalidationRelay.InvalidationMessage.class)
+public class KafkaInvalidationRelay {
+
+    record InvalidationMessage(String nodeId, String incidentId, IncidentEventType type) {
+    }
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ApplicationEventPublisher events;
+    private final ObjectMapper objectMapper;
+    private final IncidentCacheProperties properties;
+
+    @EventListener
+    public void onIncidentChanged(IncidentChangedEvent event) throws JsonProcessingException {
+        if (event.remote()) {
+            return;
+        }
+        String message = objectMapper.writeValueAsString(
+                new InvalidationMessage(properties.nodeId(), event.incidentId(), event.type()));
+        kafkaTemplate.send(properties.topic(), event.incidentId(), message);
+    }
+
+    @KafkaListener(
+            topics = "${incidents.cache.topic}",
+            groupId = "incidents-cache-${incidents.cache.node-id}",
+            // a new instance starts with an empty cache, older changes are irrelevant to it
+            properties = "auto.offset.reset=latest")
+    public void onRemoteChange(String payload) {
+        InvalidationMessage message;
+        try {
+            message = objectMapper.readValue(payload, InvalidationMessage.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed invalidation message: {}", e.getOriginalMessage());
+            return;
+        }
+        if (properties.nodeId().equals(message.nodeId())) {
+            return;
+        }
+        events.publishEvent(new IncidentChangedEvent(message.incidentId(), message.type(), true));
+    }
+}
@@ -0,0 +1,24 @@
+package fr.paulevans.incidents.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/** Resume token of a change stream subscriber, stored after every dispatched batch. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "change_stream_checkpoints")
+public class ChangeStreamCheckpoint {
+
+    @Id
+    private String id; // subscriber id
+
+    private String resumeToken; // extended JSON of the driver's resume token
+
+    private Instant updatedAt;
+}
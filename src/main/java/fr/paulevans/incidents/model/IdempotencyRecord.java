@@ -0,0 +1,33 @@
+package fr.paulevans.incidents.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/** Response stored under an idempotency key, or the lock of the request producing it while not completed. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    private String key;
+
+    private String fingerprint; // method, path and body hash of the request that claimed the key
+
+    private boolean completed;
+    private Instant lockedUntil; // while not completed
+
+    private int status;
+    private String contentType;
+    private byte[] body;
+
+    @Indexed(name = "expires", expireAfter = "0s")
+    private Instant expiresAt;
+}
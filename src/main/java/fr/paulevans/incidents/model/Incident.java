@@ -1,6 +1,9 @@
 package fr.paulevans.incidents.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import fr.paulevans.incidents.annotation.ValidEnum;
+import fr.paulevans.incidents.converter.SeverityCodeConverter;
+import fr.paulevans.incidents.converter.StatusCodeConverter;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -8,10 +11,15 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.convert.ValueConverter;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 @Data
 @NoArgsConstructor
@@ -29,10 +37,13 @@ public class Incident {
     private String summary; // what the incident is about
 
     @NotEmpty
+    @ValidEnum(enumClass = Severity.class, ignoreCase = true)
+    @ValueConverter(SeverityCodeConverter.class)
     private String severity;
 
     @NotNull
     @ValidEnum(enumClass = IncidentStatus.class)
+    @ValueConverter(StatusCodeConverter.class)
     private String status;
 
     @NotEmpty
@@ -46,7 +57,36 @@ public class Incident {
     private Instant resolvedAt; // when it was resolved
     private List<@Valid TimelineEvent> timeline; // chronological log of events
     private List<@Valid Note> notes;
+    @Indexed(name = "tags") // multikey, one entry per tag
     private List<String> tags;
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY) // assigned by the store, never by clients
+    private Long version; // incremented by every write, saving a copy read before another write fails
+
+    /** A new incident, its version is assigned when it is inserted. */
+    public Incident(String id, String title, String summary, String severity, String status, String createdBy,
+                    Instant createdAt, Instant updatedAt, String resolutionNote, Instant resolvedAt,
+                    List<TimelineEvent> timeline, List<Note> notes, List<String> tags) {
+        this(id, title, summary, severity, status, createdBy, createdAt, updatedAt, resolutionNote, resolvedAt,
+                timeline, notes, tags, null);
+    }
+
+    /** Deep copy with mutable lists, handed out by caches so that patching a copy never leaks into them. */
+    public Incident copy() {
+        return new Incident(id, title, summary, severity, status, createdBy, createdAt, updatedAt,
+                resolutionNote, resolvedAt,
+                timeline == null ? null : copyOf(timeline, e -> new TimelineEvent(e.id, e.timestamp, e.description, e.actor)),
+                notes == null ? null : copyOf(notes, n -> new Note(n.id, n.author, n.note, n.timestamp)),
+                tags == null ? null : new ArrayList<>(tags), version);
+    }
+
+    private static <T> List<T> copyOf(List<T> elements, UnaryOperator<T> copier) {
+        List<T> copy = new ArrayList<>(elements.size());
+        for (T element : elements) {
+            copy.add(copier.apply(element));
+        }
+        return copy;
+    }
 
     @Data
     @NoArgsConstructor
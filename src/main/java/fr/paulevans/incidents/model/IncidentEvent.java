@@ -0,0 +1,29 @@
+package fr.paulevans.incidents.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+/** One mutation of an incident, appended to the event log when event sourcing is enabled. */
+@Document(collection = "incident_events")
+@CompoundIndex(name = "incident_sequence", def = "{ 'incidentId': 1, 'sequence': 1 }", unique = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IncidentEvent {
+    @Id
+    private String id;
+    private String incidentId;
+    private long sequence;          // 1-based, gapless per incident
+    private Instant timestamp;
+    private IncidentEventType type;
+    private Incident state;         // full state, CREATED only
+    private Map<String, Object> patch; // JSON patch body as received, PATCHED only
+    private String jsonPatch;       // RFC 6902 document, PATCHED through typed operations only
+}
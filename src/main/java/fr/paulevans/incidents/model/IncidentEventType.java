@@ -0,0 +1,7 @@
+package fr.paulevans.incidents.model;
+
+public enum IncidentEventType {
+    CREATED,
+    PATCHED,
+    DELETED
+}
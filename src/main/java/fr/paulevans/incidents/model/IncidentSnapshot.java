@@ -0,0 +1,25 @@
+package fr.paulevans.incidents.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/** State of an incident right after the event with the same sequence was applied. */
+@Document(collection = "incident_snapshots")
+@CompoundIndex(name = "incident_sequence", def = "{ 'incidentId': 1, 'sequence': -1 }")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IncidentSnapshot {
+    @Id
+    private String id;
+    private String incidentId;
+    private long sequence;
+    private Instant timestamp;
+    private Incident state;
+}
@@ -1,8 +1,26 @@
 package fr.paulevans.incidents.model;
 
+/** Codes are what incidents store, they must never be reassigned. */
 public enum IncidentStatus {
-    OPEN,
-    IN_PROGRESS,
-    RESOLVED,
-    CLOSED
+    OPEN(0),
+    IN_PROGRESS(1),
+    RESOLVED(2),
+    CLOSED(3);
+
+    private static final IncidentStatus[] BY_CODE = values();
+
+    private final int code;
+
+    IncidentStatus(int code) {
+        this.code = code;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    /** @return the status with this code, or null when there is none */
+    public static IncidentStatus fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length && BY_CODE[code].code == code ? BY_CODE[code] : null;
+    }
 }
@@ -0,0 +1,87 @@
+package fr.paulevans.incidents.model;
+
+import fr.paulevans.incidents.converter.SeverityCodeConverter;
+import fr.paulevans.incidents.converter.StatusCodeConverter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.convert.ValueConverter;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.IndexDirection;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Compact copy of the list-view fields of an incident, kept next to it so that listing incidents never reads
+ * the full documents and their embedded arrays.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "incident_summaries")
+@CompoundIndex(name = "status_created", def = "{'status': 1, 'createdAt': -1}")
+@CompoundIndex(name = "tags_created", def = "{'tags': 1, 'createdAt': -1}") // multikey
+public class IncidentSummary {
+
+    @Id
+    private String id; // same id as the incident
+
+    private String title;
+    private String summary;
+    @ValueConverter(SeverityCodeConverter.class)
+    private String severity;
+    @ValueConverter(StatusCodeConverter.class)
+    private String status;
+    private String createdBy;
+
+    @Indexed(name = "created_desc", direction = IndexDirection.DESCENDING)
+    private Instant createdAt;
+
+    private String resolutionNote;
+    private Instant resolvedAt;
+    private List<String> tags;
+
+    private int noteCount;
+    private int timelineCount;
+    private Instant lastActivityAt; // latest of creation, update, timeline event and note
+
+    public static IncidentSummary of(Incident incident) {
+        Instant lastActivity = latest(incident.getCreatedAt(), incident.getUpdatedAt());
+        if (incident.getTimeline() != null) {
+            for (Incident.TimelineEvent event : incident.getTimeline()) {
+                lastActivity = latest(lastActivity, event.getTimestamp());
+            }
+        }
+        if (incident.getNotes() != null) {
+            for (Incident.Note note : incident.getNotes()) {
+                lastActivity = latest(lastActivity, note.getTimestamp());
+            }
+        }
+
+        return new IncidentSummary(
+                incident.getId(),
+                incident.getTitle(),
+                incident.getSummary(),
+                incident.getSeverity(),
+                incident.getStatus(),
+                incident.getCreatedBy(),
+                incident.getCreatedAt(),
+                incident.getResolutionNote(),
+                incident.getResolvedAt(),
+                incident.getTags(),
+                incident.getNotes() == null ? 0 : incident.getNotes().size(),
+                incident.getTimeline() == null ? 0 : incident.getTimeline().size(),
+                lastActivity
+        );
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -5,21 +5,15 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
 import java.util.Map;
 
-@Document(collection = "incident_updates")
+/** A single change to an incident, stored inside an {@link IncidentUpdateBucket}. */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class IncidentUpdate {
-    @Id
-    private String id;
-    @NotNull()
-    private String incidentId;      // reference to the parent Incident
     @NotNull()
     private Instant timestamp;
     @NotEmpty()
@@ -0,0 +1,39 @@
+package fr.paulevans.incidents.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Groups the updates of one incident over a time window (see {@code incidents.updates.bucket-span})
+ * into a single document, capped at {@code incidents.updates.bucket-max-entries} entries. A window with more
+ * updates rolls over into further buckets, numbered by {@code sequence}; the unique index makes concurrent
+ * writers opening the next bucket of a window share it.
+ */
+@Document(collection = "incident_update_buckets")
+@CompoundIndex(name = "incident_bucket", def = "{ 'incidentId': 1, 'bucketStart': 1 }")
+// partial: buckets written before the sequence was introduced have none, and may share a window
+@CompoundIndex(name = "incident_bucket_sequence", def = "{ 'incidentId': 1, 'bucketStart': 1, 'sequence': 1 }",
+        unique = true, partialFilter = "{ 'sequence': { $exists: true } }")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IncidentUpdateBucket {
+    @Id
+    private String id;
+    private String incidentId;      // reference to the parent Incident
+    private Instant bucketStart;    // start of the time window covered by this bucket
+    private int sequence;           // rollover number within the window, from 0
+    private int count;              // number of entries in updates
+    private Instant lastUpdatedAt;
+    @Indexed(name = "bucket_ttl", expireAfter = "0s")
+    private Instant expiresAt;      // removed by the TTL monitor once reached
+    private List<IncidentUpdate> updates;
+}
@@ -0,0 +1,35 @@
+package fr.paulevans.incidents.model;
+
+import java.util.Locale;
+
+/** Codes are what incidents store, they must never be reassigned. Labels are what the API exposes. */
+public enum Severity {
+    LOW(0),
+    MEDIUM(1),
+    HIGH(2),
+    CRITICAL(3);
+
+    private static final Severity[] BY_CODE = values();
+
+    private final int code;
+    private final String label;
+
+    Severity(int code) {
+        this.code = code;
+        this.label = name().charAt(0) + name().substring(1).toLowerCase(Locale.ROOT);
+    }
+
+    public int code() {
+        return code;
+    }
+
+    /** Canonical spelling, e.g. "High" */
+    public String label() {
+        return label;
+    }
+
+    /** @return the severity with this code, or null when there is none */
+    public static Severity fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length && BY_CODE[code].code == code ? BY_CODE[code] : null;
+    }
+}
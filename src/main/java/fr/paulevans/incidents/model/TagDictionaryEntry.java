@@ -0,0 +1,22 @@
+package fr.paulevans.incidents.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/** Integer id of a tag. Ids are dense, never reused and shared by every instance. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "tag_dictionary")
+public class TagDictionaryEntry {
+
+    @Id
+    private Integer id;
+
+    @Indexed(name = "name_unique", unique = true)
+    private String name;
+}
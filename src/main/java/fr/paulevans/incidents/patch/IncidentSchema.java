@@ -0,0 +1,99 @@
+package fr.paulevans.incidents.patch;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import fr.paulevans.incidents.model.Incident;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Typed description of the incident properties a patch document can address, with accessors
+ * instead of reflection. Ids are not patchable.
+ */
+public final class IncidentSchema {
+
+    private static final TypeFactory TYPES = TypeFactory.defaultInstance();
+
+    /** A single-valued property of {@code T}. */
+    public record Property<T>(String name, JavaType type, Function<T, Object> getter, BiConsumer<T, Object> setter) {
+    }
+
+    /** A list-valued property of the incident, optionally with addressable element properties. */
+    public record ArrayProperty(String name, JavaType elementType,
+                                Function<Incident, List<Object>> getter, BiConsumer<Incident, List<Object>> setter,
+                                Map<String, ? extends Property<?>> elementProperties) {
+    }
+
+    public static final Map<String, Property<Incident.Note>> NOTE = properties(
+            property("author", String.class, Incident.Note::getAuthor, Incident.Note::setAuthor),
+            property("note", String.class, Incident.Note::getNote, Incident.Note::setNote),
+            property("timestamp", Instant.class, Incident.Note::getTimestamp, Incident.Note::setTimestamp)
+    );
+
+    public static final Map<String, Property<Incident.TimelineEvent>> TIMELINE_EVENT = properties(
+            property("timestamp", Instant.class, Incident.TimelineEvent::getTimestamp, Incident.TimelineEvent::setTimestamp),
+            property("description", String.class, Incident.TimelineEvent::getDescription, Incident.TimelineEvent::setDescription),
+            property("actor", String.class, Incident.TimelineEvent::getActor, Incident.TimelineEvent::setActor)
+    );
+
+    public static final Map<String, ArrayProperty> ARRAYS = Map.of(
+            "tags", array("tags", String.class, Incident::getTags, Incident::setTags, Map.of()),
+            "notes", array("notes", Incident.Note.class, Incident::getNotes, Incident::setNotes, NOTE),
+            "timeline", array("timeline", Incident.TimelineEvent.class, Incident::getTimeline, Incident::setTimeline, TIMELINE_EVENT)
+    );
+
+    public static final Map<String, Property<Incident>> INCIDENT = properties(
+            property("title", String.class, Incident::getTitle, Incident::setTitle),
+            property("summary", String.class, Incident::getSummary, Incident::setSummary),
+            property("severity", String.class, Incident::getSeverity, Incident::setSeverity),
+            property("status", String.class, Incident::getStatus, Incident::setStatus),
+            property("createdBy", String.class, Incident::getCreatedBy, Incident::setCreatedBy),
+            property("createdAt", Instant.class, Incident::getCreatedAt, Incident::setCreatedAt),
+            property("updatedAt", Instant.class, Incident::getUpdatedAt, Incident::setUpdatedAt),
+            property("resolutionNote", String.class, Incident::getResolutionNote, Incident::setResolutionNote),
+            property("resolvedAt", Instant.class, Incident::getResolvedAt, Incident::setResolvedAt),
+            listProperty(ARRAYS.get("tags")),
+            listProperty(ARRAYS.get("notes")),
+            listProperty(ARRAYS.get("timeline"))
+    );
+
+    private IncidentSchema() {
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, V> Property<T> property(String name, Class<V> type, Function<T, V> getter, BiConsumer<T, V> setter) {
+        return new Property<>(name, TYPES.constructType(type), (Function<T, Object>) getter,
+                (target, value) -> setter.accept(target, type.cast(value)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> ArrayProperty array(String name, Class<E> elementType,
+                                           Function<Incident, List<E>> getter, BiConsumer<Incident, List<E>> setter,
+                                           Map<String, ? extends Property<?>> elementProperties) {
+        return new ArrayProperty(name, TYPES.constructType(elementType),
+                incident -> (List<Object>) getter.apply(incident),
+                (incident, list) -> setter.accept(incident, (List<E>) list),
+                elementProperties);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Property<Incident> listProperty(ArrayProperty array) {
+        return new Property<>(array.name(), TYPES.constructCollectionType(List.class, array.elementType()),
+                incident -> array.getter().apply(incident),
+                (incident, value) -> array.setter().accept(incident, (List<Object>) value));
+    }
+
+    @SafeVarargs
+    private static <T> Map<String, Property<T>> properties(Property<T>... properties) {
+        Map<String, Property<T>> byName = new LinkedHashMap<>();
+        for (Property<T> property : properties) {
+            byName.put(property.name(), property);
+        }
+        return Map.copyOf(byName);
+    }
+}
@@ -0,0 +1,186 @@
+package fr.paulevans.incidents.patch;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import fr.paulevans.incidents.exceptions.InvalidPatchException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads RFC 6902 JSON Patch and RFC 7396 Merge Patch documents in a single streaming pass,
+ * binding each value straight to the type of the property it targets. Also writes operations
+ * back as a JSON Patch document, which is how they are kept in the event log.
+ */
+@Component
+@RequiredArgsConstructor
+public class JsonPatchCodec {
+
+    public static final String JSON_PATCH = "application/json-patch+json";
+    public static final String MERGE_PATCH = "application/merge-patch+json";
+
+    private final ObjectMapper objectMapper;
+
+    public List<PatchOperation> parseJsonPatch(InputStream body) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidPatchException("A JSON Patch document must be an array of operations");
+            }
+            List<PatchOperation> operations = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() != JsonToken.START_OBJECT) {
+                    throw new InvalidPatchException("Operation " + operations.size() + " is not an object");
+                }
+                operations.add(readOperation(parser, operations.size()));
+            }
+            return operations;
+        } catch (JsonProcessingException e) {
+            throw new InvalidPatchException("Malformed JSON Patch: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    /** A merge patch on an incident only has top-level members: null removes, anything else replaces. */
+    public List<PatchOperation> parseMergePatch(InputStream body) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new InvalidPatchException("A merge patch must be a JSON object");
+            }
+            List<PatchOperation> operations = new ArrayList<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                PatchPath path = PatchPath.property(parser.currentName());
+                if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                    operations.add(new PatchOperation.Remove(path));
+                } else {
+                    operations.add(new PatchOperation.Replace(path, readValue(parser, path)));
+                }
+            }
+            return operations;
+        } catch (JsonProcessingException e) {
+            throw new InvalidPatchException("Malformed merge patch: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    public String writeJsonPatch(List<PatchOperation> operations) {
+        List<Map<String, Object>> document = new ArrayList<>(operations.size());
+        for (PatchOperation operation : operations) {
+            Map<String, Object> member = new LinkedHashMap<>();
+            switch (operation) {
+                case PatchOperation.Add add -> {
+                    member.put("op", "add");
+                    member.put("path", add.path().toString());
+                    member.put("value", add.value());
+                }
+                case PatchOperation.Remove remove -> {
+                    member.put("op", "remove");
+                    member.put("path", remove.path().toString());
+                }
+                case PatchOperation.Replace replace -> {
+                    member.put("op", "replace");
+                    member.put("path", replace.path().toString());
+                    member.put("value", replace.value());
+                }
+                case PatchOperation.Move move -> {
+                    member.put("op", "move");
+                    member.put("from", move.from().toString());
+                    member.put("path", move.path().toString());
+                }
+                case PatchOperation.Test test -> {
+                    member.put("op", "test");
+                    member.put("path", test.path().toString());
+                    member.put("value", test.value());
+                }
+            }
+            document.add(member);
+        }
+        try {
+            return objectMapper.writeValueAsString(document);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize patch operations", e);
+        }
+    }
+
+    private PatchOperation readOperation(JsonParser parser, int position) throws IOException {
+        String op = null;
+        PatchPath path = null;
+        PatchPath from = null;
+        boolean hasValue = false;
+        Object value = null;
+        TokenBuffer pendingValue = null; // "value" seen before "path", bound once the type is known
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String member = parser.currentName();
+            parser.nextToken();
+            switch (member) {
+                case "op" -> op = text(parser, member, position);
+                case "path" -> path = PatchPath.parse(text(parser, member, position));
+                case "from" -> from = PatchPath.parse(text(parser, member, position));
+                case "value" -> {
+                    hasValue = true;
+                    if (path != null) {
+                        value = readValue(parser, path);
+                    } else {
+                        pendingValue = new TokenBuffer(parser);
+                        pendingValue.copyCurrentStructure(parser);
+                    }
+                }
+                default -> parser.skipChildren(); // unknown members are ignored
+            }
+        }
+
+        if (op == null || path == null) {
+            throw new InvalidPatchException("Operation " + position + " needs 'op' and 'path'");
+        }
+        if (pendingValue != null) {
+            try (JsonParser buffered = pendingValue.asParser(objectMapper)) {
+                buffered.nextToken();
+                value = readValue(buffered, path);
+            }
+        }
+
+        return switch (op) {
+            case "add" -> new PatchOperation.Add(path, requireValue(hasValue, value, position));
+            case "remove" -> new PatchOperation.Remove(path);
+            case "replace" -> new PatchOperation.Replace(path, requireValue(hasValue, value, position));
+            case "test" -> new PatchOperation.Test(path, requireValue(hasValue, value, position));
+            case "move" -> {
+                if (from == null || !from.isElement() || !path.isElement() || !from.property().equals(path.property())) {
+                    throw new InvalidPatchException("Operation " + position
+                            + ": only moves of an element within the same array are supported");
+                }
+                yield new PatchOperation.Move(from, path);
+            }
+            default -> throw new InvalidPatchException("Operation " + position + ": unsupported op '" + op + "'");
+        };
+    }
+
+    private Object readValue(JsonParser parser, PatchPath path) throws IOException {
+        try {
+            return objectMapper.readValue(parser, path.valueType());
+        } catch (JsonProcessingException e) {
+            throw new InvalidPatchException("Invalid value for " + path + ": " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static Object requireValue(boolean hasValue, Object value, int position) {
+        if (!hasValue) {
+            throw new InvalidPatchException("Operation " + position + " needs a 'value'");
+        }
+        return value;
+    }
+
+    private static String text(JsonParser parser, String member, int position) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw new InvalidPatchException("Operation " + position + ": '" + member + "' must be a string");
+        }
+        return parser.getText();
+    }
+}
@@ -0,0 +1,23 @@
+package fr.paulevans.incidents.patch;
+
+/** A typed patch operation, with its value already bound to the type of its target. */
+public sealed interface PatchOperation {
+
+    PatchPath path();
+
+    record Add(PatchPath path, Object value) implements PatchOperation {
+    }
+
+    record Remove(PatchPath path) implements PatchOperation {
+    }
+
+    record Replace(PatchPath path, Object value) implements PatchOperation {
+    }
+
+    /** Moves an element within one array; {@code path} is the position after removal from {@code from}. */
+    record Move(PatchPath from, PatchPath path) implements PatchOperation {
+    }
+
+    record Test(PatchPath path, Object value) implements PatchOperation {
+    }
+}
@@ -0,0 +1,90 @@
+package fr.paulevans.incidents.patch;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JavaType;
+import fr.paulevans.incidents.exceptions.InvalidPatchException;
+
+/**
+ * A JSON Pointer resolved against {@link IncidentSchema}: a top-level property ({@code /title}),
+ * an array element ({@code /notes/2}, {@code /tags/-}) or an element property ({@code /notes/2/note}).
+ *
+ * @param index element index, {@link #END} for {@code -}, or {@code null} when addressing the property itself
+ */
+public record PatchPath(String property, Integer index, String elementProperty) {
+
+    public static final int END = -1;
+
+    public static PatchPath parse(String pointer) {
+        JsonPointer segments;
+        try {
+            segments = JsonPointer.compile(pointer);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPatchException("Invalid JSON pointer: " + pointer);
+        }
+        if (segments.matches()) {
+            throw new InvalidPatchException("Patching the whole incident is not supported: " + pointer);
+        }
+
+        String property = segments.getMatchingProperty();
+        JsonPointer rest = segments.tail();
+        if (rest.matches()) {
+            return property(property);
+        }
+
+        IncidentSchema.ArrayProperty array = IncidentSchema.ARRAYS.get(property);
+        if (array == null) {
+            throw new InvalidPatchException("Not an array: /" + property);
+        }
+        int index;
+        if ("-".equals(rest.getMatchingProperty())) {
+            index = END;
+        } else if (rest.mayMatchElement()) {
+            index = rest.getMatchingIndex();
+        } else {
+            throw new InvalidPatchException("Invalid array index in " + pointer);
+        }
+
+        JsonPointer elementRest = rest.tail();
+        if (elementRest.matches()) {
+            return new PatchPath(property, index, null);
+        }
+        String elementProperty = elementRest.getMatchingProperty();
+        if (!elementRest.tail().matches() || !array.elementProperties().containsKey(elementProperty)) {
+            throw new InvalidPatchException("Unknown path: " + pointer);
+        }
+        if (index == END) {
+            throw new InvalidPatchException("'-' cannot be followed by a property: " + pointer);
+        }
+        return new PatchPath(property, index, elementProperty);
+    }
+
+    public static PatchPath property(String property) {
+        if (!IncidentSchema.INCIDENT.containsKey(property)) {
+            throw new InvalidPatchException("Unknown property: /" + property);
+        }
+        return new PatchPath(property, null, null);
+    }
+
+    public boolean isElement() {
+        return index != null && elementProperty == null;
+    }
+
+    /** Type a value written at this path must bind to. */
+    public JavaType valueType() {
+        if (index == null) {
+            return IncidentSchema.INCIDENT.get(property).type();
+        }
+        IncidentSchema.ArrayProperty array = IncidentSchema.ARRAYS.get(property);
+        return elementProperty == null
+                ? array.elementType()
+                : array.elementProperties().get(elementProperty).type();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder pointer = new StringBuilder("/").append(property);
+        if (index != null) pointer.append('/').append(index == END ? "-" : index.toString());
+        if (elementProperty != null) pointer.append('/').append(elementProperty);
+        return pointer.toString();
+    }
+}
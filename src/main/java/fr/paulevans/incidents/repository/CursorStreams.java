@@ -0,0 +1,74 @@
+package fr.paulevans.incidents.repository;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.cursor.TimeoutMode;
+import org.bson.Document;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams whole collections over a cursor whose timeout applies to each batch rather than to its lifetime.
+ * <p>
+ * The driver bounds a cursor by the operation timeout of the database it came from, see
+ * {@link DeadlineAwareMongoDatabaseFactory}, for its whole lifetime by default. A stream lives as long as its
+ * consumer takes, e.g. a client reading the full incident list, so it would fail partway through once that
+ * budget is spent, after the response was committed. With {@link TimeoutMode#ITERATION} every round trip gets
+ * the budget instead.
+ */
+public final class CursorStreams {
+
+    private CursorStreams() {
+    }
+
+    /** Every document of the collection of {@code type}, {@code batchSize} per round trip; must be closed. */
+    public static <T> Stream<T> streamAll(MongoTemplate mongoTemplate, Class<T> type, int batchSize) {
+        PersistenceExceptionTranslator translator = mongoTemplate.getMongoDatabaseFactory().getExceptionTranslator();
+        MongoCursor<Document> cursor;
+        try {
+            MongoCollection<Document> collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(type));
+            FindIterable<Document> find = collection.find().batchSize(batchSize);
+            // the mode is only allowed with a timeout, background operations may run without one
+            cursor = (collection.getTimeout(TimeUnit.MILLISECONDS) != null ? find.timeoutMode(TimeoutMode.ITERATION) : find)
+                    .cursor();
+        } catch (RuntimeException e) {
+            throw translate(translator, e);
+        }
+
+        Iterator<T> documents = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return cursor.hasNext();
+                } catch (RuntimeException e) {
+                    throw translate(translator, e);
+                }
+            }
+
+            @Override
+            public T next() {
+                try {
+                    return mongoTemplate.getConverter().read(type, cursor.next());
+                } catch (RuntimeException e) {
+                    throw translate(translator, e);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(documents, Spliterator.ORDERED), false)
+                .onClose(cursor::close);
+    }
+
+    private static RuntimeException translate(PersistenceExceptionTranslator translator, RuntimeException e) {
+        DataAccessException translated = translator.translateExceptionIfPossible(e);
+        return translated != null ? translated : e;
+    }
+}
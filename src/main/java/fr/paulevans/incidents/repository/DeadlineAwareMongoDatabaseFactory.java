@@ -0,0 +1,83 @@
+package fr.paulevans.incidents.repository;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoOperationTimeoutException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoDatabase;
+import fr.paulevans.incidents.config.QueryProperties;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands every operation a database with a timeout: the {@link QueryProperties#maxTime()} of one operation capped
+ * by the time left to the {@link QueryDeadline} of the request, or {@link QueryProperties#backgroundMaxTime()}
+ * outside requests. The driver turns the timeout into {@code maxTimeMS} and a client side limit, and expiry is
+ * reported as a {@link QueryTimeoutException}.
+ */
+public class DeadlineAwareMongoDatabaseFactory implements MongoDatabaseFactory {
+
+    private final MongoDatabaseFactory delegate;
+    private final QueryProperties properties;
+    private final PersistenceExceptionTranslator exceptionTranslator;
+
+    public DeadlineAwareMongoDatabaseFactory(MongoDatabaseFactory delegate, QueryProperties properties) {
+        this.delegate = delegate;
+        this.properties = properties;
+        PersistenceExceptionTranslator translator = delegate.getExceptionTranslator();
+        // the default translator leaves the driver's timeout uncategorized
+        this.exceptionTranslator = ex -> ex instanceof MongoOperationTimeoutException
+                ? new QueryTimeoutException(ex.getMessage(), ex)
+                : translator.translateExceptionIfPossible(ex);
+    }
+
+    @Override
+    public MongoDatabase getMongoDatabase() {
+        return withTimeout(delegate.getMongoDatabase());
+    }
+
+    @Override
+    public MongoDatabase getMongoDatabase(String dbName) {
+        return withTimeout(delegate.getMongoDatabase(dbName));
+    }
+
+    @Override
+    public PersistenceExceptionTranslator getExceptionTranslator() {
+        return exceptionTranslator;
+    }
+
+    @Override
+    public ClientSession getSession(ClientSessionOptions options) {
+        return delegate.getSession(options);
+    }
+
+    @Override
+    public MongoDatabaseFactory withSession(ClientSession session) {
+        return new DeadlineAwareMongoDatabaseFactory(delegate.withSession(session), properties);
+    }
+
+    @Override
+    public boolean isTransactionActive() {
+        return delegate.isTransactionActive();
+    }
+
+    private MongoDatabase withTimeout(MongoDatabase database) {
+        Duration timeout = timeout();
+        return timeout.isZero() ? database : database.withTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private Duration timeout() {
+        Duration remaining = QueryDeadline.remaining();
+        if (remaining == null) {
+            return properties.backgroundMaxTime();
+        }
+        // a zero timeout would mean none, and a request past its deadline should not start anything anyway
+        if (remaining.toMillis() <= 0) {
+            throw new QueryTimeoutException("Request deadline exceeded");
+        }
+        return remaining.compareTo(properties.maxTime()) < 0 ? remaining : properties.maxTime();
+    }
+}
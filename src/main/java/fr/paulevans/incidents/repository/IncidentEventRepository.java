@@ -0,0 +1,20 @@
+package fr.paulevans.incidents.repository;
+
+import fr.paulevans.incidents.model.IncidentEvent;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IncidentEventRepository extends MongoRepository<IncidentEvent, String> {
+
+    Optional<IncidentEvent> findFirstByIncidentIdOrderBySequenceDesc(String incidentId);
+
+    List<IncidentEvent> findByIncidentIdAndSequenceGreaterThanAndTimestampLessThanEqualOrderBySequenceAsc(
+            String incidentId, long sequence, Instant timestamp);
+
+    void deleteByIncidentIdAndSequenceLessThan(String incidentId, long sequence);
+}
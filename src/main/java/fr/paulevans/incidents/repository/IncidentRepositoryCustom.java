@@ -0,0 +1,39 @@
+package fr.paulevans.incidents.repository;
+
+import fr.paulevans.incidents.dto.ElementPage;
+import fr.paulevans.incidents.model.Incident;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface IncidentRepositoryCustom {
+
+    /** Loads an incident with only the newest {@code timelineLimit} events and {@code notesLimit} notes. */
+    Optional<Incident> findByIdWithLatest(String id, int timelineLimit, int notesLimit);
+
+    /**
+     * Reads a page of the embedded {@code array} in (timestamp, id) order, ending just before the element the
+     * {@code before} cursor points at, or the newest page when {@code before} is null. Empty when the incident
+     * does not exist.
+     *
+     * @throws IllegalArgumentException when the cursor was not produced by a previous page
+     */
+    <T> Optional<ElementPage<T>> findElementPage(String id, String array, Class<T> type, int limit, String before);
+
+    /** Which of the given timeline event ids are stored in the timelines of the given incidents. */
+    Set<String> findTimelineEventIds(Collection<String> incidentIds, Collection<String> eventIds);
+
+    /**
+     * Gives the incident version 0 if it was stored before incidents were versioned, a no-op otherwise.
+     * A copy read without a version can then be saved against version 0, and fails if anything wrote since.
+     */
+    void initVersion(String id);
+
+    /**
+     * Streams every incident over a server side cursor, {@code batchSize} documents per round trip, each round
+     * trip within the query timeout. The stream holds the cursor open and must be closed.
+     */
+    Stream<Incident> streamAll(int batchSize);
+}
@@ -0,0 +1,159 @@
+package fr.paulevans.incidents.repository;
+
+import fr.paulevans.incidents.dto.ElementPage;
+import fr.paulevans.incidents.model.Incident;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Slices the embedded timeline and notes server side, so large incidents never ship (or deserialize)
+ * their full history in one response.
+ */
+@RequiredArgsConstructor
+public class IncidentRepositoryCustomImpl implements IncidentRepositoryCustom {
+
+    private static final String TIMESTAMP = "timestamp";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<Incident> findByIdWithLatest(String id, int timelineLimit, int notesLimit) {
+        // replaces the arrays with their last n elements and keeps every other field as stored
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("_id").is(id)),
+                Aggregation.addFields()
+                        .addField("timeline").withValue(ArrayOperators.arrayOf("timeline").slice().itemCount(-timelineLimit))
+                        .addField("notes").withValue(ArrayOperators.arrayOf("notes").slice().itemCount(-notesLimit))
+                        .build()
+        );
+        return Optional.ofNullable(
+                mongoTemplate.aggregate(aggregation, Incident.class, Incident.class).getUniqueMappedResult());
+    }
+
+    @Override
+    public <T> Optional<ElementPage<T>> findElementPage(String id, String array, Class<T> type, int limit,
+                                                        String before) {
+        // newest first by (timestamp, id), one more than the page to know whether older elements remain
+        List<AggregationOperation> operations = new ArrayList<>(List.of(
+                Aggregation.match(Criteria.where("_id").is(id)),
+                Aggregation.unwind(array),
+                Aggregation.replaceRoot(array)));
+        String idField = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(type).getRequiredIdProperty().getFieldName();
+        if (before != null) {
+            ElementCursor cursor = ElementCursor.parse(before);
+            operations.add(Aggregation.match(new Criteria().orOperator(
+                    Criteria.where(TIMESTAMP).lt(cursor.timestamp()),
+                    Criteria.where(TIMESTAMP).is(cursor.timestamp()).andOperator(idBefore(idField, cursor.id())))));
+        }
+        operations.add(Aggregation.sort(Sort.by(Sort.Direction.DESC, TIMESTAMP, idField)));
+        operations.add(Aggregation.limit(limit + 1L));
+
+        List<Document> results = mongoTemplate
+                .aggregate(Aggregation.newAggregation(operations), Incident.class, Document.class)
+                .getMappedResults();
+        if (results.isEmpty()) {
+            return mongoTemplate.exists(Query.query(Criteria.where("_id").is(id)), Incident.class)
+                    ? Optional.of(ElementPage.empty())
+                    : Optional.empty();
+        }
+
+        boolean more = results.size() > limit;
+        List<T> items = new ArrayList<>(Math.min(limit, results.size()));
+        for (int i = Math.min(limit, results.size()) - 1; i >= 0; i--) {
+            items.add(mongoTemplate.getConverter().read(type, results.get(i)));
+        }
+        String next = null;
+        if (more) {
+            Document oldest = results.get(limit - 1);
+            Object oldestId = oldest.get(idField);
+            next = new ElementCursor(oldest.getDate(TIMESTAMP).toInstant(),
+                    oldestId instanceof ObjectId objectId ? objectId.toHexString() : oldestId.toString()).format();
+        }
+        return Optional.of(new ElementPage<>(items, next));
+    }
+
+    /**
+     * Ids below {@code id} in the sort order. Element ids that are valid object ids are stored as ObjectId, any
+     * other as a string, and one array may hold both. {@code $lt} only compares values of the same type, while
+     * the sort puts every string below every ObjectId, so below an ObjectId come the smaller ObjectIds and all
+     * the strings.
+     */
+    private static Criteria idBefore(String idField, String id) {
+        if (!ObjectId.isValid(id)) {
+            return Criteria.where(idField).lt(id);
+        }
+        return new Criteria().orOperator(
+                Criteria.where(idField).lt(new ObjectId(id)),
+                Criteria.where(idField).type(JsonSchemaObject.Type.stringType()));
+    }
+
+    /**
+     * Position of an element in the (timestamp, id) order. Unlike an array index it does not shift when
+     * elements are removed or moved, so pages neither skip nor repeat elements.
+     */
+    private record ElementCursor(Instant timestamp, String id) {
+
+        static ElementCursor parse(String cursor) {
+            int separator = cursor.indexOf('_');
+            try {
+                return new ElementCursor(Instant.ofEpochMilli(Long.parseLong(cursor.substring(0, separator))),
+                        cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid page cursor: " + cursor, e);
+            }
+        }
+
+        String format() {
+            return timestamp.toEpochMilli() + "_" + id;
+        }
+    }
+
+    @Override
+    public Set<String> findTimelineEventIds(Collection<String> incidentIds, Collection<String> eventIds) {
+        if (incidentIds.isEmpty() || eventIds.isEmpty()) {
+            return Set.of();
+        }
+        TypedAggregation<Incident> aggregation = Aggregation.newAggregation(Incident.class,
+                Aggregation.match(Criteria.where("_id").in(incidentIds).and("timeline.id").in(eventIds)),
+                Aggregation.unwind("timeline"),
+                Aggregation.match(Criteria.where("timeline.id").in(eventIds)),
+                Aggregation.project().and("timeline.id").as("eventId"));
+        Set<String> found = new HashSet<>();
+        for (Document result : mongoTemplate.aggregate(aggregation, Document.class).getMappedResults()) {
+            found.add(result.get("eventId").toString());
+        }
+        return found;
+    }
+
+    @Override
+    public void initVersion(String id) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id).and("version").exists(false)),
+                Update.update("version", 0L), Incident.class);
+    }
+
+    @Override
+    public Stream<Incident> streamAll(int batchSize) {
+        return CursorStreams.streamAll(mongoTemplate, Incident.class, batchSize);
+    }
+}
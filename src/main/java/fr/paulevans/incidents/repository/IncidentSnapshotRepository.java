@@ -0,0 +1,17 @@
+package fr.paulevans.incidents.repository;
+
+import fr.paulevans.incidents.model.IncidentSnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface IncidentSnapshotRepository extends MongoRepository<IncidentSnapshot, String> {
+
+    Optional<IncidentSnapshot> findFirstByIncidentIdAndTimestampLessThanEqualOrderBySequenceDesc(
+            String incidentId, Instant timestamp);
+
+    void deleteByIncidentIdAndSequenceLessThan(String incidentId, long sequence);
+}
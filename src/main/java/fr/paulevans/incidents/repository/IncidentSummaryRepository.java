@@ -0,0 +1,21 @@
+package fr.paulevans.incidents.repository;
+
+import fr.paulevans.incidents.model.IncidentSummary;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface IncidentSummaryRepository extends MongoRepository<IncidentSummary, String> {
+
+    List<IncidentSummary> findByStatusIn(Collection<String> statuses);
+
+    List<IncidentSummary> findByTagsOrderByCreatedAtDesc(String tag);
+
+    @Query(value = "{}", fields = "{'tags': 1, 'status': 1, 'severity': 1}")
+    Stream<IncidentSummary> streamFacetsBy();
+}
@@ -0,0 +1,13 @@
+package fr.paulevans.incidents.repository;
+
+import fr.paulevans.incidents.model.IncidentUpdateBucket;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface IncidentUpdateBucketRepository extends MongoRepository<IncidentUpdateBucket, String> {
+    /** In write order: by window, then rollover within it, then insertion for buckets older than the sequence */
+    List<IncidentUpdateBucket> findByIncidentIdOrderByBucketStartAscSequenceAscIdAsc(String incidentId);
+}
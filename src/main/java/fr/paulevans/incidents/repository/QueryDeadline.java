@@ -0,0 +1,46 @@
+package fr.paulevans.incidents.repository;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Deadline of the work the current thread does for an HTTP request. Database operations started on the thread
+ * get at most the time left, see {@link DeadlineAwareMongoDatabaseFactory}.
+ */
+public final class QueryDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private QueryDeadline() {
+    }
+
+    public static void start(Duration budget) {
+        DEADLINE.set(System.nanoTime() + budget.toNanos());
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    /**
+     * Runs {@code work} without the thread's deadline, for bookkeeping that must complete even when the request
+     * ran out of time. Its operations get the background max time instead.
+     */
+    public static <T> T suspended(Supplier<T> work) {
+        Long deadline = DEADLINE.get();
+        DEADLINE.remove();
+        try {
+            return work.get();
+        } finally {
+            if (deadline != null) {
+                DEADLINE.set(deadline);
+            }
+        }
+    }
+
+    /** Time left before the deadline, negative once it passed, or null when the thread has none. */
+    public static Duration remaining() {
+        Long deadline = DEADLINE.get();
+        return deadline == null ? null : Duration.ofNanos(deadline - System.nanoTime());
+    }
+}
@@ -0,0 +1,13 @@
+package fr.paulevans.incidents.repository;
+
+import fr.paulevans.incidents.model.TagDictionaryEntry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface TagDictionaryRepository extends MongoRepository<TagDictionaryEntry, Integer> {
+
+    Optional<TagDictionaryEntry> findByName(String name);
+}
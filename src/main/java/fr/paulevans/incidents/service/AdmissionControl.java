@@ -0,0 +1,122 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.config.AdmissionControlProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive concurrency limit shared by all API requests, with priority classes (AIMD: additive increase while
+ * requests are fast, multiplicative decrease when one is slow).
+ * <p>
+ * A request of a class is admitted while the requests in flight, of any class, stay under the class's share of
+ * the limit: bulk reads are shed first, then single reads, and writes only once the whole limit is in use.
+ * <p>
+ * The limit backs off at most once per latency window: the requests that were already running when it last
+ * backed off reflect the load before that, so their slow completions do not shrink it again.
+ * <p>
+ * Metrics: {@code incidents.admission.limit}, {@code incidents.admission.inflight} and
+ * {@code incidents.admission.rejected}, the latter two tagged with the priority.
+ */
+@Service
+public class AdmissionControl {
+
+    public enum Priority {
+        WRITE, READ, BULK_READ
+    }
+
+    public enum Decision {
+        ADMITTED,
+        /** the class used its share, higher priority requests are still admitted */
+        OVER_SHARE,
+        /** the whole limit is in use */
+        OVER_LIMIT
+    }
+
+    private final AdmissionControlProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Priority, AtomicInteger> inFlightPerPriority = new EnumMap<>(Priority.class);
+    private final Map<Priority, Counter> rejected = new EnumMap<>(Priority.class);
+    private volatile double limit;
+    private long lastBackoffNanos; // guarded by this
+    private boolean backedOff; // guarded by this
+
+    public AdmissionControl(AdmissionControlProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limit = properties.initialLimit();
+        Gauge.builder("incidents.admission.limit", this, AdmissionControl::limit).register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            AtomicInteger count = new AtomicInteger();
+            inFlightPerPriority.put(priority, count);
+            Gauge.builder("incidents.admission.inflight", count, AtomicInteger::get)
+                    .tag("priority", priority.name()).register(meterRegistry);
+            rejected.put(priority, Counter.builder("incidents.admission.rejected")
+                    .tag("priority", priority.name()).register(meterRegistry));
+        }
+    }
+
+    /** Every admitted request must be {@link #release released}. */
+    public Decision tryAcquire(Priority priority) {
+        while (true) {
+            int current = inFlight.get();
+            double currentLimit = limit;
+            if (current >= currentLimit) {
+                rejected.get(priority).increment();
+                return Decision.OVER_LIMIT;
+            }
+            if (current >= currentLimit * share(priority)) {
+                rejected.get(priority).increment();
+                return Decision.OVER_SHARE;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                inFlightPerPriority.get(priority).incrementAndGet();
+                return Decision.ADMITTED;
+            }
+        }
+    }
+
+    /** Releases a request whose latency is a load signal, and adapts the limit to it. */
+    public void release(Priority priority, long latencyNanos) {
+        release(priority, latencyNanos, System.nanoTime());
+    }
+
+    /** Releases a request whose latency says nothing about the load, such as a streamed response. */
+    public void release(Priority priority) {
+        inFlight.decrementAndGet();
+        inFlightPerPriority.get(priority).decrementAndGet();
+    }
+
+    void release(Priority priority, long latencyNanos, long completedAtNanos) {
+        int current = inFlight.getAndDecrement();
+        inFlightPerPriority.get(priority).decrementAndGet();
+        synchronized (this) {
+            if (latencyNanos > properties.targetLatency().toNanos()) {
+                long startedAtNanos = completedAtNanos - latencyNanos;
+                if (!backedOff || startedAtNanos - lastBackoffNanos > 0) {
+                    limit = Math.max(properties.minLimit(), limit * properties.backoffRatio());
+                    lastBackoffNanos = completedAtNanos;
+                    backedOff = true;
+                }
+            } else if (current * 2 >= limit) {
+                limit = Math.min(properties.maxLimit(), limit + 1);
+            }
+        }
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    private double share(Priority priority) {
+        return switch (priority) {
+            case WRITE -> 1;
+            case READ -> properties.readShare();
+            case BULK_READ -> properties.bulkReadShare();
+        };
+    }
+}
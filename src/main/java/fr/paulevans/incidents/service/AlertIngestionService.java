@@ -0,0 +1,201 @@
+package fr.paulevans.incidents.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import fr.paulevans.incidents.dto.AlertDelivery;
+import fr.paulevans.incidents.dto.AlertMessage;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.patch.IncidentSchema;
+import fr.paulevans.incidents.repository.IncidentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Turns batches of alerts into incident creates and timeline appends, written with one bulk operation
+ * per batch instead of one request per alert.
+ */
+@Slf4j
+@Service
+public class AlertIngestionService {
+
+    private static final List<String> CLOSED_STATUSES = List.of("RESOLVED", "CLOSED");
+
+    private final MongoTemplate mongoTemplate;
+    private final IncidentRepository incidentRepository;
+    private final Optional<IncidentEventStore> eventStore;
+    private final IncidentSummaryService summaries;
+    private final ApplicationEventPublisher events;
+
+    public AlertIngestionService(MongoTemplate mongoTemplate, IncidentRepository incidentRepository,
+                                 Optional<IncidentEventStore> eventStore, IncidentSummaryService summaries,
+                                 ApplicationEventPublisher events) {
+        this.mongoTemplate = mongoTemplate;
+        this.incidentRepository = incidentRepository;
+        this.eventStore = eventStore;
+        this.summaries = summaries;
+        this.events = events;
+    }
+
+    /**
+     * Alerts are keyed by their delivery: the incident an alert creates and the timeline event it appends get ids
+     * derived from it, incidents are created with an upsert and events are only pushed when not there yet. A batch
+     * retried after a failed write therefore changes nothing twice, and the event log is only written once the
+     * batch is, under the same derived ids.
+     *
+     * @return the number of alerts that were written, resolved alerts without an open incident are dropped
+     */
+    public int ingest(List<AlertDelivery> deliveries) {
+        if (deliveries.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, String> openIncidents = findOpenIncidents(deliveries);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Incident.class);
+        Instant now = Instant.now();
+        int written = 0;
+        Map<String, IncidentEventType> changes = new LinkedHashMap<>();
+        List<Incident> created = new ArrayList<>();
+        Map<String, List<Incident.TimelineEvent>> appended = new LinkedHashMap<>();
+
+        for (AlertDelivery delivery : deliveries) {
+            AlertMessage alert = delivery.alert();
+            String createdId = derivedId("incident", delivery);
+            String incidentId = openIncidents.get(alert.tag());
+            Incident.TimelineEvent event =
+                    toTimelineEvent(alert, derivedId("timeline", delivery), delivery.receivedAt());
+
+            // an incident this very delivery created before its batch was retried is created again, as a no-op
+            if (incidentId == null || incidentId.equals(createdId)) {
+                if (alert.isResolved()) {
+                    log.debug("Dropping resolved alert {} without an open incident", alert.fingerprint());
+                    continue;
+                }
+                Incident incident = toIncident(alert, createdId, event, delivery.receivedAt());
+                bulk.upsert(Query.query(Criteria.where("_id").is(createdId)), insertOnly(incident));
+                // later alerts of the same batch append to the incident created here
+                openIncidents.put(alert.tag(), createdId);
+                changes.put(createdId, IncidentEventType.CREATED);
+                created.add(incident);
+            } else {
+                bulk.updateOne(Query.query(Criteria.where("_id").is(incidentId).and("timeline.id").ne(event.getId())),
+                        new Update().push("timeline", event).set("updatedAt", now).inc("version", 1));
+                changes.putIfAbsent(incidentId, IncidentEventType.PATCHED);
+                appended.computeIfAbsent(incidentId, id -> new ArrayList<>()).add(event);
+            }
+            written++;
+        }
+
+        if (written > 0) {
+            BulkWriteResult result = bulk.execute();
+            eventStore.ifPresent(store -> record(store, created, appended));
+            int pushes = appended.values().stream().mapToInt(List::size).sum();
+            if (result.getUpserts().size() == created.size() && result.getModifiedCount() == pushes) {
+                // creations first, appends of the same batch may target the incidents created in it
+                summaries.upsertAll(created);
+                Map<String, Integer> appends = new HashMap<>();
+                appended.forEach((id, events) -> appends.put(id, events.size()));
+                summaries.recordTimelineAppends(appends, now);
+            } else {
+                // part of the batch was written by an earlier attempt, counting it again would drift
+                summaries.upsertAll(mongoTemplate.find(
+                        Query.query(Criteria.where("_id").in(changes.keySet())), Incident.class));
+            }
+            changes.forEach((id, type) -> events.publishEvent(IncidentChangedEvent.local(id, type)));
+        }
+        return written;
+    }
+
+    /** Only what is stored is recorded, an incident deleted before its append was written gets no event. */
+    private void record(IncidentEventStore store, List<Incident> created,
+                        Map<String, List<Incident.TimelineEvent>> appended) {
+        // the derived ids of the incidents and timeline events key their log events too
+        created.forEach(incident -> store.appendCreated(incident.getId(), incident));
+
+        List<String> eventIds = appended.values().stream()
+                .flatMap(List::stream)
+                .map(Incident.TimelineEvent::getId)
+                .toList();
+        Set<String> stored = incidentRepository.findTimelineEventIds(appended.keySet(), eventIds);
+        appended.forEach((incidentId, events) -> events.stream()
+                .filter(event -> stored.contains(event.getId()))
+                .forEach(event -> store.appendTimelineEvents(event.getId(), incidentId, List.of(event))));
+    }
+
+    /** Every property set on insert only, an upsert matching the incident leaves it as it is. */
+    private static Update insertOnly(Incident incident) {
+        Update update = new Update();
+        IncidentSchema.INCIDENT.forEach((name, property) -> {
+            Object value = property.getter().apply(incident);
+            if (value != null) update.setOnInsert(name, value);
+        });
+        return update.setOnInsert("version", 0L);
+    }
+
+    /** Same input, same id: a hash of the delivery shaped like an object id. */
+    private static String derivedId(String kind, AlertDelivery delivery) {
+        return DigestUtils.md5DigestAsHex((kind + "/" + delivery.id()).getBytes(StandardCharsets.UTF_8))
+                .substring(0, 24);
+    }
+
+    /** Open incident id per alert tag, looked up for the whole batch with a single query. */
+    private Map<String, String> findOpenIncidents(List<AlertDelivery> deliveries) {
+        Set<String> tags = new HashSet<>();
+        deliveries.forEach(delivery -> tags.add(delivery.alert().tag()));
+
+        Query query = Query.query(Criteria.where("tags").in(tags).and("status").nin(CLOSED_STATUSES));
+        query.fields().include("tags");
+
+        Map<String, String> openIncidents = new HashMap<>();
+        for (Incident incident : mongoTemplate.find(query, Incident.class)) {
+            for (String tag : incident.getTags()) {
+                if (tags.contains(tag)) {
+                    openIncidents.putIfAbsent(tag, incident.getId());
+                }
+            }
+        }
+        return openIncidents;
+    }
+
+    private static Incident.TimelineEvent toTimelineEvent(AlertMessage alert, String id, Instant receivedAt) {
+        String description = (alert.isResolved() ? "Alert resolved: " : "Alert firing: ") + alert.title();
+        if (alert.description() != null && !alert.description().isBlank()) {
+            description += " - " + alert.description();
+        }
+        return new Incident.TimelineEvent(id, alert.timestamp() != null ? alert.timestamp() : receivedAt,
+                description, source(alert));
+    }
+
+    private static Incident toIncident(AlertMessage alert, String id, Incident.TimelineEvent event,
+                                       Instant receivedAt) {
+        Incident incident = new Incident();
+        incident.setId(id);
+        incident.setTitle(alert.title());
+        incident.setSummary(alert.description() != null && !alert.description().isBlank()
+                ? alert.description()
+                : alert.title());
+        incident.setSeverity(alert.incidentSeverity());
+        incident.setStatus("OPEN");
+        incident.setCreatedBy(source(alert));
+        incident.setCreatedAt(receivedAt);
+        incident.setTimeline(new ArrayList<>(List.of(event)));
+        incident.setNotes(new ArrayList<>());
+        incident.setTags(new ArrayList<>(List.of(alert.tag())));
+        return incident;
+    }
+
+    private static String source(AlertMessage alert) {
+        return alert.source() != null && !alert.source().isBlank() ? alert.source() : "alerting";
+    }
+}
@@ -0,0 +1,198 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.config.IdempotencyProperties;
+import fr.paulevans.incidents.exceptions.IdempotencyKeyInProgressException;
+import fr.paulevans.incidents.exceptions.IdempotencyKeyMismatchException;
+import fr.paulevans.incidents.model.IdempotencyRecord;
+import fr.paulevans.incidents.repository.QueryDeadline;
+import jakarta.servlet.ServletException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a request at most once per idempotency key and hands its response to every retry.
+ * <p>
+ * A key is claimed by inserting its record, so only one request across all instances executes it. Duplicates
+ * arriving on the same instance wait for the executing request in memory; duplicates on other instances poll
+ * the record until the response is stored. Responses of server errors are not stored, the key is released
+ * instead so that the retry executes again.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+
+    /** Status, content type and body of a response, as stored for replay. */
+    public record StoredResponse(int status, String contentType, byte[] body) {
+    }
+
+    @FunctionalInterface
+    public interface Execution {
+        /** @return the response to store, or null when it must not be replayed */
+        StoredResponse run() throws IOException, ServletException;
+    }
+
+    private record Flight(String fingerprint, CompletableFuture<StoredResponse> response) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final IdempotencyProperties properties;
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(MongoTemplate mongoTemplate, IdempotencyProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Runs {@code execution} unless a request with the same key already did.
+     *
+     * @return the stored response to replay, or null when {@code execution} ran for this request
+     * @throws IdempotencyKeyMismatchException  when the key was used for a request with another fingerprint
+     * @throws IdempotencyKeyInProgressException when the request holding the key did not complete in time
+     */
+    public StoredResponse execute(String key, String fingerprint, Execution execution) throws IOException, ServletException {
+        Instant deadline = Instant.now().plus(properties.waitTimeout());
+        while (true) {
+            Flight flight = new Flight(fingerprint, new CompletableFuture<>());
+            Flight running = inFlight.putIfAbsent(key, flight);
+            if (running == null) {
+                try {
+                    return executeClaimed(key, fingerprint, execution, flight, deadline);
+                } finally {
+                    inFlight.remove(key, flight);
+                    flight.response().complete(null); // no-op once completed with the response
+                }
+            }
+
+            if (!running.fingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyMismatchException(key);
+            }
+            StoredResponse response = await(key, running, deadline);
+            if (response != null) {
+                return response;
+            }
+            // the running request failed without a response to replay, execute this one
+        }
+    }
+
+    private StoredResponse executeClaimed(String key, String fingerprint, Execution execution, Flight flight,
+                                          Instant deadline) throws IOException, ServletException {
+        while (!claim(key, fingerprint)) {
+            IdempotencyRecord existing = mongoTemplate.findById(key, IdempotencyRecord.class);
+            if (existing == null) {
+                continue; // released or expired meanwhile
+            }
+            if (!existing.getFingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyMismatchException(key);
+            }
+            if (existing.isCompleted()) {
+                StoredResponse response = new StoredResponse(existing.getStatus(), existing.getContentType(),
+                        existing.getBody());
+                flight.response().complete(response);
+                return response;
+            }
+            // held by another instance
+            if (Instant.now().isAfter(deadline)) {
+                throw new IdempotencyKeyInProgressException(key);
+            }
+            sleep(POLL_INTERVAL);
+        }
+
+        StoredResponse response;
+        try {
+            response = execution.run();
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            release(key);
+            throw e;
+        }
+        if (response == null) {
+            release(key);
+        } else {
+            // the response is already written, waiters replay it even if it cannot be stored
+            flight.response().complete(response);
+            store(key, response);
+        }
+        return null;
+    }
+
+    /** @return true when this request now holds the key: it was free, or its holder's lock expired */
+    private boolean claim(String key, String fingerprint) {
+        Instant now = Instant.now();
+        Instant lockedUntil = now.plus(properties.lockTimeout());
+        try {
+            mongoTemplate.insert(new IdempotencyRecord(key, fingerprint, false, lockedUntil, 0, null, null,
+                    lockedUntil.plus(properties.ttl())));
+            return true;
+        } catch (DuplicateKeyException e) {
+            Query stale = Query.query(Criteria.where("_id").is(key).and("completed").is(false)
+                    .and("lockedUntil").lt(now));
+            return mongoTemplate.updateFirst(stale, new Update().set("lockedUntil", lockedUntil)
+                    .set("fingerprint", fingerprint), IdempotencyRecord.class).getModifiedCount() == 1;
+        }
+    }
+
+    /**
+     * Runs outside the request deadline: the request has executed, so running out of time here would leave the
+     * key held until its lock expires. A failure is logged rather than thrown over the response already sent.
+     */
+    private void store(String key, StoredResponse response) {
+        try {
+            QueryDeadline.suspended(() -> mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(key)),
+                    new Update()
+                            .set("completed", true)
+                            .unset("lockedUntil")
+                            .set("status", response.status())
+                            .set("contentType", response.contentType())
+                            .set("body", response.body())
+                            .set("expiresAt", Instant.now().plus(properties.ttl())), IdempotencyRecord.class));
+        } catch (RuntimeException e) {
+            log.warn("Could not store the response for idempotency key {}, it is held until its lock expires", key, e);
+        }
+    }
+
+    /** Runs outside the request deadline, like {@link #store}, so a request that timed out still frees its key. */
+    private void release(String key) {
+        QueryDeadline.suspended(() -> mongoTemplate.remove(
+                Query.query(Criteria.where("_id").is(key).and("completed").is(false)), IdempotencyRecord.class));
+    }
+
+    private static StoredResponse await(String key, Flight running, Instant deadline) {
+        try {
+            long remaining = Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
+            return running.response().get(remaining, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInProgressException(key);
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInProgressException(key);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an idempotency key", e);
+        }
+    }
+}
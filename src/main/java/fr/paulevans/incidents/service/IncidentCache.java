@@ -0,0 +1,101 @@
+package fr.paulevans.incidents.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.paulevans.incidents.config.IncidentCacheProperties;
+import fr.paulevans.incidents.dto.IncidentSummaryDto;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
+import fr.paulevans.incidents.event.IncidentChangesLostEvent;
+import fr.paulevans.incidents.model.Incident;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Local read cache of incidents and of the summary list, evicted on every {@link IncidentChangedEvent},
+ * whether the change happened on this instance or was relayed from another one.
+ * <p>
+ * Concurrent reads of the same key share one database query: through the cache's own per-key loading when
+ * enabled, through a {@link SingleFlight} otherwise, and always for the uncached reads passed to
+ * {@link #coalesce}. Hit rates are published as the {@code cache.*} metrics of the incidents and
+ * incident-summaries caches.
+ */
+@Slf4j
+@Component
+public class IncidentCache {
+
+    private static final String SUMMARIES = "summaries";
+
+    private final boolean enabled;
+    private final Cache<String, Incident> incidents;
+    private final Cache<String, List<IncidentSummaryDto>> summaries;
+
+    private final SingleFlight<String, Incident> incidentLoads;
+    private final SingleFlight<String, List<IncidentSummaryDto>> summaryLoads;
+    private final SingleFlight<String, Object> queries;
+
+    public IncidentCache(IncidentCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.incidents = Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        this.summaries = Caffeine.newBuilder()
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, incidents, "incidents");
+        CaffeineCacheMetrics.monitor(meterRegistry, summaries, "incident-summaries");
+        this.incidentLoads = new SingleFlight<>("incident", meterRegistry);
+        this.summaryLoads = new SingleFlight<>("summaries", meterRegistry);
+        this.queries = new SingleFlight<>("query", meterRegistry);
+    }
+
+    /**
+     * Returns a copy of the cached incident, loading it on a miss. The loader returns null when the incident does
+     * not exist, which is not cached.
+     */
+    public Incident getIncident(String id, Function<String, Incident> loader) {
+        // callers patch what they get, each needs its own copy even of a coalesced load
+        Incident cached = enabled ? incidents.get(id, loader) : incidentLoads.load(id, () -> loader.apply(id));
+        return cached == null ? null : cached.copy();
+    }
+
+    public List<IncidentSummaryDto> getSummaries(Supplier<List<IncidentSummaryDto>> loader) {
+        if (!enabled) {
+            return summaryLoads.load(SUMMARIES, () -> List.copyOf(loader.get()));
+        }
+        return summaries.get(SUMMARIES, key -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * Runs an uncached read, shared with the concurrent calls using the same key. The result is handed to every
+     * caller as is, so it must not be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T coalesce(String key, Supplier<T> loader) {
+        return (T) queries.load(key, loader::get);
+    }
+
+    @EventListener
+    public void onIncidentChanged(IncidentChangedEvent event) {
+        log.debug("Evicting incident {} after {} ({})", event.incidentId(), event.type(),
+                event.remote() ? "remote" : "local");
+        incidents.invalidate(event.incidentId());
+        summaries.invalidateAll();
+    }
+
+    @EventListener
+    public void onIncidentChangesLost(IncidentChangesLostEvent event) {
+        log.debug("Clearing incident cache: {}", event.reason());
+        incidents.invalidateAll();
+        summaries.invalidateAll();
+    }
+}
@@ -0,0 +1,242 @@
+package fr.paulevans.incidents.service;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import fr.paulevans.incidents.config.ChangeStreamProperties;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
+import fr.paulevans.incidents.event.IncidentChangesLostEvent;
+import fr.paulevans.incidents.model.ChangeStreamCheckpoint;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.repository.ChangeStreamCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails the change stream of the incidents collection and republishes every change as an
+ * {@link IncidentChangedEvent}, whichever code path (or instance, or tool) made it.
+ * <p>
+ * Changes are read in batches of {@code batchSize}; a batch is coalesced per incident, dispatched to the
+ * listeners synchronously and then checkpointed, so the cursor is never read ahead of what the listeners
+ * have handled. After a restart the stream resumes after the last checkpoint: at most one batch is
+ * dispatched twice, and nothing is skipped unless the checkpoint fell off the oplog, which is reported
+ * with an {@link IncidentChangesLostEvent}.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "incidents.change-stream", name = "enabled", havingValue = "true")
+public class IncidentChangeStreamSubscriber implements SmartLifecycle {
+
+    /** ChangeStreamHistoryLost and ChangeStreamFatalError: the resume token can no longer be used */
+    private static final List<Integer> UNRESUMABLE_CODES = List.of(286, 280);
+    private static final Duration IDLE_CHECKPOINT_INTERVAL = Duration.ofMinutes(1);
+    private static final Duration STOP_GRACE = Duration.ofSeconds(5);
+
+    record Change(String incidentId, OperationType operation, BsonDocument resumeToken) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ChangeStreamCheckpointRepository checkpointRepository;
+    private final ApplicationEventPublisher events;
+    private final ChangeStreamProperties properties;
+
+    private volatile boolean running;
+    private Instant lastCheckpoint = Instant.EPOCH;
+    private Thread worker;
+
+    public IncidentChangeStreamSubscriber(MongoTemplate mongoTemplate,
+                                          ChangeStreamCheckpointRepository checkpointRepository,
+                                          ApplicationEventPublisher events, ChangeStreamProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.checkpointRepository = checkpointRepository;
+        this.events = events;
+        this.properties = properties;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform().name("incident-change-stream").daemon().start(this::run);
+    }
+
+    /**
+     * Waits for the worker to finish the batch in hand and checkpoint it, it notices within maxAwait since
+     * the cursor returns by then. Only a worker stuck past that is interrupted, so the last checkpoint write
+     * normally completes before the application context (and the Mongo client) is closed.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        try {
+            if (!worker.join(properties.maxAwait().plus(STOP_GRACE))) {
+                worker.interrupt();
+                worker.join(STOP_GRACE);
+            }
+        } catch (InterruptedException e) {
+            worker.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Reopens the stream after any failure, the driver's and the repositories' (translated to
+     * {@code DataAccessException}s) as well as the listeners': the worker only stops with the subscriber.
+     */
+    private void run() {
+        while (running) {
+            try {
+                tailOnce();
+            } catch (RuntimeException e) {
+                if (running) {
+                    pauseAfter(e);
+                }
+            }
+        }
+    }
+
+    private void tailOnce() {
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = open().cursor()) {
+            tail(cursor);
+        } catch (MongoCommandException e) {
+            if (!UNRESUMABLE_CODES.contains(e.getErrorCode())) {
+                throw e;
+            }
+            log.warn("Change stream cannot resume from checkpoint {}, restarting from now",
+                    properties.checkpointId(), e);
+            checkpointRepository.deleteById(properties.checkpointId());
+            events.publishEvent(new IncidentChangesLostEvent(e.getErrorMessage()));
+        }
+    }
+
+    private ChangeStreamIterable<Document> open() {
+        ChangeStreamIterable<Document> stream = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Incident.class))
+                .watch()
+                .batchSize(properties.batchSize())
+                .maxAwaitTime(properties.maxAwait().toMillis(), TimeUnit.MILLISECONDS);
+
+        return checkpointRepository.findById(properties.checkpointId())
+                .map(checkpoint -> stream.resumeAfter(BsonDocument.parse(checkpoint.getResumeToken())))
+                .orElse(stream);
+    }
+
+    private void tail(MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor) {
+        List<Change> batch = new ArrayList<>(properties.batchSize());
+        while (running) {
+            // returns null once the server had nothing new within maxAwait
+            ChangeStreamDocument<Document> document = cursor.tryNext();
+            if (document == null) {
+                if (batch.isEmpty()) {
+                    checkpointIdle(cursor.getResumeToken());
+                } else {
+                    dispatch(batch);
+                    batch.clear();
+                }
+                continue;
+            }
+
+            if (isEndOfStream(document.getOperationType())) {
+                dispatch(batch);
+                checkpointRepository.deleteById(properties.checkpointId());
+                events.publishEvent(new IncidentChangesLostEvent(
+                        "incidents collection saw " + document.getOperationType().getValue()));
+                return;
+            }
+
+            batch.add(new Change(incidentId(document.getDocumentKey()), document.getOperationType(),
+                    document.getResumeToken()));
+            if (batch.size() >= properties.batchSize()) {
+                dispatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /** Publishes one event per incident of the batch, then stores the position after its last change. */
+    void dispatch(List<Change> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, IncidentEventType> changes = new LinkedHashMap<>();
+        for (Change change : batch) {
+            changes.merge(change.incidentId(), eventType(change.operation()), IncidentChangeStreamSubscriber::coalesce);
+        }
+        changes.forEach((id, type) -> events.publishEvent(new IncidentChangedEvent(id, type, true)));
+
+        checkpoint(batch.getLast().resumeToken());
+        log.debug("Dispatched {} changes of {} incidents", batch.size(), changes.size());
+    }
+
+    /**
+     * Keeps moving the checkpoint forward while the collection is quiet, otherwise a long idle period
+     * would leave it behind the oplog window and the next restart could not resume.
+     */
+    private void checkpointIdle(BsonDocument resumeToken) {
+        if (resumeToken != null && lastCheckpoint.plus(IDLE_CHECKPOINT_INTERVAL).isBefore(Instant.now())) {
+            checkpoint(resumeToken);
+        }
+    }
+
+    private void checkpoint(BsonDocument resumeToken) {
+        lastCheckpoint = Instant.now();
+        checkpointRepository.save(new ChangeStreamCheckpoint(properties.checkpointId(), resumeToken.toJson(), lastCheckpoint));
+    }
+
+    /** A creation followed by updates is still a creation for listeners that have not seen it yet */
+    private static IncidentEventType coalesce(IncidentEventType previous, IncidentEventType next) {
+        return previous == IncidentEventType.CREATED && next == IncidentEventType.PATCHED ? previous : next;
+    }
+
+    private static IncidentEventType eventType(OperationType operation) {
+        return switch (operation) {
+            case INSERT -> IncidentEventType.CREATED;
+            case DELETE -> IncidentEventType.DELETED;
+            default -> IncidentEventType.PATCHED;
+        };
+    }
+
+    private static boolean isEndOfStream(OperationType operation) {
+        return operation == OperationType.DROP || operation == OperationType.DROP_DATABASE
+                || operation == OperationType.RENAME || operation == OperationType.INVALIDATE;
+    }
+
+    private static String incidentId(BsonDocument documentKey) {
+        BsonValue id = documentKey.get("_id");
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+
+    private void pauseAfter(Exception e) {
+        log.warn("Change stream failed, reopening in {}", properties.retryBackoff(), e);
+        try {
+            Thread.sleep(properties.retryBackoff());
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
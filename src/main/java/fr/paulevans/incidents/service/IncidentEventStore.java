@@ -0,0 +1,225 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.config.EventSourcingProperties;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentEvent;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.model.IncidentSnapshot;
+import fr.paulevans.incidents.patch.JsonPatchCodec;
+import fr.paulevans.incidents.patch.PatchOperation;
+import fr.paulevans.incidents.patch.PatchPath;
+import fr.paulevans.incidents.repository.IncidentEventRepository;
+import fr.paulevans.incidents.repository.IncidentRepository;
+import fr.paulevans.incidents.repository.IncidentSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Append-only log of incident mutations. The incidents collection is a projection of this log:
+ * it can be rebuilt, or read as of any instant, from the latest snapshot plus the events after it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "incidents.event-sourcing", name = "enabled", havingValue = "true")
+public class IncidentEventStore {
+
+    private static final PatchPath TIMELINE_END = PatchPath.parse("/timeline/-");
+
+    private final IncidentEventRepository eventRepository;
+    private final IncidentSnapshotRepository snapshotRepository;
+    private final IncidentRepository incidentRepository;
+    private final MongoTemplate mongoTemplate;
+    private final IncidentPatcher patcher;
+    private final JsonPatchCodec jsonPatchCodec;
+    private final EventSourcingProperties properties;
+    private final IncidentSummaryService summaries;
+    private final ApplicationEventPublisher events;
+
+    public void appendCreated(Incident incident) {
+        append(null, incident.getId(), IncidentEventType.CREATED, incident, null, null, incident);
+    }
+
+    /**
+     * For writers that retry with the same input: appended once per {@code eventId}, a retry after the event was
+     * recorded does nothing.
+     */
+    public void appendCreated(String eventId, Incident incident) {
+        append(eventId, incident.getId(), IncidentEventType.CREATED, incident, null, null, incident);
+    }
+
+    /** @param result the incident after the patch was applied, used for snapshots */
+    public void appendPatched(Incident result, Map<String, Object> patch) {
+        append(null, result.getId(), IncidentEventType.PATCHED, null, patch, null, result);
+    }
+
+    public void appendPatched(Incident result, List<PatchOperation> operations) {
+        append(null, result.getId(), IncidentEventType.PATCHED, null, null, jsonPatchCodec.writeJsonPatch(operations),
+                result);
+    }
+
+    /**
+     * Records events pushed onto the stored timeline as {@code add /timeline/-} operations, which replay binds
+     * back to timeline events. No snapshot is taken, the writer never holds the resulting state.
+     *
+     * @param eventId when not null, the event is appended once per id, see {@link #appendCreated(String, Incident)}
+     */
+    public void appendTimelineEvents(String eventId, String incidentId, List<Incident.TimelineEvent> appended) {
+        List<PatchOperation> operations = appended.stream()
+                .<PatchOperation>map(event -> new PatchOperation.Add(TIMELINE_END, event))
+                .toList();
+        append(eventId, incidentId, IncidentEventType.PATCHED, null, null, jsonPatchCodec.writeJsonPatch(operations),
+                null);
+    }
+
+    public void appendDeleted(String incidentId) {
+        append(null, incidentId, IncidentEventType.DELETED, null, null, null, null);
+    }
+
+    /** State of the incident as of the given instant, empty if it did not exist (or was deleted) then. */
+    public Optional<Incident> replay(String incidentId, Instant at) {
+        Optional<IncidentSnapshot> snapshot = snapshotRepository
+                .findFirstByIncidentIdAndTimestampLessThanEqualOrderBySequenceDesc(incidentId, at);
+
+        Incident state = snapshot.map(IncidentSnapshot::getState).orElse(null);
+        long fromSequence = snapshot.map(IncidentSnapshot::getSequence).orElse(0L);
+
+        List<IncidentEvent> tail = eventRepository
+                .findByIncidentIdAndSequenceGreaterThanAndTimestampLessThanEqualOrderBySequenceAsc(
+                        incidentId, fromSequence, at);
+        for (IncidentEvent event : tail) {
+            state = apply(state, event);
+        }
+        return Optional.ofNullable(state);
+    }
+
+    /** Re-materializes the incidents projection of one incident from its current event history. */
+    public Optional<Incident> rebuild(String incidentId) {
+        Optional<Incident> state = replay(incidentId, Instant.now());
+        state.ifPresentOrElse(incident -> {
+            // replaces whatever is stored, saved against its current version so concurrent writes still conflict
+            incidentRepository.initVersion(incidentId);
+            incident.setVersion(incidentRepository.findById(incidentId).map(Incident::getVersion).orElse(null));
+            incidentRepository.save(incident);
+            summaries.upsert(incident);
+        }, () -> {
+            incidentRepository.deleteById(incidentId);
+            summaries.delete(incidentId);
+        });
+        events.publishEvent(IncidentChangedEvent.local(incidentId,
+                state.isPresent() ? IncidentEventType.PATCHED : IncidentEventType.DELETED));
+        return state;
+    }
+
+    private Incident apply(Incident state, IncidentEvent event) {
+        return switch (event.getType()) {
+            case CREATED -> event.getState();
+            case PATCHED -> {
+                if (state == null) {
+                    throw new IllegalStateException("Patch event " + event.getSequence()
+                            + " of incident " + event.getIncidentId() + " has no prior state");
+                }
+                if (event.getJsonPatch() != null) {
+                    patcher.apply(state, parseJsonPatch(event.getJsonPatch()));
+                } else {
+                    patcher.apply(state, event.getPatch());
+                }
+                state.setUpdatedAt(event.getTimestamp());
+                yield state;
+            }
+            case DELETED -> null;
+        };
+    }
+
+    private void append(String eventId, String incidentId, IncidentEventType type, Incident state,
+                        Map<String, Object> patch, String jsonPatch, Incident result) {
+        if (eventId != null && eventRepository.existsById(eventId)) {
+            return;
+        }
+        long sequence = eventRepository.findFirstByIncidentIdOrderBySequenceDesc(incidentId)
+                .map(IncidentEvent::getSequence)
+                .orElse(0L) + 1;
+
+        IncidentEvent event = new IncidentEvent(eventId, incidentId, sequence, Instant.now(), type, state, patch, jsonPatch);
+        try {
+            eventRepository.insert(event);
+        } catch (DuplicateKeyException e) {
+            throw new OptimisticLockingFailureException(
+                    "Incident " + incidentId + " was modified concurrently, retry the request", e);
+        }
+
+        if (result != null && snapshotDue(incidentId, sequence)) {
+            snapshotRepository.save(new IncidentSnapshot(null, incidentId, sequence, event.getTimestamp(), result));
+        }
+    }
+
+    /**
+     * Every {@code snapshot-interval} events. An event on the boundary may carry no state (a timeline append),
+     * the snapshot is then taken at the next event that has one.
+     */
+    private boolean snapshotDue(String incidentId, long sequence) {
+        int interval = properties.snapshotInterval();
+        long boundary = sequence - sequence % interval;
+        if (boundary == sequence) {
+            return true;
+        }
+        if (boundary == 0) {
+            return false;
+        }
+        Query latest = Query.query(Criteria.where("incidentId").is(incidentId))
+                .with(Sort.by(Sort.Direction.DESC, "sequence"))
+                .limit(1);
+        latest.fields().include("sequence");
+        IncidentSnapshot snapshot = mongoTemplate.findOne(latest, IncidentSnapshot.class);
+        return snapshot == null || snapshot.getSequence() < boundary;
+    }
+
+    private List<PatchOperation> parseJsonPatch(String document) {
+        try {
+            return jsonPatchCodec.parseJsonPatch(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Folds history older than {@code compact-after} into the most recent snapshot before that horizon:
+     * older snapshots and the events they cover are deleted, so replay never goes further back than it.
+     */
+    @Scheduled(cron = "${incidents.event-sourcing.compaction-cron:0 0 3 * * *}")
+    public void compact() {
+        Instant horizon = Instant.now().minus(properties.compactAfter());
+        List<String> incidentIds = mongoTemplate.findDistinct(
+                Query.query(Criteria.where("timestamp").lte(horizon)), "incidentId", IncidentSnapshot.class, String.class);
+
+        for (String incidentId : incidentIds) {
+            snapshotRepository.findFirstByIncidentIdAndTimestampLessThanEqualOrderBySequenceDesc(incidentId, horizon)
+                    .ifPresent(snapshot -> {
+                        snapshotRepository.deleteByIncidentIdAndSequenceLessThan(incidentId, snapshot.getSequence());
+                        // the event at the snapshot sequence is kept so sequences keep increasing
+                        eventRepository.deleteByIncidentIdAndSequenceLessThan(incidentId, snapshot.getSequence());
+                    });
+        }
+        log.info("Compacted event history of {} incidents up to {}", incidentIds.size(), horizon);
+    }
+}
@@ -0,0 +1,292 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.exceptions.InvalidPatchException;
+import fr.paulevans.incidents.exceptions.PatchTargetNotFoundException;
+import fr.paulevans.incidents.exceptions.PatchTestFailedException;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.patch.IncidentSchema;
+import fr.paulevans.incidents.patch.PatchOperation;
+import fr.paulevans.incidents.patch.PatchPath;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/** Applies a patch (JSON map or typed operations) to an incident, without validating or saving it. */
+@Component
+public class IncidentPatcher {
+
+    private static final String OP = "_op";
+    private static final String OP_REMOVE = "remove";
+    private static final String OP_ADD = "add";
+    private static final List<String> ARRAYS = List.of("notes", "timeline");
+
+    /** Single patch method with nested ID-based support, returns what it touched */
+    public PatchedFields apply(Incident incident, Map<String, Object> updates) {
+        PatchedFields patched = PatchedFields.empty();
+        updates.forEach((fieldName, newValue) -> {
+            // Handle nested lists separately
+            if ("notes".equals(fieldName) && newValue instanceof List<?> notesList) {
+                patchNotes(incident, notesList, patched.notes());
+            } else if ("timeline".equals(fieldName) && newValue instanceof List<?> eventsList) {
+                patchTimeline(incident, eventsList, patched.timelineEvents());
+            } else {
+                IncidentSchema.Property<Incident> property = IncidentSchema.INCIDENT.get(fieldName);
+                if (property == null) {
+                    throw new IllegalArgumentException("Invalid field: " + fieldName);
+                }
+                property.setter().accept(incident, convertValue(property, newValue));
+            }
+            patched.properties().add(fieldName);
+        });
+        return patched;
+    }
+
+    /**
+     * Copy of a map patch in which every new element carries the id it gets, marked {@code "_op": "add"},
+     * so that recording and replaying the patch creates the same elements.
+     */
+    public Map<String, Object> assignElementIds(Map<String, Object> updates) {
+        Map<String, Object> assigned = new LinkedHashMap<>(updates);
+        for (String property : ARRAYS) {
+            if (!(updates.get(property) instanceof List<?> patches)) continue;
+            List<Object> copies = new ArrayList<>(patches.size());
+            for (Object obj : patches) {
+                if (obj instanceof Map<?, ?> patch && patch.get("id") == null && patch.get(OP) == null) {
+                    Map<Object, Object> copy = new LinkedHashMap<>(patch);
+                    copy.put("id", new ObjectId().toHexString());
+                    copy.put(OP, OP_ADD);
+                    copies.add(copy);
+                } else {
+                    copies.add(obj);
+                }
+            }
+            assigned.put(property, copies);
+        }
+        return assigned;
+    }
+
+    /** Applies typed JSON Patch / Merge Patch operations in order, returns what they touched */
+    public PatchedFields apply(Incident incident, List<PatchOperation> operations) {
+        PatchedFields patched = PatchedFields.empty();
+        for (PatchOperation operation : operations) {
+            switch (operation) {
+                case PatchOperation.Add add -> write(incident, add.path(), add.value(), true, patched);
+                case PatchOperation.Replace replace -> write(incident, replace.path(), replace.value(), false, patched);
+                case PatchOperation.Remove remove -> remove(incident, remove.path(), patched);
+                case PatchOperation.Move move -> {
+                    List<Object> elements = mutableArray(incident, move.path().property());
+                    Object element = elements.remove(checkIndex(elements, move.from(), false));
+                    elements.add(checkIndex(elements, move.path(), true), element);
+                }
+                case PatchOperation.Test test -> {
+                    if (!Objects.equals(read(incident, test.path()), test.value())) {
+                        throw new PatchTestFailedException(test.path().toString());
+                    }
+                }
+            }
+        }
+        return patched;
+    }
+
+    private void write(Incident incident, PatchPath path, Object value, boolean insert, PatchedFields patched) {
+        if (path.index() == null) {
+            IncidentSchema.INCIDENT.get(path.property()).setter().accept(incident, value);
+            patched.properties().add(path.property());
+            // a replaced list is new content, validate all of its elements
+            if (value instanceof List<?> elements) elements.forEach(patched::touchElement);
+            return;
+        }
+
+        List<Object> elements = mutableArray(incident, path.property());
+        if (path.elementProperty() == null) {
+            ensureId(value);
+            if (insert) {
+                elements.add(checkIndex(elements, path, true), value);
+            } else {
+                patched.untouchElement(elements.set(checkIndex(elements, path, false), value));
+            }
+            patched.touchElement(value);
+        } else {
+            Object element = elements.get(checkIndex(elements, path, false));
+            elementProperty(path).setter().accept(element, value);
+            patched.touchElement(element);
+        }
+    }
+
+    private void remove(Incident incident, PatchPath path, PatchedFields patched) {
+        if (path.index() == null) {
+            IncidentSchema.INCIDENT.get(path.property()).setter().accept(incident, null);
+            patched.properties().add(path.property());
+            return;
+        }
+
+        List<Object> elements = mutableArray(incident, path.property());
+        if (path.elementProperty() == null) {
+            patched.untouchElement(elements.remove(checkIndex(elements, path, false)));
+        } else {
+            Object element = elements.get(checkIndex(elements, path, false));
+            elementProperty(path).setter().accept(element, null);
+            patched.touchElement(element);
+        }
+    }
+
+    private Object read(Incident incident, PatchPath path) {
+        if (path.index() == null) {
+            return IncidentSchema.INCIDENT.get(path.property()).getter().apply(incident);
+        }
+        List<Object> elements = IncidentSchema.ARRAYS.get(path.property()).getter().apply(incident);
+        Object element = (elements == null ? List.of() : elements).get(checkIndex(elements, path, false));
+        return path.elementProperty() == null ? element : elementProperty(path).getter().apply(element);
+    }
+
+    /** The incident's list for this array, replaced by a mutable copy the first time it is modified. */
+    private List<Object> mutableArray(Incident incident, String property) {
+        IncidentSchema.ArrayProperty array = IncidentSchema.ARRAYS.get(property);
+        List<Object> elements = array.getter().apply(incident);
+        if (!(elements instanceof ArrayList<Object>)) {
+            elements = elements == null ? new ArrayList<>() : new ArrayList<>(elements);
+            array.setter().accept(incident, elements);
+        }
+        return elements;
+    }
+
+    private static int checkIndex(List<?> elements, PatchPath path, boolean insert) {
+        int size = elements == null ? 0 : elements.size();
+        int index = path.index();
+        if (insert && index == PatchPath.END) {
+            return size;
+        }
+        if (index < 0 || index > size || (!insert && index == size)) {
+            throw new PatchTargetNotFoundException(List.of(path + ": index out of range (size " + size + ")"));
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IncidentSchema.Property<Object> elementProperty(PatchPath path) {
+        return (IncidentSchema.Property<Object>) IncidentSchema.ARRAYS.get(path.property())
+                .elementProperties().get(path.elementProperty());
+    }
+
+    private static void ensureId(Object element) {
+        if (element instanceof Incident.Note note && note.getId() == null) {
+            note.setId(new ObjectId().toHexString());
+        } else if (element instanceof Incident.TimelineEvent event && event.getId() == null) {
+            event.setId(new ObjectId().toHexString());
+        }
+    }
+
+    /** Patch individual notes by ID */
+    private void patchNotes(Incident incident, List<?> notesList, Set<Incident.Note> touched) {
+        incident.setNotes(patchElements("notes", incident.getNotes(), notesList, IncidentSchema.NOTE,
+                Incident.Note::new, Incident.Note::getId, Incident.Note::setId, touched));
+    }
+
+    private void patchTimeline(Incident incident, List<?> eventsList, Set<Incident.TimelineEvent> touched) {
+        incident.setTimeline(patchElements("timeline", incident.getTimeline(), eventsList, IncidentSchema.TIMELINE_EVENT,
+                Incident.TimelineEvent::new, Incident.TimelineEvent::getId, Incident.TimelineEvent::setId, touched));
+    }
+
+    /**
+     * Applies a batch of element patches in one pass over an id index built once per request.
+     * Each patch updates the element with its id, inserts a new element when it has no id (or
+     * carries {@code "_op": "add"} with the id to give it), or removes it when it carries
+     * {@code "_op": "remove"}. Unknown ids to update or remove are all reported together.
+     */
+    private <T> List<T> patchElements(String property, List<T> current, List<?> patches,
+                                      Map<String, IncidentSchema.Property<T>> properties,
+                                      Supplier<T> factory, Function<T, String> idOf, BiConsumer<T, String> setId,
+                                      Set<T> touched) {
+        List<T> elements = current == null ? new ArrayList<>() : new ArrayList<>(current);
+        Map<String, Integer> positions = HashMap.newHashMap(elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            String id = idOf.apply(elements.get(i));
+            if (id != null) positions.put(id, i);
+        }
+
+        BitSet removed = new BitSet(elements.size());
+        List<String> missing = new ArrayList<>();
+        for (Object obj : patches) {
+            if (!(obj instanceof Map<?, ?> patch)) {
+                throw new InvalidPatchException(property + ": element patches must be objects");
+            }
+
+            String id = (String) patch.get("id");
+            Integer position = id == null ? null : positions.get(id);
+            Object op = patch.get(OP);
+
+            if (OP_REMOVE.equals(op)) {
+                if (position == null) {
+                    missing.add(property + ": no element with id " + id);
+                } else {
+                    positions.remove(id);
+                    removed.set(position);
+                    touched.remove(elements.get(position));
+                }
+                continue;
+            }
+
+            T element;
+            if (id == null || OP_ADD.equals(op)) {
+                if (position != null) {
+                    throw new InvalidPatchException(property + ": an element with id " + id + " already exists");
+                }
+                element = factory.get();
+                setId.accept(element, id != null ? id : new ObjectId().toHexString());
+                positions.put(idOf.apply(element), elements.size());
+                elements.add(element);
+            } else if (position == null) {
+                // a mistyped id must not create a partial element
+                missing.add(property + ": no element with id " + id);
+                continue;
+            } else {
+                element = elements.get(position);
+            }
+            touched.add(element);
+            setFields(element, properties, patch);
+        }
+
+        if (!missing.isEmpty()) {
+            throw new PatchTargetNotFoundException(missing);
+        }
+        if (removed.isEmpty()) {
+            return elements;
+        }
+        List<T> kept = new ArrayList<>(elements.size() - removed.cardinality());
+        for (int i = 0; i < elements.size(); i++) {
+            if (!removed.get(i)) kept.add(elements.get(i));
+        }
+        return kept;
+    }
+
+    private <T> void setFields(T element, Map<String, IncidentSchema.Property<T>> properties, Map<?, ?> patch) {
+        patch.forEach((k, v) -> {
+            // the id addressed the element, it is not patchable
+            if (OP.equals(k) || "id".equals(k)) return;
+            IncidentSchema.Property<T> property = properties.get(k);
+            if (property == null) {
+                throw new IllegalArgumentException("Invalid " + element.getClass().getSimpleName() + " field: " + k);
+            }
+            property.setter().accept(element, convertValue(property, v));
+        });
+    }
+
+    // ---- Type conversion ----
+
+    private static Object convertValue(IncidentSchema.Property<?> property, Object value) {
+        if (value == null) return null;
+        Class<?> type = property.type().getRawClass();
+        if (type == Instant.class && value instanceof String s) {
+            return Instant.parse(s);
+        }
+        if (type.isInstance(value)) {
+            return value;
+        }
+        throw new IllegalArgumentException("Cannot convert " + value.getClass() + " to " + type);
+    }
+}
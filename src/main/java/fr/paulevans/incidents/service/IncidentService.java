@@ -1,17 +1,27 @@
 package fr.paulevans.incidents.service;
 
+import fr.paulevans.incidents.config.QueryProperties;
+import fr.paulevans.incidents.dto.ElementPage;
 import fr.paulevans.incidents.dto.IncidentSummaryDto;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
 import fr.paulevans.incidents.exceptions.IncidentValidationException;
 import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.patch.PatchOperation;
 import fr.paulevans.incidents.repository.IncidentRepository;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
 import java.time.Instant;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -19,29 +29,82 @@ public class IncidentService {
 
     private final IncidentRepository incidentRepository;
     private final Validator validator;
-
-    public IncidentService(IncidentRepository incidentRepository, Validator validator) {
+    private final IncidentPatcher patcher;
+    private final Optional<IncidentEventStore> eventStore;
+    private final IncidentSummaryService summaries;
+    private final IncidentCache cache;
+    private final ApplicationEventPublisher events;
+    private final ObservationRegistry observations;
+    private final QueryProperties queries;
+
+    public IncidentService(IncidentRepository incidentRepository, Validator validator,
+                           IncidentPatcher patcher, Optional<IncidentEventStore> eventStore,
+                           IncidentSummaryService summaries, IncidentCache cache, ApplicationEventPublisher events,
+                           ObservationRegistry observations, QueryProperties queries) {
         this.incidentRepository = incidentRepository;
         this.validator = validator;
+        this.patcher = patcher;
+        this.eventStore = eventStore;
+        this.summaries = summaries;
+        this.cache = cache;
+        this.events = events;
+        this.observations = observations;
+        this.queries = queries;
     }
 
-    public List<Incident> getAllIncidents() {
-        return incidentRepository.findAll();
+    /** Streamed from a cursor instead of loaded whole; the caller closes the stream. */
+    public Stream<Incident> getAllIncidents() {
+        return incidentRepository.streamAll(queries.streamBatchSize());
     }
 
     public List<IncidentSummaryDto> getAllIncidentSummaries() {
-        return incidentRepository.findAllSummaries().stream()
-                .map(IncidentSummaryDto::from)
-                .toList();
+        return cache.getSummaries(summaries::findAll);
+    }
+
+    /** Newest first, through the tags index of the summaries; not cached, there is one result per tag. */
+    public List<IncidentSummaryDto> getIncidentSummariesByTag(String tag) {
+        return cache.coalesce("summaries?tag=" + tag, () -> summaries.findByTag(tag));
     }
 
     public Incident getIncidentById(String id) {
-        return incidentRepository.findById(id)
+        Incident incident = cache.getIncident(id, key -> incidentRepository.findById(key).orElse(null));
+        if (incident == null) {
+            throw new NoSuchElementException();
+        }
+        return incident;
+    }
+
+    /**
+     * The stored incident, bypassing the cache: a patch is applied to this copy and saved against its
+     * version, so it must not start from a cached copy that may be older than the last write.
+     */
+    public Incident getIncidentForUpdate(String id) {
+        return incidentRepository.findById(id).orElseThrow(NoSuchElementException::new);
+    }
+
+    public Incident getIncidentById(String id, int timelineLimit, int notesLimit) {
+        return cache.coalesce("incident/" + id + "?timeline=" + timelineLimit + "&notes=" + notesLimit,
+                        () -> incidentRepository.findByIdWithLatest(id, timelineLimit, notesLimit))
+                .orElseThrow(NoSuchElementException::new);
+    }
+
+    public ElementPage<Incident.TimelineEvent> getTimelinePage(String id, int limit, String before) {
+        return incidentRepository.findElementPage(id, "timeline", Incident.TimelineEvent.class, limit, before)
+                .orElseThrow(NoSuchElementException::new);
+    }
+
+    public ElementPage<Incident.Note> getNotesPage(String id, int limit, String before) {
+        return incidentRepository.findElementPage(id, "notes", Incident.Note.class, limit, before)
                 .orElseThrow(NoSuchElementException::new);
     }
 
     public Incident saveIncident(Incident incident) {
-        return incidentRepository.save(incident);
+        Incident saved = incidentRepository.save(incident);
+        // recorded once the incident exists, a failed insert leaves no event behind
+        eventStore.ifPresent(store -> store.appendCreated(saved));
+        summaries.upsert(saved);
+        events.publishEvent(IncidentChangedEvent.local(saved.getId(), IncidentEventType.CREATED));
+        return saved;
     }
 
     public boolean existsById(String id) {
@@ -50,97 +113,93 @@ public class IncidentService {
 
     public void deleteIncident(String id) {
         incidentRepository.deleteById(id);
+        eventStore.ifPresent(store -> store.appendDeleted(id));
+        summaries.delete(id);
+        events.publishEvent(IncidentChangedEvent.local(id, IncidentEventType.DELETED));
     }
 
     /** Single patch method with nested ID-based support */
     public Incident patchIncident(Incident incident, Map<String, Object> updates) {
-        updates.forEach((fieldName, newValue) -> {
-            try {
-                // Handle nested lists separately
-                if ("notes".equals(fieldName) && newValue instanceof List<?> notesList) {
-                    patchNotes(incident, notesList);
-                } else if ("timeline".equals(fieldName) && newValue instanceof List<?> eventsList) {
-                    patchTimeline(incident, eventsList);
-                } else {
-                    Field field = Incident.class.getDeclaredField(fieldName);
-                    field.setAccessible(true);
-                    Object converted = convertValueToFieldType(field, newValue);
-                    field.set(incident, converted);
-                }
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new IllegalArgumentException("Invalid field: " + fieldName, e);
-            }
-        });
+        // new elements get their ids before the patch is applied and recorded, replay gives them the same
+        Map<String, Object> assigned = patcher.assignElementIds(updates);
+        int timelineCount = timelineCount(incident);
+        PatchedFields patched = observe("apply", () -> patcher.apply(incident, assigned));
+        return savePatched(incident, patched, timelineCount, store -> store.appendPatched(incident, assigned));
+    }
+
+    /** Applies operations parsed from a JSON Patch or Merge Patch document */
+    public Incident applyPatchOperations(Incident incident, List<PatchOperation> operations) {
+        int timelineCount = timelineCount(incident);
+        PatchedFields patched = observe("apply", () -> patcher.apply(incident, operations));
+        return savePatched(incident, patched, timelineCount, store -> store.appendPatched(incident, operations));
+    }
 
-        // Validate patched object
-        Set<ConstraintViolation<Incident>> violations = validator.validate(incident);
+    private static int timelineCount(Incident incident) {
+        return incident.getTimeline() == null ? 0 : incident.getTimeline().size();
+    }
+
+    /** @param timelineCountBefore size of the timeline the patch was applied to */
+    private Incident savePatched(Incident incident, PatchedFields patched, int timelineCountBefore,
+                                 Consumer<IncidentEventStore> appendEvent) {
+        // Validate only what the patch touched
+        List<String> violations = observe("validate", () -> validatePatched(incident, patched));
         if (!violations.isEmpty()) {
             throw new IncidentValidationException(violations);
         }
 
         incident.setUpdatedAt(Instant.now());
-        return saveIncident(incident);
-    }
-
-    /** Patch individual notes by ID */
-    private void patchNotes(Incident incident, List<?> notesList) {
-        for (Object obj : notesList) {
-            if (!(obj instanceof Map<?, ?> noteMap)) continue;
-
-            String id = (String) noteMap.get("id");
-            Incident.Note note = incident.getNotes().stream()
-                    .filter(n -> n.getId().equals(id))
-                    .findFirst()
-                    .orElseThrow(() -> new NoSuchElementException("Note not found: " + id));
-
-            noteMap.forEach((k, v) -> {
-                try {
-                    Field field = Incident.Note.class.getDeclaredField((String) k);
-                    field.setAccessible(true);
-                    field.set(note, convertValueToFieldType(field, v));
-                } catch (NoSuchFieldException | IllegalAccessException e) {
-                    throw new IllegalArgumentException("Invalid Note field: " + k, e);
-                }
-            });
+        if (incident.getVersion() == null) {
+            incidentRepository.initVersion(incident.getId());
+            incident.setVersion(0L);
         }
+        Incident saved = observe("save", () -> {
+            // fails with an OptimisticLockingFailureException if anything wrote since the incident was read,
+            // so the event is only recorded for a patch that was saved
+            Incident result = incidentRepository.save(incident);
+            eventStore.ifPresent(appendEvent);
+            summaries.upsertPatched(result, timelineCountBefore);
+            return result;
+        });
+        events.publishEvent(IncidentChangedEvent.local(saved.getId(), IncidentEventType.PATCHED));
+        return saved;
     }
 
-    private void patchTimeline(Incident incident, List<?> eventsList) {
-        for (Object obj : eventsList) {
-            if (!(obj instanceof Map<?, ?> eventMap)) continue;
-
-            String id = (String) eventMap.get("id");
-            Incident.TimelineEvent event = incident.getTimeline().stream()
-                    .filter(e -> e.getId().equals(id))
-                    .findFirst()
-                    .orElseThrow(() -> new NoSuchElementException("TimelineEvent not found: " + id));
-
-            eventMap.forEach((k, v) -> {
-                try {
-                    Field field = Incident.TimelineEvent.class.getDeclaredField((String) k);
-                    field.setAccessible(true);
-                    field.set(event, convertValueToFieldType(field, v));
-                } catch (NoSuchFieldException | IllegalAccessException e) {
-                    throw new IllegalArgumentException("Invalid TimelineEvent field: " + k, e);
-                }
-            });
-        }
+    /** A span per patch stage, the Mongo commands of the stage become its children */
+    private <T> T observe(String stage, Supplier<T> work) {
+        return Observation.createNotStarted("incidents.patch", observations)
+                .contextualName("patch " + stage)
+                .lowCardinalityKeyValue("stage", stage)
+                .observe(work);
     }
 
-    // ---- Type conversion ----
-
-    private Object convertValueToFieldType(Field field, Object value) {
-        if (value == null) return null;
-        Class<?> type = field.getType();
-        if (type.isEnum() && value instanceof String s) {
-            return Enum.valueOf((Class<Enum>) type, s);
+    /**
+     * Validates the patched properties and elements instead of the whole object graph, so the cost
+     * follows the size of the patch. Reports the same paths as a full validation would.
+     */
+    private List<String> validatePatched(Incident incident, PatchedFields patched) {
+        List<String> violations = new ArrayList<>();
+        for (String property : patched.properties()) {
+            validator.validateProperty(incident, property)
+                    .forEach(v -> violations.add(v.getPropertyPath() + ": " + v.getMessage()));
+        }
+        for (Incident.Note note : patched.notes()) {
+            addElementViolations(violations, "notes", incident.getNotes(), note);
         }
-        if (type == Instant.class && value instanceof String s) {
-            return Instant.parse(s);
+        for (Incident.TimelineEvent event : patched.timelineEvents()) {
+            addElementViolations(violations, "timeline", incident.getTimeline(), event);
         }
-        if (type.isAssignableFrom(value.getClass())) {
-            return value;
+        return violations;
+    }
+
+    private <T> void addElementViolations(List<String> violations, String property, List<T> elements, T element) {
+        Set<ConstraintViolation<T>> elementViolations = validator.validate(element);
+        if (elementViolations.isEmpty()) return;
+
+        // only looked up on failure, the element position is needed for the reported path
+        int index = 0;
+        while (elements.get(index) != element) index++;
+        for (ConstraintViolation<T> v : elementViolations) {
+            violations.add(property + "[" + index + "]." + v.getPropertyPath() + ": " + v.getMessage());
         }
-        throw new IllegalArgumentException("Cannot convert " + value.getClass() + " to " + type);
     }
 }
@@ -0,0 +1,167 @@
+package fr.paulevans.incidents.service;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import fr.paulevans.incidents.config.MongoClientProperties;
+import fr.paulevans.incidents.dto.IncidentSummaryDto;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentSummary;
+import fr.paulevans.incidents.repository.CursorStreams;
+import fr.paulevans.incidents.repository.IncidentSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Maintains incident_summaries next to the incidents collection. Every write path updates the summary of the
+ * incidents it touched, from the state it already holds, so keeping it current costs no extra read.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IncidentSummaryService implements SmartInitializingSingleton {
+
+    static final String BACKFILL_ID = "backfill-incident-summaries";
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final IncidentSummaryRepository summaryRepository;
+    private final MongoTemplate mongoTemplate;
+    private final MongoClientProperties mongoProperties;
+
+    /** The dashboard list, which may be read from a secondary, see {@link MongoClientProperties#dashboardReads()} */
+    public List<IncidentSummaryDto> findAll() {
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.DESC, "createdAt"))
+                .withReadPreference(mongoProperties.dashboardReads().toReadPreference());
+        return mongoTemplate.find(query, IncidentSummary.class).stream()
+                .map(IncidentSummaryDto::from)
+                .toList();
+    }
+
+    public List<IncidentSummaryDto> findByTag(String tag) {
+        return summaryRepository.findByTagsOrderByCreatedAtDesc(tag).stream()
+                .map(IncidentSummaryDto::from)
+                .toList();
+    }
+
+    /** Writes the whole summary, for an incident just created or rebuilt from its history. */
+    public void upsert(Incident incident) {
+        summaryRepository.save(IncidentSummary.of(incident));
+    }
+
+    /**
+     * Updates the summary of a patched incident field by field instead of replacing it: the timeline count moves
+     * by what the patch changed and last activity only forward, so that {@link #recordTimelineAppends} of
+     * events pushed concurrently, before or after, are kept whichever write lands first.
+     *
+     * @param timelineCountBefore size of the timeline the patch was applied to
+     */
+    public void upsertPatched(Incident incident, int timelineCountBefore) {
+        IncidentSummary summary = IncidentSummary.of(incident);
+        Update update = new Update()
+                .set("title", summary.getTitle())
+                .set("summary", summary.getSummary())
+                .set("severity", summary.getSeverity())
+                .set("status", summary.getStatus())
+                .set("createdBy", summary.getCreatedBy())
+                .set("createdAt", summary.getCreatedAt())
+                .set("resolutionNote", summary.getResolutionNote())
+                .set("resolvedAt", summary.getResolvedAt())
+                .set("tags", summary.getTags())
+                .set("noteCount", summary.getNoteCount())
+                .inc("timelineCount", summary.getTimelineCount() - timelineCountBefore)
+                .max("lastActivityAt", summary.getLastActivityAt());
+        if (mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(incident.getId())), update,
+                IncidentSummary.class).getMatchedCount() == 0) {
+            upsert(incident); // missing, e.g. dropped since the backfill
+        }
+    }
+
+    public void upsertAll(Collection<Incident> incidents) {
+        if (incidents.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, IncidentSummary.class);
+        for (Incident incident : incidents) {
+            bulk.replaceOne(Query.query(Criteria.where("_id").is(incident.getId())), IncidentSummary.of(incident),
+                    FindAndReplaceOptions.options().upsert());
+        }
+        bulk.execute();
+    }
+
+    /** Applies timeline appends without reading the incidents: counters go up, last activity only moves forward. */
+    public void recordTimelineAppends(Map<String, Integer> appendsPerIncident, Instant at) {
+        if (appendsPerIncident.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, IncidentSummary.class);
+        appendsPerIncident.forEach((id, count) -> bulk.updateOne(
+                Query.query(Criteria.where("_id").is(id)),
+                new Update().inc("timelineCount", count).max("lastActivityAt", at)));
+        bulk.execute();
+    }
+
+    public void delete(String incidentId) {
+        summaryRepository.deleteById(incidentId);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfillIfEmpty();
+    }
+
+    /**
+     * Fills the collection from the incidents on first start after an upgrade, or after it was dropped. Runs
+     * while the context starts, before the instance takes traffic and before the indexes load the summaries.
+     * Completion is recorded in the migrations collection: a backfill interrupted part way leaves summaries
+     * behind, and would otherwise never be resumed.
+     */
+    public void backfillIfEmpty() {
+        MongoCollection<Document> migrations = mongoTemplate.getCollection("migrations");
+        if (migrations.find(Filters.eq("_id", BACKFILL_ID)).first() != null && summaryRepository.count() > 0) {
+            return;
+        }
+        List<Incident> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+        long total = 0;
+        try (Stream<Incident> incidents = CursorStreams.streamAll(mongoTemplate, Incident.class, BACKFILL_BATCH_SIZE)) {
+            for (Incident incident : (Iterable<Incident>) incidents::iterator) {
+                batch.add(incident);
+                if (batch.size() == BACKFILL_BATCH_SIZE) {
+                    total += flush(batch);
+                }
+            }
+        }
+        total += flush(batch);
+        migrations.updateOne(Filters.eq("_id", BACKFILL_ID), Updates.setOnInsert("appliedAt", new Date()),
+                new UpdateOptions().upsert(true));
+        if (total > 0) {
+            log.info("Backfilled {} incident summaries", total);
+        }
+    }
+
+    private int flush(List<Incident> batch) {
+        int size = batch.size();
+        upsertAll(batch);
+        batch.clear();
+        return size;
+    }
+}
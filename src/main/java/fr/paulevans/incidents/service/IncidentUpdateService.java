@@ -1,14 +1,18 @@
 package fr.paulevans.incidents.service;
 
-import fr.paulevans.incidents.model.Incident;
-import fr.paulevans.incidents.model.IncidentStatus;
+import fr.paulevans.incidents.config.IncidentUpdateProperties;
 import fr.paulevans.incidents.model.IncidentUpdate;
-import fr.paulevans.incidents.repository.IncidentRepository;
-import fr.paulevans.incidents.repository.IncidentUpdateRepository;
+import fr.paulevans.incidents.model.IncidentUpdateBucket;
+import fr.paulevans.incidents.repository.IncidentUpdateBucketRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
 import java.time.Instant;
 import java.util.*;
 
@@ -16,10 +20,14 @@ import java.util.*;
 @RequiredArgsConstructor
 public class IncidentUpdateService {
 
-    private final IncidentUpdateRepository incidentUpdateRepository;
+    private final IncidentUpdateBucketRepository incidentUpdateBucketRepository;
+    private final MongoTemplate mongoTemplate;
+    private final IncidentUpdateProperties properties;
 
     public List<IncidentUpdate> getAllIncidentUpdatesForIncidentId(String incidentId) {
-        return this.incidentUpdateRepository.findAll();
+        return this.incidentUpdateBucketRepository.findByIncidentIdOrderByBucketStartAscSequenceAscIdAsc(incidentId).stream()
+                .flatMap(bucket -> bucket.getUpdates().stream())
+                .toList();
     }
 
     public Optional<IncidentUpdate> saveIncidentUpdate(String incidentId, Map<String, Map<String, Object>> changes) {
@@ -30,10 +38,59 @@ public class IncidentUpdateService {
         }
 
         IncidentUpdate update = new IncidentUpdate();
-        update.setIncidentId(incidentId);
         update.setTimestamp(Instant.now());
         update.setChanges(changes);
 
-        return Optional.of(incidentUpdateRepository.save(update));
+        appendToBucket(incidentId, update);
+        return Optional.of(update);
     }
-}
\ No newline at end of file
+
+    /**
+     * Pushes the update into the last bucket of the window, or opens the next one once it is full. The upsert
+     * targets one sequence number, unique per window: writers opening the same bucket concurrently end up in it,
+     * and one finding the bucket filled meanwhile fails on the index and looks again.
+     */
+    private void appendToBucket(String incidentId, IncidentUpdate update) {
+        Instant bucketStart = bucketStart(update.getTimestamp());
+
+        Update bucketUpdate = new Update()
+                .push("updates", update)
+                .inc("count", 1)
+                .set("lastUpdatedAt", update.getTimestamp())
+                .set("expiresAt", bucketStart.plus(properties.bucketSpan()).plus(properties.retention()));
+
+        while (true) {
+            Query query = Query.query(Criteria.where("incidentId").is(incidentId)
+                    .and("bucketStart").is(bucketStart)
+                    .and("sequence").is(openSequence(incidentId, bucketStart))
+                    .and("count").lt(properties.bucketMaxEntries()));
+            try {
+                mongoTemplate.upsert(query, bucketUpdate, IncidentUpdateBucket.class);
+                return;
+            } catch (DuplicateKeyException e) {
+                // the bucket was filled since it was looked up
+            }
+        }
+    }
+
+    /** Sequence of the last bucket of the window, or of the next one when it is full */
+    private int openSequence(String incidentId, Instant bucketStart) {
+        Query last = Query.query(Criteria.where("incidentId").is(incidentId)
+                        .and("bucketStart").is(bucketStart)
+                        .and("sequence").exists(true))
+                .with(Sort.by(Sort.Direction.DESC, "sequence"))
+                .limit(1);
+        last.fields().include("sequence", "count");
+        IncidentUpdateBucket bucket = mongoTemplate.findOne(last, IncidentUpdateBucket.class);
+        if (bucket == null) {
+            return 0;
+        }
+        return bucket.getCount() < properties.bucketMaxEntries() ? bucket.getSequence() : bucket.getSequence() + 1;
+    }
+
+    Instant bucketStart(Instant timestamp) {
+        long spanMillis = properties.bucketSpan().toMillis();
+        long epochMillis = timestamp.toEpochMilli();
+        return Instant.ofEpochMilli(epochMillis - Math.floorMod(epochMillis, spanMillis));
+    }
+}
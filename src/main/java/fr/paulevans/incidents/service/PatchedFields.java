@@ -0,0 +1,34 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.model.Incident;
+
+import java.util.*;
+
+/**
+ * What a patch touched: top-level properties and the individual notes and timeline events it modified.
+ * Elements are tracked by identity since their equality changes as they are patched.
+ */
+public record PatchedFields(
+        Set<String> properties,
+        Set<Incident.Note> notes,
+        Set<Incident.TimelineEvent> timelineEvents
+) {
+
+    static PatchedFields empty() {
+        return new PatchedFields(
+                new LinkedHashSet<>(),
+                Collections.newSetFromMap(new IdentityHashMap<>()),
+                Collections.newSetFromMap(new IdentityHashMap<>())
+        );
+    }
+
+    void touchElement(Object element) {
+        if (element instanceof Incident.Note note) notes.add(note);
+        else if (element instanceof Incident.TimelineEvent event) timelineEvents.add(event);
+    }
+
+    void untouchElement(Object element) {
+        notes.remove(element);
+        timelineEvents.remove(element);
+    }
+}
@@ -0,0 +1,80 @@
+package fr.paulevans.incidents.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.paulevans.incidents.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-client, per-endpoint token buckets. Buckets live in a bounded Caffeine cache, whose striped internals
+ * and the lock-free {@link TokenBucket} keep the limiter free of shared locks on the request path.
+ * Throttled requests are counted as {@code incidents.rate-limit.rejected}, tagged with the endpoint rule.
+ */
+@Service
+public class RateLimiter {
+
+    /** Outcome of one request, with what the rate-limit response headers report. */
+    public record Decision(boolean allowed, int limit, long remaining, long resetSeconds, long retryAfterSeconds) {
+    }
+
+    private record Rule(String name, String method, PathPattern pattern, int capacity, double refillPerSecond,
+                        Counter rejected) {
+
+        boolean matches(String requestMethod, PathContainer path) {
+            return (method == null || method.equalsIgnoreCase(requestMethod)) && (pattern == null || pattern.matches(path));
+        }
+    }
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final Cache<String, TokenBucket> buckets;
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        for (RateLimitProperties.Endpoint endpoint : properties.endpoints()) {
+            String name = (endpoint.method() != null ? endpoint.method() + " " : "") + endpoint.pattern();
+            rules.add(new Rule(name, endpoint.method(), PathPatternParser.defaultInstance.parse(endpoint.pattern()),
+                    endpoint.capacity(), endpoint.refillPerSecond(), rejectedCounter(meterRegistry, name)));
+        }
+        rules.add(new Rule("default", null, null, properties.defaults().capacity(),
+                properties.defaults().refillPerSecond(), rejectedCounter(meterRegistry, "default")));
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.maxClients())
+                .expireAfterAccess(properties.idleTimeout())
+                .build();
+    }
+
+    /** Takes a token from the bucket of the client for the first rule matching the request. */
+    public Decision tryAcquire(String client, String method, String path) {
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        int index = 0;
+        while (!rules.get(index).matches(method, pathContainer)) {
+            index++; // the default rule matches everything
+        }
+        Rule rule = rules.get(index);
+        TokenBucket bucket = buckets.get(index + " " + client, key -> new TokenBucket(rule.capacity(), rule.refillPerSecond()));
+
+        long now = System.nanoTime();
+        long result = bucket.tryConsume(now);
+        long resetSeconds = toSeconds(bucket.nanosUntilFull(now));
+        if (result >= 0) {
+            return new Decision(true, rule.capacity(), result, resetSeconds, 0);
+        }
+        rule.rejected().increment();
+        return new Decision(false, rule.capacity(), 0, resetSeconds, toSeconds(-result));
+    }
+
+    private static long toSeconds(long nanos) {
+        return (nanos + 999_999_999L) / 1_000_000_000L; // rounded up
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String rule) {
+        return Counter.builder("incidents.rate-limit.rejected").tag("rule", rule).register(meterRegistry);
+    }
+}
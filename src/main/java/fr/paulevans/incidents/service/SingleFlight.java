@@ -0,0 +1,80 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.repository.QueryDeadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader, callers arriving while it runs
+ * wait for and share its result (or its exception). Nothing is kept once the load completes, this is not a cache.
+ * <p>
+ * The load runs under the {@link QueryDeadline} of the first caller, which may be shorter than the others' (a
+ * caller can shorten its own with a header). So a waiting caller gives up at its own deadline, and when the load
+ * timed out it runs the loader itself rather than failing with a deadline that was not its own.
+ * <p>
+ * Counts loads and coalesced calls as {@code incidents.reads.loads} and {@code incidents.reads.coalesced},
+ * tagged with the name of the read path.
+ */
+final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter loads;
+    private final Counter coalesced;
+
+    SingleFlight(String read, MeterRegistry meterRegistry) {
+        this.loads = Counter.builder("incidents.reads.loads").tag("read", read).register(meterRegistry);
+        this.coalesced = Counter.builder("incidents.reads.coalesced").tag("read", read).register(meterRegistry);
+    }
+
+    V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.increment();
+            return await(running, loader);
+        }
+
+        loads.increment();
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private V await(CompletableFuture<V> running, Supplier<V> loader) {
+        Duration remaining = QueryDeadline.remaining();
+        try {
+            return remaining == null
+                    ? running.get()
+                    : running.get(Math.max(0, remaining.toNanos()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("Request deadline exceeded");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof QueryTimeoutException) {
+                loads.increment();
+                return loader.get();
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared load", e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.model.TagDictionaryEntry;
+import fr.paulevans.incidents.repository.TagDictionaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns tags to small integer ids, persisted in tag_dictionary so that every instance and every restart
+ * agrees on them. Lookups are served from memory; only the first sight of a tag goes to the database.
+ * <p>
+ * Ids are claimed by inserting the next free one: the unique name index and the id as primary key make a
+ * concurrent claim by another instance fail with a duplicate key, after which the dictionary is reloaded.
+ */
+@Slf4j
+@Service
+public class TagDictionary {
+
+    private static final int MAX_CLAIM_ATTEMPTS = 10;
+
+    private final TagDictionaryRepository repository;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[0];
+
+    public TagDictionary(TagDictionaryRepository repository) {
+        this.repository = repository;
+    }
+
+    /** @return the id of the tag, or null when it was never interned */
+    public Integer find(String tag) {
+        return ids.get(tag);
+    }
+
+    /** @return the id of the tag, assigned on first use */
+    public int intern(String tag) {
+        Integer id = ids.get(tag);
+        return id != null ? id : claim(tag);
+    }
+
+    /** @return the tag with this id, or null when there is none */
+    public String name(int id) {
+        String[] current = names;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    /** Upper bound (exclusive) of the assigned ids. */
+    public int size() {
+        return names.length;
+    }
+
+    public synchronized void load() {
+        List<TagDictionaryEntry> entries = repository.findAll();
+        int bound = entries.stream().mapToInt(TagDictionaryEntry::getId).max().orElse(-1) + 1;
+        if (bound > names.length) {
+            names = Arrays.copyOf(names, bound);
+        }
+        entries.forEach(this::remember);
+        log.debug("Loaded {} tags", entries.size());
+    }
+
+    private synchronized int claim(String tag) {
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            Integer id = ids.get(tag);
+            if (id != null) {
+                return id;
+            }
+            TagDictionaryEntry existing = repository.findByName(tag).orElse(null);
+            if (existing != null) {
+                return remember(existing);
+            }
+            try {
+                TagDictionaryEntry entry = new TagDictionaryEntry(names.length, tag);
+                repository.insert(entry);
+                return remember(entry);
+            } catch (DuplicateKeyException e) {
+                load(); // another instance took the id or the tag meanwhile
+            }
+        }
+        throw new IllegalStateException("Could not assign an id to tag " + tag);
+    }
+
+    private int remember(TagDictionaryEntry entry) {
+        int id = entry.getId();
+        String[] grown = id < names.length ? names : Arrays.copyOf(names, id + 1);
+        grown[id] = entry.getName();
+        names = grown;
+        ids.put(entry.getName(), id);
+        return id;
+    }
+}
@@ -0,0 +1,218 @@
+package fr.paulevans.incidents.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import fr.paulevans.incidents.config.TimelineBufferProperties;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentEventType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends timeline events with {@code $push} instead of a read-modify-write of the incident.
+ * <p>
+ * With the write-behind buffer enabled, appends are queued and coalesced per incident, and every flush writes
+ * one {@code $push: {$each: [...]}} per incident in a single bulk operation. Flushes are serialized so events of
+ * an incident are written in append order, and whatever is still queued is flushed on shutdown. A flush whose
+ * bulk write failed puts its events back in front of the queue; once the write succeeded they are never queued
+ * again, whatever happens while recording them, since a second flush would push them twice. Queued appends to
+ * incidents that no longer exist are dropped on flush.
+ * <p>
+ * Metrics: {@code incidents.timeline.buffer.pending} (queued events), {@code incidents.timeline.buffer.lag}
+ * (time from append to write, per event) and {@code incidents.timeline.buffer.flushes}.
+ */
+@Slf4j
+@Service
+public class TimelineAppender {
+
+    private record Pending(Incident.TimelineEvent event, long queuedAtNanos) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final Optional<IncidentEventStore> eventStore;
+    private final IncidentSummaryService summaries;
+    private final ApplicationEventPublisher events;
+    private final TimelineBufferProperties properties;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private Map<String, List<Pending>> pending = new LinkedHashMap<>(); // guarded by this
+    private int pendingCount; // guarded by this
+
+    private final Timer lag;
+    private final Counter flushes;
+
+    public TimelineAppender(MongoTemplate mongoTemplate, Optional<IncidentEventStore> eventStore,
+                            IncidentSummaryService summaries, ApplicationEventPublisher events,
+                            TimelineBufferProperties properties, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventStore = eventStore;
+        this.summaries = summaries;
+        this.events = events;
+        this.properties = properties;
+        this.lag = Timer.builder("incidents.timeline.buffer.lag").register(meterRegistry);
+        this.flushes = Counter.builder("incidents.timeline.buffer.flushes").register(meterRegistry);
+        meterRegistry.gauge("incidents.timeline.buffer.pending", this, TimelineAppender::pendingCount);
+    }
+
+    /**
+     * Appends the event, assigning its id when missing.
+     *
+     * @return true when the event was queued and will be written by a later flush
+     * @throws NoSuchElementException when written immediately and the incident does not exist
+     */
+    public boolean append(String incidentId, Incident.TimelineEvent event) {
+        if (event.getId() == null) {
+            event.setId(new ObjectId().toHexString());
+        }
+        if (!properties.enabled()) {
+            Map<String, List<Incident.TimelineEvent>> appended = Map.of(incidentId, List.of(event));
+            Instant now = Instant.now();
+            BulkWriteResult result = write(appended, now);
+            if (result.getMatchedCount() == 0) {
+                throw new NoSuchElementException();
+            }
+            recordWritten(appended, result, now);
+            return false;
+        }
+        if (pendingCount() >= properties.maxPending()) {
+            flush(); // back-pressure on the appending thread rather than an unbounded queue
+        }
+        synchronized (this) {
+            pending.computeIfAbsent(incidentId, id -> new ArrayList<>()).add(new Pending(event, System.nanoTime()));
+            pendingCount++;
+        }
+        return true;
+    }
+
+    /** @return the number of events written */
+    @Scheduled(fixedDelayString = "${incidents.timeline-buffer.flush-interval:2s}")
+    public int flush() {
+        flushLock.lock();
+        try {
+            Map<String, List<Pending>> batch;
+            synchronized (this) {
+                if (pendingCount == 0) {
+                    return 0;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                pendingCount = 0;
+            }
+
+            Map<String, List<Incident.TimelineEvent>> eventsPerIncident = new LinkedHashMap<>();
+            batch.forEach((id, queued) -> eventsPerIncident.put(id, queued.stream().map(Pending::event).toList()));
+            Instant now = Instant.now();
+            BulkWriteResult result;
+            try {
+                result = write(eventsPerIncident, now);
+            } catch (BulkOperationException e) {
+                // unordered, every update without an error was applied: only the failed ones are queued again
+                List<String> order = new ArrayList<>(batch.keySet());
+                Map<String, List<Pending>> failed = new LinkedHashMap<>();
+                for (BulkWriteError error : e.getErrors()) {
+                    String id = order.get(error.getIndex());
+                    failed.put(id, batch.get(id));
+                }
+                requeue(failed);
+                Map<String, List<Incident.TimelineEvent>> applied = new LinkedHashMap<>(eventsPerIncident);
+                applied.keySet().removeAll(failed.keySet());
+                recordWritten(applied, e.getResult(), now);
+                throw e;
+            } catch (RuntimeException e) {
+                requeue(batch);
+                throw e;
+            }
+            recordWritten(eventsPerIncident, result, now);
+
+            long writtenAt = System.nanoTime();
+            int written = 0;
+            for (List<Pending> queued : batch.values()) {
+                for (Pending event : queued) {
+                    lag.record(Duration.ofNanos(writtenAt - event.queuedAtNanos()));
+                }
+                written += queued.size();
+            }
+            flushes.increment();
+            log.debug("Flushed {} timeline events of {} incidents", written, batch.size());
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        int written = flush();
+        if (written > 0) {
+            log.info("Flushed {} buffered timeline events on shutdown", written);
+        }
+    }
+
+    synchronized int pendingCount() {
+        return pendingCount;
+    }
+
+    private BulkWriteResult write(Map<String, List<Incident.TimelineEvent>> eventsPerIncident, Instant now) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Incident.class);
+        eventsPerIncident.forEach((id, appended) -> bulk.updateOne(Query.query(Criteria.where("_id").is(id)),
+                new Update().push("timeline").each(appended.toArray()).set("updatedAt", now).inc("version", 1)));
+        return bulk.execute();
+    }
+
+    /** Events, summary counts and change notifications of the appends that matched an incident. */
+    private void recordWritten(Map<String, List<Incident.TimelineEvent>> eventsPerIncident, BulkWriteResult result,
+                               Instant now) {
+        Set<String> matched = matchedIncidents(eventsPerIncident.keySet(), result);
+        Map<String, Integer> appends = new LinkedHashMap<>();
+        eventsPerIncident.forEach((id, appended) -> {
+            if (matched.contains(id)) appends.put(id, appended.size());
+        });
+
+        eventStore.ifPresent(store -> appends.keySet().forEach(id ->
+                store.appendTimelineEvents(null, id, eventsPerIncident.get(id))));
+        summaries.recordTimelineAppends(appends, now);
+        appends.keySet().forEach(id -> events.publishEvent(IncidentChangedEvent.local(id, IncidentEventType.PATCHED)));
+    }
+
+    /** The bulk result only counts matches; when some missed, the ones that still exist are looked up. */
+    private Set<String> matchedIncidents(Set<String> incidentIds, BulkWriteResult result) {
+        if (result.getMatchedCount() == incidentIds.size()) {
+            return incidentIds;
+        }
+        Query existing = Query.query(Criteria.where("_id").in(incidentIds));
+        existing.fields().include("_id");
+        Set<String> matched = new HashSet<>();
+        mongoTemplate.find(existing, Incident.class).forEach(incident -> matched.add(incident.getId()));
+        return matched;
+    }
+
+    private synchronized void requeue(Map<String, List<Pending>> batch) {
+        Map<String, List<Pending>> merged = new LinkedHashMap<>(batch);
+        pending.forEach((id, queued) -> merged.merge(id, queued, (older, newer) -> {
+            List<Pending> all = new ArrayList<>(older);
+            all.addAll(newer);
+            return all;
+        }));
+        batch.values().forEach(queued -> pendingCount += queued.size());
+        pending = merged;
+    }
+}
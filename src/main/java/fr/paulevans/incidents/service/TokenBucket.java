@@ -0,0 +1,54 @@
+package fr.paulevans.incidents.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket in a single {@link AtomicLong}, updated with compare-and-set so that concurrent requests of one
+ * client never block each other.
+ * <p>
+ * Implemented as the generic cell rate algorithm: instead of a token count and a refill timestamp, the bucket
+ * keeps the theoretical arrival time, the instant at which it would be full again. Consuming a token pushes it
+ * one emission interval further; a request is refused when that would put it more than {@code capacity}
+ * intervals ahead of now.
+ */
+public final class TokenBucket {
+
+    private final int capacity;
+    private final long interval; // nanos per token
+    private final long burst; // capacity * interval
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE); // nanoTime may be negative
+
+    public TokenBucket(int capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.interval = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.burst = capacity * interval;
+    }
+
+    /**
+     * Takes one token.
+     *
+     * @return the tokens left when one was taken, or minus the nanos until one is available
+     */
+    public long tryConsume(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + interval;
+            long ahead = next - nowNanos;
+            if (ahead > burst) {
+                return -(ahead - burst);
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return (burst - ahead) / interval;
+            }
+        }
+    }
+
+    /** Nanos until the bucket is full again. */
+    public long nanosUntilFull(long nowNanos) {
+        return Math.max(0, fullAt.get() - nowNanos);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
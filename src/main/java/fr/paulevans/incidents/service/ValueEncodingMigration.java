@@ -0,0 +1,68 @@
+package fr.paulevans.incidents.service;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentStatus;
+import fr.paulevans.incidents.model.IncidentSummary;
+import fr.paulevans.incidents.model.Severity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the status and severity strings of documents written before they were stored as codes. Reading
+ * such documents keeps working without it, but they would not match code-based filters. Runs once, recorded
+ * in the migrations collection, while the context starts: before the web server, the Kafka listeners and the
+ * ApplicationReadyEvent listeners that load the indexes.
+ * <p>
+ * Instances starting together may both run it; the updates only match legacy strings, so the second one
+ * finds nothing left to do, and the marker is upserted so that recording it twice is not an error.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ValueEncodingMigration implements SmartInitializingSingleton {
+
+    static final String MIGRATION_ID = "encode-status-severity";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        migrate();
+    }
+
+    public void migrate() {
+        MongoCollection<Document> migrations = mongoTemplate.getCollection("migrations");
+        if (migrations.find(Filters.eq("_id", MIGRATION_ID)).first() != null) {
+            return;
+        }
+        long modified = 0;
+        for (Class<?> type : List.of(Incident.class, IncidentSummary.class)) {
+            MongoCollection<Document> collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(type));
+            for (IncidentStatus status : IncidentStatus.values()) {
+                modified += collection.updateMany(Filters.eq("status", status.name()),
+                        Updates.set("status", status.code())).getModifiedCount();
+            }
+            for (Severity severity : Severity.values()) {
+                // severities were accepted in any case
+                Pattern name = Pattern.compile("^" + severity.name() + "$", Pattern.CASE_INSENSITIVE);
+                modified += collection.updateMany(Filters.regex("severity", name),
+                        Updates.set("severity", severity.code())).getModifiedCount();
+            }
+        }
+        migrations.updateOne(Filters.eq("_id", MIGRATION_ID), Updates.setOnInsert("appliedAt", new Date()),
+                new UpdateOptions().upsert(true));
+        log.info("Encoded status and severity of {} documents", modified);
+    }
+}
@@ -0,0 +1,58 @@
+package fr.paulevans.incidents.validator;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Precomputed constant lookup for an enum class, built once per class and shared by every validator instance.
+ */
+public final class EnumLookup {
+
+    private static final ClassValue<EnumLookup> CACHE = new ClassValue<>() {
+        @Override
+        protected EnumLookup computeValue(Class<?> type) {
+            return new EnumLookup(type.asSubclass(Enum.class));
+        }
+    };
+
+    private final Map<String, Enum<?>> byName;
+    private final Map<String, Enum<?>> byUpperCaseName;
+    private final String message;
+
+    private EnumLookup(Class<? extends Enum> enumClass) {
+        Enum<?>[] constants = enumClass.getEnumConstants();
+        Map<String, Enum<?>> names = new HashMap<>();
+        Map<String, Enum<?>> upperCaseNames = new HashMap<>();
+        for (Enum<?> constant : constants) {
+            names.put(constant.name(), constant);
+            upperCaseNames.put(constant.name().toUpperCase(Locale.ROOT), constant);
+        }
+        this.byName = Map.copyOf(names);
+        this.byUpperCaseName = Map.copyOf(upperCaseNames);
+        this.message = ("must be one of the allowed values: " + Arrays.stream(constants)
+                .map(Enum::name)
+                .collect(Collectors.joining(", "))).intern();
+    }
+
+    public static EnumLookup of(Class<? extends Enum<?>> enumClass) {
+        return CACHE.get(enumClass);
+    }
+
+    public boolean contains(String value, boolean ignoreCase) {
+        return find(value, ignoreCase).isPresent();
+    }
+
+    public Optional<Enum<?>> find(String value, boolean ignoreCase) {
+        if (value == null) return Optional.empty();
+        Enum<?> constant = byName.get(value);
+        if (constant == null && ignoreCase) {
+            constant = byUpperCaseName.get(value.toUpperCase(Locale.ROOT));
+        }
+        return Optional.ofNullable(constant);
+    }
+
+    /** Violation message listing the allowed values, built once per enum class. */
+    public String message() {
+        return message;
+    }
+}
@@ -3,34 +3,29 @@ package fr.paulevans.incidents.validator;
 import fr.paulevans.incidents.annotation.ValidEnum;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
-import java.util.Arrays;
-import java.util.stream.Collectors;
 
 public class EnumValidator implements ConstraintValidator<ValidEnum, String> {
 
-    private String allowedValues;
+    private EnumLookup lookup;
+    private boolean ignoreCase;
 
     @Override
     public void initialize(ValidEnum annotation) {
-        Class<? extends Enum<?>> enumClass = annotation.enumClass();
-        allowedValues = Arrays.stream(enumClass.getEnumConstants())
-                .map(Enum::name)
-                .collect(Collectors.joining(", "));
+        lookup = EnumLookup.of(annotation.enumClass());
+        ignoreCase = annotation.ignoreCase();
     }
 
     @Override
     public boolean isValid(String value, ConstraintValidatorContext context) {
         if (value == null) return true; // @NotNull should be used separately if needed
 
-        boolean valid = allowedValues.contains(value);
+        boolean valid = lookup.contains(value, ignoreCase);
 
         if (!valid) {
             // Disable the default error message
             context.disableDefaultConstraintViolation();
-            // Build a custom one including the actual values
-            context.buildConstraintViolationWithTemplate(
-                    "must be one of the allowed values: " + allowedValues
-            ).addConstraintViolation();
+            // Use the cached one including the actual values
+            context.buildConstraintViolationWithTemplate(lookup.message()).addConstraintViolation();
         }
 
         return valid;
@@ -0,0 +1,41 @@
+package fr.paulevans.incidents.config;
+
+import fr.paulevans.incidents.controller.IncidentController;
+import fr.paulevans.incidents.listener.AlertBatchListener;
+import fr.paulevans.incidents.service.IncidentChangeStreamSubscriber;
+import fr.paulevans.incidents.service.IncidentService;
+import fr.paulevans.incidents.service.TimelineAppender;
+import fr.paulevans.incidents.service.ValueEncodingMigration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LazyInitializationConfigTest {
+
+    private final LazyInitializationExcludeFilter filter = LazyInitializationConfig.eagerBeans();
+
+    @Test
+    void testEagerBeans_KeepsStartupCallbacksEager() {
+        assertThat(isEager(ValueEncodingMigration.class)).isTrue();
+        assertThat(isEager(IncidentChangeStreamSubscriber.class)).isTrue();
+    }
+
+    @Test
+    void testEagerBeans_KeepsSchedulersListenersAndControllersEager() {
+        assertThat(isEager(TimelineAppender.class)).isTrue();
+        assertThat(isEager(AlertBatchListener.class)).isTrue();
+        assertThat(isEager(IncidentController.class)).isTrue();
+    }
+
+    @Test
+    void testEagerBeans_LeavesOtherBeansLazy() {
+        assertThat(isEager(IncidentService.class)).isFalse();
+        assertThat(filter.isExcluded("unknown", new RootBeanDefinition(), null)).isFalse();
+    }
+
+    private boolean isEager(Class<?> type) {
+        return filter.isExcluded(type.getSimpleName(), new RootBeanDefinition(type), type);
+    }
+}
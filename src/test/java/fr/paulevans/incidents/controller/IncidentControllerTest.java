@@ -1,6 +1,7 @@
 package fr.paulevans.incidents.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paulevans.incidents.dto.IncidentSummaryDto;
 import fr.paulevans.incidents.exceptions.IncidentValidationException;
 import fr.paulevans.incidents.model.Incident;
 import fr.paulevans.incidents.service.IncidentService;
@@ -9,7 +10,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -18,14 +22,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
+@DisabledInAotMode // relies on Mockito bean overrides, kept out of AOT processing
 @AutoConfigureMockMvc
 public class IncidentControllerTest {
 
@@ -61,6 +69,29 @@ public class IncidentControllerTest {
 
     // ------------------ CREATE ------------------
 
+    @Test
+    void testCreateIncident_WithIdempotencyKey_ShouldReplayRetries() throws Exception {
+        when(incidentService.saveIncident(any(Incident.class))).thenReturn(validIncident);
+        String key = UUID.randomUUID().toString();
+        String body = objectMapper.writeValueAsString(validIncident);
+
+        mockMvc.perform(post("/incidents").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        mockMvc.perform(post("/incidents").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.id").value("1"));
+
+        verify(incidentService, times(1)).saveIncident(any(Incident.class));
+
+        mockMvc.perform(post("/incidents").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body.replace("Title Example", "Other")))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
     @Test
     void testCreateIncident_WhenValid_ShouldReturnCreated() throws Exception {
         when(incidentService.saveIncident(any())).thenReturn(validIncident);
@@ -171,7 +202,7 @@ public class IncidentControllerTest {
 
     @Test
     void testListAllIncidents_ShouldReturnOk() throws Exception {
-        when(incidentService.getAllIncidents()).thenReturn(List.of(validIncident));
+        when(incidentService.getAllIncidents()).thenReturn(Stream.of(validIncident));
 
         mockMvc.perform(get("/incidents")
                         .contentType(MediaType.APPLICATION_JSON))
@@ -181,6 +212,17 @@ public class IncidentControllerTest {
         verify(incidentService).getAllIncidents();
     }
 
+    @Test
+    void testListAllIncidents_PastDeadline_ShouldReturnServiceUnavailable() throws Exception {
+        when(incidentService.getAllIncidents()).thenThrow(new QueryTimeoutException("Request deadline exceeded"));
+
+        mockMvc.perform(get("/incidents")
+                        .header("X-Request-Timeout", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.details[0]").value("Request deadline exceeded"));
+    }
+
     // ------------------ UPDATE / PATCH ------------------
 
     @Test
@@ -201,7 +243,7 @@ public class IncidentControllerTest {
                 validIncident.getTags()
         );
 
-        when(incidentService.getIncidentById("1")).thenReturn(validIncident);
+        when(incidentService.getIncidentForUpdate("1")).thenReturn(validIncident);
         when(incidentService.patchIncident(eq(validIncident), any(Map.class)))
                 .thenReturn(updatedIncident);
 
@@ -216,7 +258,7 @@ public class IncidentControllerTest {
 
     @Test
     void testUpdateIncident_WhenIdNotFound_ShouldReturnNotFound() throws Exception {
-        when(incidentService.getIncidentById("999"))
+        when(incidentService.getIncidentForUpdate("999"))
                 .thenThrow(new NoSuchElementException("Incident not found with id: 999"));
 
         mockMvc.perform(patch("/incidents/999")
@@ -224,13 +266,13 @@ public class IncidentControllerTest {
                         .content(objectMapper.writeValueAsString(Map.of("title", "New Title"))))
                 .andExpect(status().isNotFound());
 
-        verify(incidentService).getIncidentById("999");
+        verify(incidentService).getIncidentForUpdate("999");
         verify(incidentService, never()).patchIncident(any(), any());
     }
 
     @Test
     void testUpdateIncident_WhenStatusInvalid_ShouldReturnBadRequest() throws Exception {
-        when(incidentService.getIncidentById("1")).thenReturn(validIncident);
+        when(incidentService.getIncidentForUpdate("1")).thenReturn(validIncident);
         when(incidentService.patchIncident(eq(validIncident), any(Map.class)))
                 .thenThrow(new IncidentValidationException(Set.of()));
 
@@ -242,6 +284,120 @@ public class IncidentControllerTest {
         verify(incidentService).patchIncident(eq(validIncident), any(Map.class));
     }
 
+    @Test
+    void testUpdateIncident_WhenModifiedConcurrently_ShouldReturnConflict() throws Exception {
+        when(incidentService.getIncidentForUpdate("1")).thenReturn(validIncident);
+        when(incidentService.patchIncident(eq(validIncident), any(Map.class)))
+                .thenThrow(new OptimisticLockingFailureException("Incident 1 was modified concurrently"));
+
+        mockMvc.perform(patch("/incidents/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("title", "New Title"))))
+                .andExpect(status().isConflict());
+
+        verify(incidentService, never()).getIncidentById("1");
+    }
+
+    @Test
+    void testUpdateIncident_WithIdempotencyKey_ShouldNotReplayConflicts() throws Exception {
+        when(incidentService.getIncidentForUpdate("1")).thenReturn(validIncident);
+        when(incidentService.patchIncident(eq(validIncident), any(Map.class)))
+                .thenThrow(new OptimisticLockingFailureException("Incident 1 was modified concurrently"))
+                .thenReturn(validIncident);
+        String key = UUID.randomUUID().toString();
+        String body = objectMapper.writeValueAsString(Map.of("title", "New Title"));
+
+        mockMvc.perform(patch("/incidents/1").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isConflict());
+        mockMvc.perform(patch("/incidents/1").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+        verify(incidentService, times(2)).patchIncident(eq(validIncident), any(Map.class));
+    }
+
+    @Test
+    void testJsonPatchIncident_ShouldApplyOperations() throws Exception {
+        when(incidentService.getIncidentForUpdate("1")).thenReturn(validIncident);
+        when(incidentService.applyPatchOperations(eq(validIncident), anyList())).thenReturn(validIncident);
+
+        mockMvc.perform(patch("/incidents/1")
+                        .contentType("application/json-patch+json")
+                        .content("[{\"op\": \"replace\", \"path\": \"/title\", \"value\": \"New Title\"}]"))
+                .andExpect(status().isOk());
+
+        verify(incidentService).applyPatchOperations(eq(validIncident), anyList());
+        verify(incidentService, never()).patchIncident(any(), any());
+    }
+
+    @Test
+    void testJsonPatchIncident_WhenMalformed_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(patch("/incidents/1")
+                        .contentType("application/json-patch+json")
+                        .content("[{\"op\": \"copy\", \"from\": \"/title\", \"path\": \"/summary\"}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details[0]").exists());
+
+        verify(incidentService, never()).applyPatchOperations(any(), any());
+    }
+
+    // ------------------ OPEN INCIDENT INDEX ------------------
+
+    @Test
+    void testGroupOpenIncidents_ShouldReturnCountsPerValue() throws Exception {
+        mockMvc.perform(get("/incidents/summaries/open/groups").param("by", "SEVERITY"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testGroupOpenIncidents_WhenDimensionUnknown_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/incidents/summaries/open/groups").param("by", "title"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetIncidentSummaries_WithTag_ShouldQueryByTag() throws Exception {
+        when(incidentService.getIncidentSummariesByTag("tag1")).thenReturn(List.of(IncidentSummaryDto.from(validIncident)));
+
+        mockMvc.perform(get("/incidents/summaries").param("tag", "tag1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("1"));
+
+        verify(incidentService, never()).getAllIncidentSummaries();
+    }
+
+    @Test
+    void testCompleteTags_ShouldReturnOk() throws Exception {
+        mockMvc.perform(get("/incidents/tags").param("prefix", "ta"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray());
+    }
+
+    @Test
+    void testGetTagFacet_WhenUnknown_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/incidents/tags/no-such-tag"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testAppendTimelineEvent_WhenInvalid_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post("/incidents/1/timeline")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\": \"Deployed\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testAppendTimelineEvent_WhenIncidentNotFound_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(post("/incidents/no-such-incident/timeline")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new Incident.TimelineEvent(null, Instant.now(), "Deployed", "ci"))))
+                .andExpect(status().isNotFound());
+    }
+
     // ------------------ DELETE ------------------
 
     @Test
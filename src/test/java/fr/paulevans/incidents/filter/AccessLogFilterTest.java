@@ -0,0 +1,57 @@
+package fr.paulevans.incidents.filter;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessLogFilterTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(AccessLogFilter.LOGGER);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setup() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void testDoFilter_LogsRequestWithDatabaseTime() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/incidents/1");
+        request.setContextPath("/api");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new AccessLogFilter().doFilter(request, response, (req, res) -> {
+            RequestTimings.recordDatabase(3_000_000);
+            RequestTimings.recordDatabase(2_000_000);
+            ((MockHttpServletResponse) res).setStatus(404);
+        });
+        RequestTimings.recordDatabase(1_000_000); // outside any request, not accounted
+
+        assertThat(appender.list).hasSize(1);
+        Map<String, Object> fields = appender.list.getFirst().getKeyValuePairs().stream()
+                .collect(Collectors.toMap(pair -> pair.key, pair -> pair.value));
+        assertThat(fields).containsEntry("method", "GET")
+                .containsEntry("path", "/incidents/1")
+                .containsEntry("status", 404)
+                .containsEntry("db_ms", 5L)
+                .containsEntry("db_calls", 2)
+                .containsKey("duration_ms");
+    }
+}
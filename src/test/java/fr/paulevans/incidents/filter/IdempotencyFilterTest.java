@@ -0,0 +1,67 @@
+package fr.paulevans.incidents.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paulevans.incidents.config.IdempotencyProperties;
+import fr.paulevans.incidents.service.IdempotencyService;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+class IdempotencyFilterTest {
+
+    @Test
+    void testDoFilter_ReadListenerGetsTheCachedBody() throws Exception {
+        IdempotencyService idempotencyService = Mockito.mock(IdempotencyService.class);
+        when(idempotencyService.execute(anyString(), anyString(), any()))
+                .thenAnswer(invocation -> invocation.<IdempotencyService.Execution>getArgument(2).run());
+        IdempotencyFilter filter = new IdempotencyFilter(idempotencyService,
+                new IdempotencyProperties(true, Duration.ofHours(24), Duration.ofSeconds(30), Duration.ofSeconds(10)),
+                new ObjectMapper());
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/incidents");
+        request.addHeader(IdempotencyFilter.HEADER, "key-1");
+        request.setContent("{\"title\":\"Disk full\"}".getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> callbacks = new ArrayList<>();
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            ServletInputStream input = req.getInputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    callbacks.add("data");
+                    while (input.isReady() && !input.isFinished()) {
+                        read.write(input.read());
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    callbacks.add("done");
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    callbacks.add("error");
+                }
+            });
+        });
+
+        assertThat(callbacks).containsExactly("data", "done");
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo("{\"title\":\"Disk full\"}");
+    }
+}
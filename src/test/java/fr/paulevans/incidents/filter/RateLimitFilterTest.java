@@ -0,0 +1,45 @@
+package fr.paulevans.incidents.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paulevans.incidents.config.RateLimitProperties;
+import fr.paulevans.incidents.service.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private static final RateLimitProperties PROPERTIES = new RateLimitProperties(true, "X-API-Key",
+            Set.of("integration-key"), 1000, Duration.ofMinutes(10), new RateLimitProperties.Limit(2, 0.001), List.of());
+
+    private final RateLimitFilter filter = new RateLimitFilter(
+            new RateLimiter(PROPERTIES, new SimpleMeterRegistry()), PROPERTIES, new ObjectMapper());
+
+    @Test
+    void testDoFilter_UnknownApiKeysShareTheIpBucket() throws Exception {
+        assertThat(status("random-1")).isEqualTo(200);
+        assertThat(status("random-2")).isEqualTo(200);
+        assertThat(status(null)).isEqualTo(429);
+
+        // a configured key has its own bucket
+        assertThat(status("integration-key")).isEqualTo(200);
+    }
+
+    private int status(String apiKey) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/incidents/1");
+        request.setRemoteAddr("10.0.0.1");
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> { });
+        return response.getStatus();
+    }
+}
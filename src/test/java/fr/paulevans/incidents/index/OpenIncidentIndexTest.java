@@ -0,0 +1,142 @@
+package fr.paulevans.incidents.index;
+
+import fr.paulevans.incidents.dto.IncidentSummaryDto;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.model.IncidentSummary;
+import fr.paulevans.incidents.model.TagDictionaryEntry;
+import fr.paulevans.incidents.repository.IncidentSummaryRepository;
+import fr.paulevans.incidents.repository.TagDictionaryRepository;
+import fr.paulevans.incidents.service.TagDictionary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OpenIncidentIndexTest {
+
+    private IncidentSummaryRepository summaryRepository;
+    private TagDictionaryRepository tagDictionaryRepository;
+    private OpenIncidentIndex index;
+
+    @BeforeEach
+    void setup() {
+        summaryRepository = Mockito.mock(IncidentSummaryRepository.class);
+        when(summaryRepository.findByStatusIn(OpenIncidentIndex.INDEXED_STATUSES)).thenReturn(List.of(
+                summary("1", "OPEN", "High", 100, List.of("db", "prod")),
+                summary("2", "IN_PROGRESS", "low", 300, List.of("prod")),
+                summary("3", "OPEN", "Critical", 200, List.of())
+        ));
+        tagDictionaryRepository = Mockito.mock(TagDictionaryRepository.class);
+        index = new OpenIncidentIndex(summaryRepository, new TagDictionary(tagDictionaryRepository));
+        index.load();
+    }
+
+    @Test
+    void testCount_FiltersOnEncodedColumns() {
+        assertThat(index.count(OpenIncidentQuery.ALL)).isEqualTo(3);
+        assertThat(index.count(new OpenIncidentQuery("OPEN", null, null))).isEqualTo(2);
+        assertThat(index.count(new OpenIncidentQuery(null, "LOW", "prod"))).isEqualTo(1);
+        assertThat(index.count(new OpenIncidentQuery(null, null, "unknown"))).isZero();
+        assertThat(index.count(new OpenIncidentQuery("NOT_A_STATUS", null, null))).isZero();
+    }
+
+    @Test
+    void testFind_SortsNewestFirstAndLimits() {
+        List<IncidentSummaryDto> found = index.find(OpenIncidentQuery.ALL, OpenIncidentQuery.Sort.CREATED_AT, 2);
+
+        assertThat(found).extracting(IncidentSummaryDto::id).containsExactly("2", "3");
+        assertThat(found.getFirst().severity()).isEqualTo("Low");
+        assertThat(found.getFirst().tags()).containsExactly("prod");
+    }
+
+    @Test
+    void testCountBy_GroupsPerValue() {
+        assertThat(index.countBy(OpenIncidentQuery.ALL, OpenIncidentQuery.Dimension.TAG))
+                .containsExactly(Map.entry("db", 1), Map.entry("prod", 2));
+        assertThat(index.countBy(new OpenIncidentQuery(null, null, "prod"), OpenIncidentQuery.Dimension.STATUS))
+                .containsExactly(Map.entry("OPEN", 1), Map.entry("IN_PROGRESS", 1));
+    }
+
+    @Test
+    void testOnIncidentChanged_DropsResolvedAndReusesRows() {
+        when(summaryRepository.findById("1")).thenReturn(Optional.of(summary("1", "RESOLVED", "High", 100, List.of("db"))));
+        index.onIncidentChanged(IncidentChangedEvent.local("1", IncidentEventType.PATCHED));
+
+        assertThat(index.count(OpenIncidentQuery.ALL)).isEqualTo(2);
+        assertThat(index.count(new OpenIncidentQuery(null, null, "db"))).isZero();
+
+        when(summaryRepository.findById("4")).thenReturn(Optional.of(summary("4", "OPEN", "Medium", 400, List.of("db"))));
+        index.onIncidentChanged(IncidentChangedEvent.local("4", IncidentEventType.CREATED));
+        index.onIncidentChanged(IncidentChangedEvent.local("2", IncidentEventType.DELETED));
+
+        assertThat(index.find(OpenIncidentQuery.ALL, OpenIncidentQuery.Sort.CREATED_AT, 10))
+                .extracting(IncidentSummaryDto::id).containsExactly("4", "3");
+        assertThat(index.count(new OpenIncidentQuery(null, null, "db"))).isEqualTo(1);
+    }
+
+    @Test
+    void testOnIncidentChanged_WhenSummaryUnreadable_KeepsRowAndDoesNotThrow() {
+        when(summaryRepository.findById("1")).thenThrow(new DataAccessResourceFailureException("unavailable"));
+
+        index.onIncidentChanged(IncidentChangedEvent.local("1", IncidentEventType.PATCHED));
+
+        assertThat(index.count(OpenIncidentQuery.ALL)).isEqualTo(3);
+    }
+
+    @Test
+    void testOnIncidentChanged_KeepsAlertTagsOutOfTheDictionary() {
+        when(summaryRepository.findById("4"))
+                .thenReturn(Optional.of(summary("4", "OPEN", "High", 400, List.of("alert:abc", "prod"))));
+        index.onIncidentChanged(IncidentChangedEvent.local("4", IncidentEventType.CREATED));
+
+        verify(tagDictionaryRepository, never()).insert(argThat((TagDictionaryEntry entry) -> entry.getName().startsWith("alert:")));
+        assertThat(index.find(new OpenIncidentQuery(null, null, "alert:abc"), OpenIncidentQuery.Sort.CREATED_AT, 10))
+                .singleElement().satisfies(found -> assertThat(found.tags()).containsExactly("alert:abc", "prod"));
+        assertThat(index.countBy(OpenIncidentQuery.ALL, OpenIncidentQuery.Dimension.TAG))
+                .containsExactly(Map.entry("db", 1), Map.entry("prod", 3));
+    }
+
+    @Test
+    void testOnIncidentChanged_ConcurrentRefreshes_KeepTheLastRead() throws Exception {
+        CountDownLatch firstReading = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        when(summaryRepository.findById("1"))
+                .thenAnswer(invocation -> {
+                    firstReading.countDown();
+                    releaseFirst.await(5, TimeUnit.SECONDS);
+                    return Optional.of(summary("1", "OPEN", "High", 100, List.of("db")));
+                })
+                .thenReturn(Optional.of(summary("1", "RESOLVED", "High", 100, List.of("db"))));
+
+        Thread first = Thread.ofPlatform().start(
+                () -> index.onIncidentChanged(IncidentChangedEvent.local("1", IncidentEventType.PATCHED)));
+        firstReading.await(5, TimeUnit.SECONDS);
+        Thread second = Thread.ofPlatform().start(
+                () -> index.onIncidentChanged(IncidentChangedEvent.local("1", IncidentEventType.PATCHED)));
+        Thread.sleep(100); // gives the second refresh the chance to overtake the first
+        releaseFirst.countDown();
+        first.join();
+        second.join();
+
+        assertThat(index.count(new OpenIncidentQuery(null, null, "db"))).isZero();
+    }
+
+    private static IncidentSummary summary(String id, String status, String severity, long createdAt, List<String> tags) {
+        return new IncidentSummary(id, "Title " + id, "Summary", severity, status, "creator1",
+                Instant.ofEpochSecond(createdAt), null, null, tags, 0, 1, Instant.ofEpochSecond(createdAt));
+    }
+}
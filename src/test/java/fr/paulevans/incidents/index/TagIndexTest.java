@@ -0,0 +1,89 @@
+package fr.paulevans.incidents.index;
+
+import fr.paulevans.incidents.dto.TagFacet;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.model.IncidentSummary;
+import fr.paulevans.incidents.repository.IncidentSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+class TagIndexTest {
+
+    private IncidentSummaryRepository summaryRepository;
+    private TagIndex index;
+
+    @BeforeEach
+    void setup() {
+        summaryRepository = Mockito.mock(IncidentSummaryRepository.class);
+        when(summaryRepository.streamFacetsBy()).thenReturn(Stream.of(
+                summary("1", "OPEN", "High", List.of("db", "prod")),
+                summary("2", "CLOSED", "low", List.of("prod", "prod")),
+                summary("3", "OPEN", "Critical", List.of("dns"))
+        ));
+        index = new TagIndex(summaryRepository);
+        index.load();
+    }
+
+    @Test
+    void testComplete_ReturnsMostUsedTagsWithPrefix() {
+        assertThat(index.complete("d", 10)).extracting(TagFacet::tag).containsExactly("db", "dns");
+        assertThat(index.complete("", 2)).extracting(TagFacet::tag).containsExactly("prod", "db");
+        assertThat(index.complete("x", 10)).isEmpty();
+    }
+
+    @Test
+    void testFacet_CountsPerStatusAndSeverity() {
+        TagFacet prod = index.facet("prod");
+
+        assertThat(prod.count()).isEqualTo(2); // a tag repeated on one incident counts once
+        assertThat(prod.byStatus()).containsExactly(Map.entry("OPEN", 1), Map.entry("CLOSED", 1));
+        assertThat(prod.bySeverity()).containsExactly(Map.entry("Low", 1), Map.entry("High", 1));
+        assertThat(index.facet("unknown")).isNull();
+    }
+
+    @Test
+    void testOnIncidentChanged_MovesCountsAndDropsUnusedTags() {
+        when(summaryRepository.findById("1")).thenReturn(Optional.of(summary("1", "RESOLVED", "High", List.of("prod"))));
+        index.onIncidentChanged(IncidentChangedEvent.local("1", IncidentEventType.PATCHED));
+        index.onIncidentChanged(IncidentChangedEvent.local("3", IncidentEventType.DELETED));
+
+        assertThat(index.facet("db")).isNull();
+        assertThat(index.facet("dns")).isNull();
+        assertThat(index.facet("prod").byStatus()).containsExactly(Map.entry("RESOLVED", 1), Map.entry("CLOSED", 1));
+    }
+
+    @Test
+    void testOnIncidentChanged_LeavesAlertTagsOut() {
+        when(summaryRepository.findById("4")).thenReturn(Optional.of(summary("4", "OPEN", "High", List.of("alert:abc", "db"))));
+        index.onIncidentChanged(IncidentChangedEvent.local("4", IncidentEventType.CREATED));
+
+        assertThat(index.facet("alert:abc")).isNull();
+        assertThat(index.complete("a", 10)).isEmpty();
+        assertThat(index.facet("db").count()).isEqualTo(2);
+    }
+
+    @Test
+    void testLoad_ReplacesPreviousCounts() {
+        when(summaryRepository.streamFacetsBy()).thenReturn(Stream.of(summary("5", "OPEN", "High", List.of("net"))));
+        index.load();
+
+        assertThat(index.facet("db")).isNull();
+        assertThat(index.complete("", 10)).extracting(TagFacet::tag).containsExactly("net");
+    }
+
+    private static IncidentSummary summary(String id, String status, String severity, List<String> tags) {
+        return new IncidentSummary(id, "Title " + id, "Summary", severity, status, "creator1",
+                Instant.EPOCH, null, null, tags, 0, 1, Instant.EPOCH);
+    }
+}
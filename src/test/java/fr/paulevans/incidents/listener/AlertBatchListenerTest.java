@@ -0,0 +1,90 @@
+package fr.paulevans.incidents.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paulevans.incidents.dto.AlertDelivery;
+import fr.paulevans.incidents.dto.AlertMessage;
+import fr.paulevans.incidents.exceptions.InvalidAlertException;
+import fr.paulevans.incidents.service.AlertIngestionService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
+
+class AlertBatchListenerTest {
+
+    private AlertIngestionService alertIngestionService;
+    private AlertBatchListener listener;
+
+    @BeforeEach
+    void setup() {
+        alertIngestionService = Mockito.mock(AlertIngestionService.class);
+        listener = new AlertBatchListener(alertIngestionService, new ObjectMapper().findAndRegisterModules());
+    }
+
+    @Test
+    void testOnAlerts_WritesWholeBatchAtOnce() {
+        listener.onAlerts(List.of(record(0, alertJson("fp1")), record(1, alertJson("fp2"))));
+
+        assertThat(capturedAlerts()).extracting(delivery -> delivery.alert().fingerprint())
+                .containsExactly("fp1", "fp2");
+        assertThat(capturedAlerts()).extracting(AlertDelivery::id)
+                .containsExactly("incident-alerts-0@0/fp1", "incident-alerts-0@1/fp2");
+    }
+
+    @Test
+    void testOnAlerts_KeysDeliveriesOnRecordTimestampToo() {
+        listener.onAlerts(List.of(timestampedRecord(0, 1_000L), timestampedRecord(0, 2_000L)));
+
+        assertThat(capturedAlerts()).extracting(AlertDelivery::id)
+                .containsExactly("incident-alerts-0@0/fp1/1000", "incident-alerts-0@0/fp1/2000");
+        assertThat(capturedAlerts().getFirst().receivedAt()).isEqualTo(Instant.ofEpochMilli(1_000L));
+    }
+
+    @Test
+    void testOnAlerts_WritesPrefixAndReportsMalformedRecord() {
+        List<ConsumerRecord<String, String>> records = List.of(
+                record(0, alertJson("fp1")),
+                record(1, "{not json"),
+                record(2, alertJson("fp3")));
+
+        BatchListenerFailedException ex = assertThrows(BatchListenerFailedException.class,
+                () -> listener.onAlerts(records));
+
+        assertThat(ex.getIndex()).isEqualTo(1);
+        assertThat(ex.getCause()).isInstanceOf(InvalidAlertException.class);
+        assertThat(capturedAlerts()).extracting(delivery -> delivery.alert().fingerprint()).containsExactly("fp1");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<AlertDelivery> capturedAlerts() {
+        ArgumentCaptor<List<AlertDelivery>> captor = ArgumentCaptor.forClass(List.class);
+        verify(alertIngestionService).ingest(captor.capture());
+        return captor.getValue();
+    }
+
+    private static ConsumerRecord<String, String> record(long offset, String value) {
+        return new ConsumerRecord<>("incident-alerts", 0, offset, null, value);
+    }
+
+    private static ConsumerRecord<String, String> timestampedRecord(long offset, long timestamp) {
+        return new ConsumerRecord<>("incident-alerts", 0, offset, timestamp, TimestampType.CREATE_TIME, -1, -1, null,
+                alertJson("fp1"), new RecordHeaders(), Optional.empty());
+    }
+
+    private static String alertJson(String fingerprint) {
+        return "{\"fingerprint\":\"" + fingerprint + "\",\"title\":\"Disk full\",\"severity\":\"high\","
+                + "\"status\":\"firing\",\"timestamp\":\"2025-01-01T00:00:00Z\"}";
+    }
+}
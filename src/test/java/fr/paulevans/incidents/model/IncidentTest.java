@@ -110,6 +110,23 @@ public class IncidentTest {
         assertThat(violations).anyMatch(v -> v.getPropertyPath().toString().equals("severity"));
     }
 
+    @Test
+    void testValidSeverity_IgnoresCase() {
+        Incident incident = validIncident();
+        incident.setSeverity("critical");
+        Set<ConstraintViolation<Incident>> violations = validator.validate(incident);
+        assertThat(violations).isEmpty();
+    }
+
+    @Test
+    void testInvalidSeverity_WhenUnknownValue() {
+        Incident incident = validIncident();
+        incident.setSeverity("Urgent");
+        Set<ConstraintViolation<Incident>> violations = validator.validate(incident);
+        assertThat(violations).anyMatch(v -> v.getPropertyPath().toString().equals("severity")
+                && v.getMessage().equals("must be one of the allowed values: LOW, MEDIUM, HIGH, CRITICAL"));
+    }
+
     // ------------------ STATUS ------------------
 
     @Test
@@ -128,6 +145,16 @@ public class IncidentTest {
         assertThat(violations).isEmpty();
     }
 
+    @Test
+    void testInvalidStatus_WhenPartialEnumValue() {
+        Incident incident = validIncident();
+        for (String partial : List.of("OPEN, IN", "RESS", "open")) {
+            incident.setStatus(partial);
+            Set<ConstraintViolation<Incident>> violations = validator.validate(incident);
+            assertThat(violations).anyMatch(v -> v.getPropertyPath().toString().equals("status"));
+        }
+    }
+
     // ------------------ CREATEDBY ------------------
 
     @Test
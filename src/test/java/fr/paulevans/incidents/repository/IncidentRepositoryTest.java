@@ -1,18 +1,30 @@
 package fr.paulevans.incidents.repository;
 
+import fr.paulevans.incidents.dto.ElementPage;
 import fr.paulevans.incidents.dto.IncidentSummaryDto;
 import fr.paulevans.incidents.model.Incident;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.when;
 
 @DataMongoTest
@@ -21,10 +33,14 @@ class IncidentRepositoryTest {
     @Autowired
     private IncidentRepository incidentRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     private Incident incident;
 
     @BeforeEach
     void setup() {
+        incidentRepository.deleteAll();
         incident = new Incident(
                 "1",
                 "Title Example",
@@ -80,6 +96,17 @@ class IncidentRepositoryTest {
         assertThat(incidents).hasSize(1);
     }
 
+    @Test
+    void testStreamAll_ReadsEveryIncidentAcrossBatches() {
+        IntStream.rangeClosed(2, 5).forEach(i -> incidentRepository.save(new Incident(
+                String.valueOf(i), "Title " + i, "Summary", "Low", "OPEN", "creator1", Instant.now(),
+                null, null, null, List.of(), List.of(), List.of())));
+
+        try (Stream<Incident> incidents = incidentRepository.streamAll(2)) {
+            assertThat(incidents.map(Incident::getId)).containsExactlyInAnyOrder("1", "2", "3", "4", "5");
+        }
+    }
+
     @Test
     void testDeleteIncident() {
         incidentRepository.deleteById("1");
@@ -101,4 +128,112 @@ class IncidentRepositoryTest {
         Optional<Incident> found = incidentRepository.findById("1");
         assertThat(found.get().getTitle()).isEqualTo("Updated Title");
     }
+
+    @Test
+    void testUpdateIncident_FromStaleCopy_ShouldConflict() {
+        Incident stale = incidentRepository.findById("1").orElseThrow();
+        incident.setTitle("Updated Title");
+        incidentRepository.save(incident);
+
+        stale.setSummary("Stale Summary");
+        assertThatThrownBy(() -> incidentRepository.save(stale))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(incidentRepository.findById("1").orElseThrow().getTitle()).isEqualTo("Updated Title");
+    }
+
+    @Test
+    void testInitVersion_GivesUnversionedIncidentsVersionZero() {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is("1")), new Update().unset("version"),
+                Incident.class);
+        assertThat(incidentRepository.findById("1").orElseThrow().getVersion()).isNull();
+
+        incidentRepository.initVersion("1");
+        incidentRepository.initVersion("1");
+
+        assertThat(incidentRepository.findById("1").orElseThrow().getVersion()).isZero();
+    }
+
+    @Test
+    void testFindByIdWithLatest_SlicesEmbeddedArrays() {
+        incident.setTimeline(timeline(5));
+        incidentRepository.save(incident);
+
+        Incident found = incidentRepository.findByIdWithLatest("1", 2, 0).orElseThrow();
+
+        assertThat(found.getTitle()).isEqualTo("Title Example");
+        assertThat(found.getTimeline()).extracting(Incident.TimelineEvent::getId).containsExactly("t3", "t4");
+        assertThat(found.getNotes()).isEmpty();
+    }
+
+    @Test
+    void testFindElementPage_WalksBackwardsWithCursor() {
+        incident.setTimeline(timeline(5));
+        incidentRepository.save(incident);
+
+        ElementPage<Incident.TimelineEvent> newest = incidentRepository
+                .findElementPage("1", "timeline", Incident.TimelineEvent.class, 2, null).orElseThrow();
+        assertThat(newest.items()).extracting(Incident.TimelineEvent::getId).containsExactly("t3", "t4");
+        assertThat(newest.before()).isNotNull();
+
+        ElementPage<Incident.TimelineEvent> older = incidentRepository
+                .findElementPage("1", "timeline", Incident.TimelineEvent.class, 2, newest.before()).orElseThrow();
+        assertThat(older.items()).extracting(Incident.TimelineEvent::getId).containsExactly("t1", "t2");
+
+        ElementPage<Incident.TimelineEvent> oldest = incidentRepository
+                .findElementPage("1", "timeline", Incident.TimelineEvent.class, 2, older.before()).orElseThrow();
+        assertThat(oldest.items()).extracting(Incident.TimelineEvent::getId).containsExactly("t0");
+        assertThat(oldest.before()).isNull();
+
+        assertThat(incidentRepository.findElementPage("999", "timeline", Incident.TimelineEvent.class, 2, null))
+                .isEmpty();
+    }
+
+    @Test
+    void testFindElementPage_CursorSurvivesRemovals() {
+        incident.setTimeline(timeline(6));
+        incidentRepository.save(incident);
+
+        ElementPage<Incident.TimelineEvent> newest = incidentRepository
+                .findElementPage("1", "timeline", Incident.TimelineEvent.class, 2, null).orElseThrow();
+        assertThat(newest.items()).extracting(Incident.TimelineEvent::getId).containsExactly("t4", "t5");
+
+        // removing elements of pages already read, and the cursor element itself, shifts every position
+        incident.setTimeline(timeline(6).stream().filter(e -> !Set.of("t4", "t5").contains(e.getId())).toList());
+        incidentRepository.save(incident);
+
+        ElementPage<Incident.TimelineEvent> older = incidentRepository
+                .findElementPage("1", "timeline", Incident.TimelineEvent.class, 2, newest.before()).orElseThrow();
+        assertThat(older.items()).extracting(Incident.TimelineEvent::getId).containsExactly("t2", "t3");
+    }
+
+    @Test
+    void testFindElementPage_WithObjectIdAndStringIds() {
+        // generated ids are stored as ObjectId, client ids as strings, all at the same instant
+        Instant at = Instant.parse("2026-01-01T00:00:00Z");
+        List<String> ids = List.of("k3x9a", "zz01", new ObjectId().toHexString(), new ObjectId().toHexString(),
+                new ObjectId().toHexString());
+        incident.setTimeline(ids.stream()
+                .map(eventId -> new Incident.TimelineEvent(eventId, at, "Event " + eventId, "user1"))
+                .toList());
+        incidentRepository.save(incident);
+
+        List<String> read = new ArrayList<>();
+        String before = null;
+        do {
+            ElementPage<Incident.TimelineEvent> page = incidentRepository
+                    .findElementPage("1", "timeline", Incident.TimelineEvent.class, 2, before).orElseThrow();
+            read.addAll(0, page.items().stream().map(Incident.TimelineEvent::getId).toList());
+            before = page.before();
+        } while (before != null);
+
+        assertThat(read).containsExactlyInAnyOrderElementsOf(ids).doesNotHaveDuplicates();
+        assertThat(read.subList(0, 2)).containsExactly("k3x9a", "zz01"); // strings sort below object ids
+    }
+
+    private static List<Incident.TimelineEvent> timeline(int size) {
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+        return IntStream.range(0, size)
+                .mapToObj(i -> new Incident.TimelineEvent("t" + i, start.plusSeconds(i), "Event " + i, "user1"))
+                .toList();
+    }
 }
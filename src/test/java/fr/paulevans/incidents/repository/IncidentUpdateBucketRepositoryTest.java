@@ -0,0 +1,67 @@
+package fr.paulevans.incidents.repository;
+
+import fr.paulevans.incidents.config.IncidentUpdateProperties;
+import fr.paulevans.incidents.model.IncidentUpdate;
+import fr.paulevans.incidents.model.IncidentUpdateBucket;
+import fr.paulevans.incidents.service.IncidentUpdateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataMongoTest
+class IncidentUpdateBucketRepositoryTest {
+
+    @Autowired
+    private IncidentUpdateBucketRepository bucketRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private IncidentUpdateService incidentUpdateService;
+
+    @BeforeEach
+    void setup() {
+        bucketRepository.deleteAll();
+        incidentUpdateService = new IncidentUpdateService(bucketRepository, mongoTemplate,
+                new IncidentUpdateProperties(Duration.ofDays(1), 2, Duration.ofDays(90)));
+    }
+
+    @Test
+    void testSaveIncidentUpdate_RollsOverIntoNumberedBucketsReadInOrder() {
+        for (int i = 0; i < 5; i++) {
+            incidentUpdateService.saveIncidentUpdate("1", Map.of("title", Map.of("new", "Title " + i)));
+        }
+
+        List<IncidentUpdateBucket> buckets = bucketRepository.findByIncidentIdOrderByBucketStartAscSequenceAscIdAsc("1");
+        assertThat(buckets).extracting(IncidentUpdateBucket::getSequence).containsExactly(0, 1, 2);
+        assertThat(buckets).extracting(IncidentUpdateBucket::getCount).containsExactly(2, 2, 1);
+        assertThat(incidentUpdateService.getAllIncidentUpdatesForIncidentId("1"))
+                .extracting(update -> update.getChanges().get("title").get("new"))
+                .containsExactly("Title 0", "Title 1", "Title 2", "Title 3", "Title 4");
+    }
+
+    @Test
+    void testInsert_SecondBucketWithSameSequence_IsRejected() {
+        Instant bucketStart = Instant.parse("2025-03-01T00:00:00Z");
+        bucketRepository.insert(bucket(bucketStart, 0));
+
+        assertThatThrownBy(() -> bucketRepository.insert(bucket(bucketStart, 0)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    private static IncidentUpdateBucket bucket(Instant bucketStart, int sequence) {
+        return new IncidentUpdateBucket(null, "1", bucketStart, sequence, 1, bucketStart, null,
+                List.of(new IncidentUpdate(bucketStart, null, null, Map.of())));
+    }
+}
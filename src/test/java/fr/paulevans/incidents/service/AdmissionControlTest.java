@@ -0,0 +1,102 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.config.AdmissionControlProperties;
+import fr.paulevans.incidents.service.AdmissionControl.Decision;
+import fr.paulevans.incidents.service.AdmissionControl.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionControlTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdmissionControl admissionControl;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        admissionControl = new AdmissionControl(new AdmissionControlProperties(true, 10, 2, 20,
+                Duration.ofMillis(500), 0.5, 0.8, 0.5, Duration.ofSeconds(1)), meterRegistry);
+    }
+
+    @Test
+    void testTryAcquire_ShedsBulkReadsFirstAndWritesLast() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(admissionControl.tryAcquire(Priority.BULK_READ)).isEqualTo(Decision.ADMITTED);
+        }
+        assertThat(admissionControl.tryAcquire(Priority.BULK_READ)).isEqualTo(Decision.OVER_SHARE);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(admissionControl.tryAcquire(Priority.READ)).isEqualTo(Decision.ADMITTED);
+        }
+        assertThat(admissionControl.tryAcquire(Priority.READ)).isEqualTo(Decision.OVER_SHARE);
+
+        assertThat(admissionControl.tryAcquire(Priority.WRITE)).isEqualTo(Decision.ADMITTED);
+        assertThat(admissionControl.tryAcquire(Priority.WRITE)).isEqualTo(Decision.ADMITTED);
+        assertThat(admissionControl.tryAcquire(Priority.WRITE)).isEqualTo(Decision.OVER_LIMIT);
+
+        assertThat(meterRegistry.get("incidents.admission.rejected").tag("priority", "BULK_READ").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("incidents.admission.inflight").tag("priority", "WRITE").gauge().value())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void testRelease_AdaptsLimitToLatency() {
+        long now = 0;
+        admissionControl.tryAcquire(Priority.WRITE);
+        admissionControl.release(Priority.WRITE, SLOW, now += 2 * SLOW);
+        assertThat(admissionControl.limit()).isEqualTo(5);
+
+        admissionControl.tryAcquire(Priority.WRITE);
+        admissionControl.release(Priority.WRITE, SLOW, now += 2 * SLOW);
+        admissionControl.tryAcquire(Priority.WRITE);
+        admissionControl.release(Priority.WRITE, SLOW, now += 2 * SLOW);
+        assertThat(admissionControl.limit()).isEqualTo(2); // floor
+
+        // grows while fast and at least half used
+        admissionControl.tryAcquire(Priority.WRITE);
+        admissionControl.release(Priority.WRITE, FAST, now += FAST);
+        assertThat(admissionControl.limit()).isEqualTo(3);
+
+        // an idle instance does not grow its limit
+        admissionControl.tryAcquire(Priority.WRITE);
+        admissionControl.release(Priority.WRITE, FAST, now += FAST);
+        assertThat(admissionControl.limit()).isEqualTo(3);
+    }
+
+    @Test
+    void testRelease_BacksOffOncePerLatencyWindow() {
+        for (int i = 0; i < 4; i++) {
+            admissionControl.tryAcquire(Priority.WRITE);
+        }
+        // four requests admitted together all complete slowly, one signal of overload
+        long completed = SLOW;
+        for (int i = 0; i < 4; i++) {
+            admissionControl.release(Priority.WRITE, SLOW, completed + i);
+        }
+        assertThat(admissionControl.limit()).isEqualTo(5);
+
+        // a request admitted after the backoff and still slow backs off again
+        admissionControl.tryAcquire(Priority.WRITE);
+        admissionControl.release(Priority.WRITE, SLOW, completed + SLOW + 10);
+        assertThat(admissionControl.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void testRelease_WithoutLatency_KeepsLimit() {
+        admissionControl.tryAcquire(Priority.BULK_READ);
+        admissionControl.release(Priority.BULK_READ);
+
+        assertThat(admissionControl.limit()).isEqualTo(10);
+        assertThat(meterRegistry.get("incidents.admission.inflight").tag("priority", "BULK_READ").gauge().value())
+                .isZero();
+    }
+}
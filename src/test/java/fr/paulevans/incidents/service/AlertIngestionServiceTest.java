@@ -0,0 +1,167 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.config.EventSourcingProperties;
+import fr.paulevans.incidents.config.MongoClientProperties;
+import fr.paulevans.incidents.dto.AlertDelivery;
+import fr.paulevans.incidents.dto.AlertMessage;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentEvent;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.model.IncidentSummary;
+import fr.paulevans.incidents.patch.JsonPatchCodec;
+import fr.paulevans.incidents.repository.IncidentEventRepository;
+import fr.paulevans.incidents.repository.IncidentRepository;
+import fr.paulevans.incidents.repository.IncidentSnapshotRepository;
+import fr.paulevans.incidents.repository.IncidentSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataMongoTest
+@Import({AlertIngestionService.class, IncidentSummaryService.class})
+@EnableConfigurationProperties(MongoClientProperties.class)
+class AlertIngestionServiceTest {
+
+    private static final AtomicLong OFFSETS = new AtomicLong();
+
+    @Autowired
+    private AlertIngestionService alertIngestionService;
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Autowired
+    private IncidentSummaryRepository summaryRepository;
+
+    @Autowired
+    private IncidentEventRepository eventRepository;
+
+    @Autowired
+    private IncidentSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private IncidentSummaryService summaries;
+
+    @BeforeEach
+    void setup() {
+        incidentRepository.deleteAll();
+        summaryRepository.deleteAll();
+        eventRepository.deleteAll();
+        snapshotRepository.deleteAll();
+    }
+
+    @Test
+    void testIngest_CreatesOneIncidentPerFingerprintAndAppendsRepeats() {
+        int written = alertIngestionService.ingest(List.of(
+                alert("fp1", "firing", "critical"),
+                alert("fp2", "firing", "warning"),
+                alert("fp1", "firing", "critical")
+        ));
+
+        assertThat(written).isEqualTo(3);
+        List<Incident> incidents = incidentRepository.findAll();
+        assertThat(incidents).hasSize(2);
+
+        Incident fp1 = incidents.stream().filter(i -> i.getTags().contains("alert:fp1")).findFirst().orElseThrow();
+        assertThat(fp1.getSeverity()).isEqualTo("Critical");
+        assertThat(fp1.getStatus()).isEqualTo("OPEN");
+        assertThat(fp1.getTimeline()).hasSize(2);
+
+        IncidentSummary summary = summaryRepository.findById(fp1.getId()).orElseThrow();
+        assertThat(summary.getTimelineCount()).isEqualTo(2);
+        assertThat(summary.getTags()).containsExactly("alert:fp1");
+        assertThat(summaryRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void testIngest_AppendsToOpenIncidentAndIgnoresClosedOnes() {
+        alertIngestionService.ingest(List.of(alert("fp1", "firing", "high")));
+        Incident first = incidentRepository.findAll().getFirst();
+
+        alertIngestionService.ingest(List.of(alert("fp1", "resolved", "high")));
+        assertThat(incidentRepository.findById(first.getId()).orElseThrow().getTimeline())
+                .extracting(Incident.TimelineEvent::getDescription)
+                .containsExactly("Alert firing: Disk full", "Alert resolved: Disk full");
+
+        first = incidentRepository.findById(first.getId()).orElseThrow();
+        first.setStatus("CLOSED");
+        incidentRepository.save(first);
+
+        alertIngestionService.ingest(List.of(alert("fp1", "firing", "high")));
+        assertThat(incidentRepository.findAll()).hasSize(2);
+    }
+
+    @Test
+    void testIngest_DropsResolvedAlertWithoutOpenIncident() {
+        int written = alertIngestionService.ingest(List.of(alert("fp1", "resolved", "high")));
+
+        assertThat(written).isZero();
+        assertThat(incidentRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    void testIngest_WithEventSourcing_RebuildKeepsAlertTimeline() {
+        IncidentEventStore eventStore = new IncidentEventStore(eventRepository, snapshotRepository, incidentRepository,
+                mongoTemplate, new IncidentPatcher(), new JsonPatchCodec(Jackson2ObjectMapperBuilder.json().build()),
+                new EventSourcingProperties(true, 50, Duration.ofDays(30)), summaries, event -> { });
+        AlertIngestionService ingestion = new AlertIngestionService(mongoTemplate, incidentRepository,
+                Optional.of(eventStore), summaries, event -> { });
+
+        ingestion.ingest(List.of(alert("fp1", "firing", "high"), alert("fp1", "firing", "high")));
+        ingestion.ingest(List.of(alert("fp1", "resolved", "high")));
+        Incident stored = incidentRepository.findAll().getFirst();
+        assertThat(stored.getTimeline()).hasSize(3);
+
+        Incident rebuilt = eventStore.rebuild(stored.getId()).orElseThrow();
+
+        assertThat(rebuilt.getTimeline())
+                .extracting(Incident.TimelineEvent::getId, Incident.TimelineEvent::getDescription)
+                .containsExactlyElementsOf(stored.getTimeline().stream()
+                        .map(event -> tuple(event.getId(), event.getDescription()))
+                        .toList());
+    }
+
+    @Test
+    void testIngest_RetriedBatch_IsWrittenAndRecordedOnce() {
+        IncidentEventStore eventStore = new IncidentEventStore(eventRepository, snapshotRepository, incidentRepository,
+                mongoTemplate, new IncidentPatcher(), new JsonPatchCodec(Jackson2ObjectMapperBuilder.json().build()),
+                new EventSourcingProperties(true, 50, Duration.ofDays(30)), summaries, event -> { });
+        AlertIngestionService ingestion = new AlertIngestionService(mongoTemplate, incidentRepository,
+                Optional.of(eventStore), summaries, event -> { });
+        ingestion.ingest(List.of(alert("fp1", "firing", "high")));
+        List<AlertDelivery> batch = List.of(alert("fp2", "firing", "high"), alert("fp1", "firing", "high"),
+                alert("fp2", "firing", "high"));
+
+        ingestion.ingest(batch);
+        ingestion.ingest(batch); // redelivered after a failure past the write
+
+        assertThat(incidentRepository.findAll()).hasSize(2)
+                .allSatisfy(incident -> assertThat(incident.getTimeline()).hasSize(2));
+        assertThat(summaryRepository.findAll()).extracting(IncidentSummary::getTimelineCount).containsOnly(2);
+        assertThat(eventRepository.findAll()).extracting(IncidentEvent::getType).containsExactlyInAnyOrder(
+                IncidentEventType.CREATED, IncidentEventType.PATCHED,
+                IncidentEventType.CREATED, IncidentEventType.PATCHED);
+    }
+
+    private static AlertDelivery alert(String fingerprint, String status, String severity) {
+        return new AlertDelivery("incident-alerts-0@" + OFFSETS.getAndIncrement(), Instant.now(),
+                new AlertMessage(fingerprint, "prometheus", "Disk full", null, severity, status, Instant.now()));
+    }
+}
@@ -0,0 +1,133 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.config.IdempotencyProperties;
+import fr.paulevans.incidents.exceptions.IdempotencyKeyMismatchException;
+import fr.paulevans.incidents.config.QueryProperties;
+import fr.paulevans.incidents.model.IdempotencyRecord;
+import fr.paulevans.incidents.repository.DeadlineAwareMongoDatabaseFactory;
+import fr.paulevans.incidents.repository.QueryDeadline;
+import fr.paulevans.incidents.service.IdempotencyService.StoredResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataMongoTest
+class IdempotencyServiceTest {
+
+    private static final StoredResponse CREATED = new StoredResponse(201, "application/json", "{\"id\":\"1\"}".getBytes());
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private IdempotencyService idempotencyService;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setup() {
+        mongoTemplate.dropCollection(IdempotencyRecord.class);
+        idempotencyService = new IdempotencyService(mongoTemplate,
+                new IdempotencyProperties(true, Duration.ofHours(1), Duration.ofSeconds(30), Duration.ofSeconds(5)));
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void testExecute_ReplaysStoredResponseWithoutExecutingAgain() throws Exception {
+        assertThat(idempotencyService.execute("k1", "POST /incidents abc", this::create)).isNull();
+
+        StoredResponse replay = idempotencyService.execute("k1", "POST /incidents abc", this::create);
+
+        assertThat(executions).hasValue(1);
+        assertThat(replay.status()).isEqualTo(201);
+        assertThat(replay.body()).isEqualTo(CREATED.body());
+    }
+
+    @Test
+    void testExecute_WhenKeyReusedForAnotherRequest_Throws() throws Exception {
+        idempotencyService.execute("k1", "POST /incidents abc", this::create);
+
+        assertThrows(IdempotencyKeyMismatchException.class,
+                () -> idempotencyService.execute("k1", "POST /incidents def", this::create));
+    }
+
+    @Test
+    void testExecute_WhenResponseNotStored_ReleasesKey() throws Exception {
+        idempotencyService.execute("k1", "POST /incidents abc", () -> {
+            executions.incrementAndGet();
+            return null; // a server error
+        });
+
+        assertThat(idempotencyService.execute("k1", "POST /incidents abc", this::create)).isNull();
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void testExecute_CoalescesConcurrentDuplicates() throws Exception {
+        CountDownLatch executing = new CountDownLatch(1);
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return idempotencyService.execute("k1", "POST /incidents abc", () -> {
+                    executing.countDown();
+                    release.orTimeout(5, TimeUnit.SECONDS).join();
+                    return create();
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(executing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<StoredResponse> duplicate = CompletableFuture.supplyAsync(() -> {
+            try {
+                return idempotencyService.execute("k1", "POST /incidents abc", this::create);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        release.complete(null);
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(duplicate.get(5, TimeUnit.SECONDS).status()).isEqualTo(201);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void testExecute_StoresResponsePastRequestDeadline() throws Exception {
+        MongoTemplate deadlineAware = new MongoTemplate(new DeadlineAwareMongoDatabaseFactory(
+                mongoTemplate.getMongoDatabaseFactory(),
+                new QueryProperties(Duration.ofSeconds(5), Duration.ofSeconds(10), "X-Request-Timeout", Duration.ZERO, 500)),
+                mongoTemplate.getConverter());
+        idempotencyService = new IdempotencyService(deadlineAware,
+                new IdempotencyProperties(true, Duration.ofHours(1), Duration.ofSeconds(30), Duration.ofSeconds(5)));
+
+        QueryDeadline.start(Duration.ofSeconds(10));
+        try {
+            idempotencyService.execute("k1", "POST /incidents abc", () -> {
+                QueryDeadline.start(Duration.ZERO); // the request used up its budget
+                return create();
+            });
+        } finally {
+            QueryDeadline.clear();
+        }
+
+        assertThat(mongoTemplate.findById("k1", IdempotencyRecord.class).isCompleted()).isTrue();
+        assertThat(idempotencyService.execute("k1", "POST /incidents abc", this::create).status()).isEqualTo(201);
+        assertThat(executions).hasValue(1);
+    }
+
+    private StoredResponse create() {
+        executions.incrementAndGet();
+        return CREATED;
+    }
+}
@@ -0,0 +1,132 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.config.IncidentCacheProperties;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncidentCacheTest {
+
+    private IncidentCache cache;
+    private AtomicInteger loads;
+    private Function<String, Incident> loader;
+
+    @BeforeEach
+    void setup() {
+        cache = new IncidentCache(
+                new IncidentCacheProperties(true, Duration.ofMinutes(1), 100, "none", "incident-changes", "node1"),
+                new SimpleMeterRegistry());
+        loads = new AtomicInteger();
+        loader = id -> {
+            loads.incrementAndGet();
+            return new Incident(id, "Title", "Summary", "High", "OPEN", "creator1", Instant.now(), null, null, null,
+                    new ArrayList<>(List.of(new Incident.TimelineEvent("t1", Instant.now(), "Created", "user1"))),
+                    new ArrayList<>(), new ArrayList<>(List.of("tag1")));
+        };
+    }
+
+    @Test
+    void testGetIncident_ServesCopiesFromCache() {
+        Incident first = cache.getIncident("1", loader);
+        first.setTitle("Changed by a patch");
+        first.getTimeline().getFirst().setDescription("Changed too");
+
+        Incident second = cache.getIncident("1", loader);
+
+        assertThat(loads).hasValue(1);
+        assertThat(second.getTitle()).isEqualTo("Title");
+        assertThat(second.getTimeline().getFirst().getDescription()).isEqualTo("Created");
+    }
+
+    @Test
+    void testOnIncidentChanged_EvictsLocalAndRemoteChanges() {
+        cache.getIncident("1", loader);
+        cache.onIncidentChanged(IncidentChangedEvent.local("1", IncidentEventType.PATCHED));
+        cache.getIncident("1", loader);
+        cache.onIncidentChanged(new IncidentChangedEvent("1", IncidentEventType.PATCHED, true));
+        cache.getIncident("1", loader);
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void testGetIncident_DoesNotCacheMissingIncident() {
+        assertThat(cache.getIncident("999", id -> null)).isNull();
+        assertThat(cache.getIncident("999", loader)).isNotNull();
+    }
+
+    @Test
+    void testGetIncident_WhenDisabled_CoalescesConcurrentLoads() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IncidentCache uncached = new IncidentCache(
+                new IncidentCacheProperties(false, Duration.ofMinutes(1), 100, "none", "incident-changes", "node1"),
+                meterRegistry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        Function<String, Incident> slowLoader = id -> {
+            loading.countDown();
+            release.orTimeout(5, TimeUnit.SECONDS).join();
+            return loader.apply(id);
+        };
+
+        CompletableFuture<Incident> first = CompletableFuture.supplyAsync(() -> uncached.getIncident("1", slowLoader));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Incident> second = CompletableFuture.supplyAsync(() -> uncached.getIncident("1", slowLoader));
+        while (meterRegistry.get("incidents.reads.coalesced").tag("read", "incident").counter().count() == 0) {
+            Thread.onSpinWait();
+        }
+        release.complete(null);
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isNotSameAs(second.get(5, TimeUnit.SECONDS));
+        assertThat(loads).hasValue(1);
+
+        // nothing is kept once the load completed
+        uncached.getIncident("1", loader);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void testGetIncident_WhenSharedLoadTimesOut_LoadsUnderOwnDeadline() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IncidentCache uncached = new IncidentCache(
+                new IncidentCacheProperties(false, Duration.ofMinutes(1), 100, "none", "incident-changes", "node1"),
+                meterRegistry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CompletableFuture<Void> timeout = new CompletableFuture<>();
+        Function<String, Incident> impatientLoader = id -> {
+            loading.countDown();
+            timeout.orTimeout(5, TimeUnit.SECONDS).join();
+            throw new QueryTimeoutException("Request deadline exceeded"); // the first caller's short deadline
+        };
+
+        CompletableFuture<Incident> first = CompletableFuture.supplyAsync(
+                () -> uncached.getIncident("1", impatientLoader));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Incident> second = CompletableFuture.supplyAsync(() -> uncached.getIncident("1", loader));
+        while (meterRegistry.get("incidents.reads.coalesced").tag("read", "incident").counter().count() == 0) {
+            Thread.onSpinWait();
+        }
+        timeout.complete(null);
+
+        assertThat(first).failsWithin(5, TimeUnit.SECONDS).withThrowableThat().havingRootCause()
+                .isInstanceOf(QueryTimeoutException.class);
+        assertThat(second.get(5, TimeUnit.SECONDS).getId()).isEqualTo("1");
+        assertThat(loads).hasValue(1);
+    }
+}
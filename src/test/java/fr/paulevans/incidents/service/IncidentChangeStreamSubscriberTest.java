@@ -0,0 +1,110 @@
+package fr.paulevans.incidents.service;
+
+import com.mongodb.client.model.changestream.OperationType;
+import fr.paulevans.incidents.config.ChangeStreamProperties;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
+import fr.paulevans.incidents.model.ChangeStreamCheckpoint;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.repository.ChangeStreamCheckpointRepository;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class IncidentChangeStreamSubscriberTest {
+
+    private ChangeStreamCheckpointRepository checkpointRepository;
+    private List<Object> publishedEvents;
+    private IncidentChangeStreamSubscriber subscriber;
+
+    @BeforeEach
+    void setup() {
+        checkpointRepository = Mockito.mock(ChangeStreamCheckpointRepository.class);
+        publishedEvents = new ArrayList<>();
+        subscriber = new IncidentChangeStreamSubscriber(Mockito.mock(MongoTemplate.class), checkpointRepository,
+                publishedEvents::add,
+                new ChangeStreamProperties(true, "node1", 500, Duration.ofSeconds(1), Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void testDispatch_CoalescesChangesPerIncident() {
+        subscriber.dispatch(List.of(
+                change("1", OperationType.INSERT, "a"),
+                change("2", OperationType.UPDATE, "b"),
+                change("1", OperationType.UPDATE, "c"),
+                change("2", OperationType.DELETE, "d")
+        ));
+
+        assertThat(publishedEvents).containsExactly(
+                new IncidentChangedEvent("1", IncidentEventType.CREATED, true),
+                new IncidentChangedEvent("2", IncidentEventType.DELETED, true));
+    }
+
+    @Test
+    void testDispatch_CheckpointsAfterLastChange() {
+        subscriber.dispatch(List.of(change("1", OperationType.INSERT, "a"), change("1", OperationType.REPLACE, "b")));
+
+        ArgumentCaptor<ChangeStreamCheckpoint> captor = ArgumentCaptor.forClass(ChangeStreamCheckpoint.class);
+        verify(checkpointRepository).save(captor.capture());
+        assertThat(captor.getValue().getId()).isEqualTo("node1");
+        assertThat(BsonDocument.parse(captor.getValue().getResumeToken())).isEqualTo(token("b"));
+    }
+
+    @Test
+    void testDispatch_IgnoresEmptyBatch() {
+        subscriber.dispatch(List.of());
+
+        assertThat(publishedEvents).isEmpty();
+        verify(checkpointRepository, never()).save(any());
+    }
+
+    @Test
+    void testProperties_RequireCheckpointIdWhenEnabled() {
+        assertThatThrownBy(() -> new ChangeStreamProperties(true, " ", 500, Duration.ofSeconds(1), Duration.ofSeconds(5)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("checkpoint-id");
+        assertThat(new ChangeStreamProperties(false, null, 500, Duration.ofSeconds(1), Duration.ofSeconds(5)).enabled())
+                .isFalse();
+    }
+
+    @Test
+    void testRun_ReopensAfterDataAccessError() {
+        MongoTemplate mongoTemplate = Mockito.mock(MongoTemplate.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(checkpointRepository.findById("node1"))
+                .thenThrow(new DataAccessResourceFailureException("checkpoints unavailable"));
+        IncidentChangeStreamSubscriber retrying = new IncidentChangeStreamSubscriber(mongoTemplate,
+                checkpointRepository, publishedEvents::add,
+                new ChangeStreamProperties(true, "node1", 500, Duration.ofSeconds(1), Duration.ofMillis(10)));
+
+        retrying.start();
+        try {
+            verify(checkpointRepository, timeout(5000).atLeast(3)).findById("node1");
+        } finally {
+            retrying.stop();
+        }
+        assertThat(retrying.isRunning()).isFalse();
+    }
+
+    private static IncidentChangeStreamSubscriber.Change change(String id, OperationType operation, String token) {
+        return new IncidentChangeStreamSubscriber.Change(id, operation, token(token));
+    }
+
+    private static BsonDocument token(String data) {
+        return new BsonDocument("_data", new BsonString(data));
+    }
+}
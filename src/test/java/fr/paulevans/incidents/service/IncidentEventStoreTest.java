@@ -0,0 +1,127 @@
+package fr.paulevans.incidents.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paulevans.incidents.config.EventSourcingProperties;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentEvent;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.model.IncidentSnapshot;
+import fr.paulevans.incidents.patch.JsonPatchCodec;
+import fr.paulevans.incidents.repository.IncidentEventRepository;
+import fr.paulevans.incidents.repository.IncidentRepository;
+import fr.paulevans.incidents.repository.IncidentSnapshotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class IncidentEventStoreTest {
+
+    private IncidentEventRepository eventRepository;
+    private IncidentSnapshotRepository snapshotRepository;
+    private MongoTemplate mongoTemplate;
+    private IncidentEventStore eventStore;
+
+    @BeforeEach
+    void setup() {
+        eventRepository = Mockito.mock(IncidentEventRepository.class);
+        snapshotRepository = Mockito.mock(IncidentSnapshotRepository.class);
+        mongoTemplate = Mockito.mock(MongoTemplate.class);
+        eventStore = new IncidentEventStore(eventRepository, snapshotRepository,
+                Mockito.mock(IncidentRepository.class), mongoTemplate, new IncidentPatcher(),
+                new JsonPatchCodec(new ObjectMapper().findAndRegisterModules()),
+                new EventSourcingProperties(true, 2, Duration.ofDays(30)),
+                Mockito.mock(IncidentSummaryService.class), event -> { });
+    }
+
+    private Incident incident(String title) {
+        return new Incident("1", title, "Summary", "High", "OPEN", "creator1",
+                Instant.parse("2025-03-01T10:00:00Z"), null, null, null, List.of(), List.of(), List.of());
+    }
+
+    @Test
+    void testReplay_AppliesTailEventsOnTopOfSnapshot() {
+        Instant at = Instant.parse("2025-03-01T12:00:00Z");
+        when(snapshotRepository.findFirstByIncidentIdAndTimestampLessThanEqualOrderBySequenceDesc("1", at))
+                .thenReturn(Optional.of(new IncidentSnapshot("s2", "1", 2, Instant.parse("2025-03-01T11:00:00Z"),
+                        incident("Snapshot Title"))));
+        when(eventRepository.findByIncidentIdAndSequenceGreaterThanAndTimestampLessThanEqualOrderBySequenceAsc("1", 2, at))
+                .thenReturn(List.of(new IncidentEvent("e3", "1", 3, Instant.parse("2025-03-01T11:30:00Z"),
+                        IncidentEventType.PATCHED, null, Map.of("title", "Replayed Title"), null)));
+
+        Optional<Incident> state = eventStore.replay("1", at);
+
+        assertThat(state).isPresent();
+        assertThat(state.get().getTitle()).isEqualTo("Replayed Title");
+        assertThat(state.get().getUpdatedAt()).isEqualTo(Instant.parse("2025-03-01T11:30:00Z"));
+    }
+
+    @Test
+    void testReplay_WhenDeleted_ShouldBeEmpty() {
+        Instant at = Instant.now();
+        when(snapshotRepository.findFirstByIncidentIdAndTimestampLessThanEqualOrderBySequenceDesc("1", at))
+                .thenReturn(Optional.empty());
+        when(eventRepository.findByIncidentIdAndSequenceGreaterThanAndTimestampLessThanEqualOrderBySequenceAsc("1", 0, at))
+                .thenReturn(List.of(
+                        new IncidentEvent("e1", "1", 1, at, IncidentEventType.CREATED, incident("Title"), null, null),
+                        new IncidentEvent("e2", "1", 2, at, IncidentEventType.DELETED, null, null, null)));
+
+        assertThat(eventStore.replay("1", at)).isEmpty();
+    }
+
+    @Test
+    void testAppendPatched_TakesSnapshotEveryInterval() {
+        when(eventRepository.findFirstByIncidentIdOrderBySequenceDesc("1"))
+                .thenReturn(Optional.of(new IncidentEvent("e1", "1", 1, Instant.now(), IncidentEventType.CREATED, null, null, null)));
+
+        eventStore.appendPatched(incident("New Title"), Map.of("title", "New Title"));
+
+        verify(eventRepository).insert(argThat((IncidentEvent e) -> e.getSequence() == 2));
+        verify(snapshotRepository).save(argThat(s -> s.getSequence() == 2 && s.getState().getTitle().equals("New Title")));
+    }
+
+    @Test
+    void testAppendPatched_WhenBoundaryEventHadNoState_TakesSnapshotAtNextEvent() {
+        when(eventRepository.findFirstByIncidentIdOrderBySequenceDesc("1"))
+                .thenReturn(Optional.of(new IncidentEvent("e2", "1", 2, Instant.now(), IncidentEventType.PATCHED, null, null, null)));
+
+        eventStore.appendPatched(incident("New Title"), Map.of("title", "New Title"));
+
+        verify(snapshotRepository).save(argThat(s -> s.getSequence() == 3));
+    }
+
+    @Test
+    void testAppendPatched_WhenBoundarySnapshotTaken_SkipsUntilNextBoundary() {
+        when(eventRepository.findFirstByIncidentIdOrderBySequenceDesc("1"))
+                .thenReturn(Optional.of(new IncidentEvent("e2", "1", 2, Instant.now(), IncidentEventType.PATCHED, null, null, null)));
+        when(mongoTemplate.findOne(any(Query.class), eq(IncidentSnapshot.class)))
+                .thenReturn(new IncidentSnapshot("s2", "1", 2, Instant.now(), null));
+
+        eventStore.appendPatched(incident("New Title"), Map.of("title", "New Title"));
+
+        verify(snapshotRepository, never()).save(any());
+    }
+
+    @Test
+    void testAppend_WhenSequenceTaken_ShouldThrowConflict() {
+        when(eventRepository.findFirstByIncidentIdOrderBySequenceDesc("1")).thenReturn(Optional.empty());
+        when(eventRepository.insert(any(IncidentEvent.class))).thenThrow(new DuplicateKeyException("dup"));
+
+        assertThrows(OptimisticLockingFailureException.class, () -> eventStore.appendCreated(incident("Title")));
+        verify(snapshotRepository, never()).save(any());
+    }
+}
@@ -1,29 +1,61 @@
 package fr.paulevans.incidents.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ReadPreference;
+import com.mongodb.client.result.UpdateResult;
+import fr.paulevans.incidents.config.IncidentCacheProperties;
+import fr.paulevans.incidents.config.MongoClientProperties;
+import fr.paulevans.incidents.config.QueryProperties;
 import fr.paulevans.incidents.dto.IncidentSummaryDto;
+import fr.paulevans.incidents.event.IncidentChangedEvent;
 import fr.paulevans.incidents.exceptions.IncidentValidationException;
+import fr.paulevans.incidents.exceptions.PatchTargetNotFoundException;
+import fr.paulevans.incidents.exceptions.PatchTestFailedException;
 import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.model.IncidentSummary;
+import fr.paulevans.incidents.patch.JsonPatchCodec;
+import fr.paulevans.incidents.patch.PatchOperation;
 import fr.paulevans.incidents.repository.IncidentRepository;
+import fr.paulevans.incidents.repository.IncidentSummaryRepository;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 import jakarta.validation.ValidatorFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistryAssert;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
-
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class IncidentServiceTest {
 
     private IncidentRepository incidentRepository;
+    private IncidentSummaryRepository summaryRepository;
+    private MongoTemplate mongoTemplate;
     private Validator validator;
     private IncidentService incidentService;
+    private List<Object> publishedEvents;
 
     private Incident validIncident;
 
@@ -34,7 +66,12 @@ public class IncidentServiceTest {
         ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
         validator = factory.getValidator();
 
-        incidentService = new IncidentService(incidentRepository, validator);
+        publishedEvents = new ArrayList<>();
+        summaryRepository = Mockito.mock(IncidentSummaryRepository.class);
+        mongoTemplate = Mockito.mock(MongoTemplate.class);
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(IncidentSummary.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        incidentService = incidentService(Optional.empty(), ObservationRegistry.NOOP);
 
         validIncident = new Incident(
                 "1",
@@ -84,6 +121,24 @@ public class IncidentServiceTest {
         verify(incidentRepository).save(any());
     }
 
+    @Test
+    void testPatchIncident_ConvertsValuesAndRejectsUnknownOrIdFields() {
+        when(incidentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Incident updated = incidentService.patchIncident(validIncident,
+                Map.of("resolvedAt", "2026-01-02T03:04:05Z", "tags", List.of("db")));
+
+        assertThat(updated.getResolvedAt()).isEqualTo(Instant.parse("2026-01-02T03:04:05Z"));
+        assertThat(updated.getTags()).containsExactly("db");
+        assertThrows(IllegalArgumentException.class, () ->
+                incidentService.patchIncident(validIncident, Map.of("id", "2")));
+        assertThrows(IllegalArgumentException.class, () ->
+                incidentService.patchIncident(validIncident, Map.of("unknown", "x")));
+        assertThrows(IllegalArgumentException.class, () ->
+                incidentService.patchIncident(validIncident, Map.of("title", 42)));
+        assertThat(updated.getId()).isEqualTo("1");
+    }
+
     @Test
     void testPatchIncident_UpdatesNoteById() {
         when(incidentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
@@ -100,6 +155,93 @@ public class IncidentServiceTest {
         assertThat(updated.getNotes().get(0).getNote()).isEqualTo("Updated Note");
     }
 
+    @Test
+    void testPatchIncident_InsertsUpdatesAndRemovesNotesInOneCall() {
+        when(incidentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        validIncident.setNotes(List.of(
+                new Incident.Note("n1", "author1", "First note", Instant.now()),
+                new Incident.Note("n2", "author2", "Second note", Instant.now())
+        ));
+
+        Map<String, Object> updates = Map.of(
+                "notes", List.of(
+                        Map.of("id", "n1", "note", "Updated Note"),
+                        Map.of("id", "n2", "_op", "remove"),
+                        Map.of("id", "n3", "_op", "add", "author", "author3", "note", "New note",
+                                "timestamp", Instant.now().toString())
+                )
+        );
+
+        Incident updated = incidentService.patchIncident(validIncident, updates);
+
+        assertThat(updated.getNotes()).extracting(Incident.Note::getId).containsExactly("n1", "n3");
+        assertThat(updated.getNotes().get(0).getNote()).isEqualTo("Updated Note");
+        assertThat(updated.getNotes().get(1).getNote()).isEqualTo("New note");
+    }
+
+    @Test
+    void testPatchIncident_WhenTimelineNull_ShouldInsertEvent() {
+        when(incidentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        validIncident.setTimeline(null);
+
+        Map<String, Object> updates = Map.of(
+                "timeline", List.of(
+                        Map.of("description", "Rolled back", "actor", "user1", "timestamp", Instant.now().toString())
+                )
+        );
+
+        Incident updated = incidentService.patchIncident(validIncident, updates);
+
+        assertThat(updated.getTimeline()).hasSize(1);
+        assertThat(updated.getTimeline().get(0).getId()).isNotNull();
+    }
+
+    @Test
+    void testPatchIncident_WhenUpdatedNoteMissing_ShouldReportItAndNotInsert() {
+        Map<String, Object> updates = Map.of(
+                "notes", List.of(Map.of("id", "typo", "note", "Updated Note"))
+        );
+
+        PatchTargetNotFoundException ex = assertThrows(PatchTargetNotFoundException.class, () ->
+                incidentService.patchIncident(validIncident, updates)
+        );
+
+        assertThat(ex.getMissing()).containsExactly("notes: no element with id typo");
+        assertThat(validIncident.getNotes()).extracting(Incident.Note::getId).doesNotContain("typo");
+        verify(incidentRepository, never()).save(any());
+    }
+
+    @Test
+    void testPatchIncident_WhenRemovedNotesMissing_ShouldReportAll() {
+        Map<String, Object> updates = Map.of(
+                "notes", List.of(
+                        Map.of("id", "missing1", "_op", "remove"),
+                        Map.of("id", "missing2", "_op", "remove")
+                )
+        );
+
+        PatchTargetNotFoundException ex = assertThrows(PatchTargetNotFoundException.class, () ->
+                incidentService.patchIncident(validIncident, updates)
+        );
+
+        assertThat(ex.getMissing()).containsExactly(
+                "notes: no element with id missing1",
+                "notes: no element with id missing2");
+        verify(incidentRepository, never()).save(any());
+    }
+
+    @Test
+    void testPatchIncident_PublishesChangeOnlyAfterSave() {
+        when(incidentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        incidentService.patchIncident(validIncident, Map.of("title", "New Title"));
+        assertThrows(IncidentValidationException.class, () ->
+                incidentService.patchIncident(validIncident, Map.of("title", ""))
+        );
+
+        assertThat(publishedEvents).containsExactly(IncidentChangedEvent.local("1", IncidentEventType.PATCHED));
+    }
+
     @Test
     void testPatchIncident_ValidationError() {
         Map<String, Object> updates = Map.of("title", ""); // Empty title should fail
@@ -109,6 +251,75 @@ public class IncidentServiceTest {
         );
     }
 
+    @Test
+    void testPatchIncident_ValidatesOnlyTouchedProperties() {
+        when(incidentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        // an untouched invalid note does not block an unrelated patch
+        validIncident.setNotes(List.of(new Incident.Note("n1", "", "Note content", Instant.now())));
+
+        Incident updated = incidentService.patchIncident(validIncident, Map.of("title", "New Title"));
+
+        assertThat(updated.getTitle()).isEqualTo("New Title");
+    }
+
+    @Test
+    void testPatchIncident_ReportsNestedViolationWithIndex() {
+        validIncident.setNotes(List.of(
+                new Incident.Note("n1", "author1", "First note", Instant.now()),
+                new Incident.Note("n2", "author2", "Second note", Instant.now())
+        ));
+        Map<String, Object> updates = Map.of("notes", List.of(Map.of("id", "n2", "author", "")));
+
+        IncidentValidationException ex = assertThrows(IncidentValidationException.class, () ->
+                incidentService.patchIncident(validIncident, updates)
+        );
+
+        assertThat(ex.getDetails()).singleElement().asString().startsWith("notes[1].author: ");
+        verify(incidentRepository, never()).save(any());
+    }
+
+    @Test
+    void testApplyPatchOperations_InsertMoveAndRemove() throws Exception {
+        when(incidentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        validIncident.setNotes(new ArrayList<>(List.of(
+                new Incident.Note("n1", "author1", "First note", Instant.now()),
+                new Incident.Note("n2", "author2", "Second note", Instant.now())
+        )));
+        List<PatchOperation> operations = parseJsonPatch("""
+                [
+                  {"op": "test", "path": "/title", "value": "Title Example"},
+                  {"op": "replace", "path": "/title", "value": "New Title"},
+                  {"op": "add", "path": "/notes/0", "value": {"author": "author3", "note": "Inserted", "timestamp": "2025-01-01T00:00:00Z"}},
+                  {"op": "move", "from": "/notes/2", "path": "/notes/1"},
+                  {"op": "remove", "path": "/tags/0"}
+                ]
+                """);
+
+        Incident updated = incidentService.applyPatchOperations(validIncident, operations);
+
+        assertThat(updated.getTitle()).isEqualTo("New Title");
+        assertThat(updated.getNotes()).extracting(Incident.Note::getNote)
+                .containsExactly("Inserted", "Second note", "First note");
+        assertThat(updated.getNotes().get(0).getId()).isNotBlank();
+        assertThat(updated.getTags()).containsExactly("tag2");
+    }
+
+    @Test
+    void testApplyPatchOperations_FailedTestLeavesIncidentUnsaved() throws Exception {
+        List<PatchOperation> operations = parseJsonPatch("""
+                [
+                  {"op": "test", "path": "/status", "value": "CLOSED"},
+                  {"op": "replace", "path": "/status", "value": "RESOLVED"}
+                ]
+                """);
+
+        assertThrows(PatchTestFailedException.class, () ->
+                incidentService.applyPatchOperations(validIncident, operations)
+        );
+
+        verify(incidentRepository, never()).save(any());
+    }
+
     @Test
     void testSaveIncident() {
         when(incidentRepository.save(validIncident)).thenReturn(validIncident);
@@ -138,11 +349,28 @@ public class IncidentServiceTest {
         verify(incidentRepository).deleteById("1");
     }
 
+    @Test
+    void testSaveAndDelete_RecordEventsAfterTheWrite() {
+        IncidentEventStore eventStore = Mockito.mock(IncidentEventStore.class);
+        IncidentService eventSourced = incidentService(Optional.of(eventStore), ObservationRegistry.NOOP);
+        when(incidentRepository.save(validIncident)).thenThrow(new DuplicateKeyException("dup"));
+
+        assertThrows(DuplicateKeyException.class, () -> eventSourced.saveIncident(validIncident));
+        verify(eventStore, never()).appendCreated(any(Incident.class));
+
+        eventSourced.deleteIncident("1");
+        var order = inOrder(incidentRepository, eventStore);
+        order.verify(incidentRepository).deleteById("1");
+        order.verify(eventStore).appendDeleted("1");
+    }
+
 
     @Test
     void testIncidentSummaryProjection() {
-        // Repository returns a projection-like object
-        when(incidentRepository.findAllSummaries()).thenReturn(List.of(validIncident));
+        // Summaries are read from their own collection, never from the incidents, and may come from a secondary
+        when(mongoTemplate.find(argThat((Query query) -> query.getReadPreference().equals(
+                ReadPreference.secondaryPreferred(90, TimeUnit.SECONDS))), eq(IncidentSummary.class)))
+                .thenReturn(List.of(IncidentSummary.of(validIncident)));
 
         List<IncidentSummaryDto> summaries = incidentService.getAllIncidentSummaries();
 
@@ -151,5 +379,77 @@ public class IncidentServiceTest {
         assertThat(summaries.get(0).title()).isEqualTo("Title Example");
         assertThat(summaries.get(0).severity()).isEqualTo("High");
         assertThat(summaries.get(0).status()).isEqualTo("OPEN");
+        assertThat(summaries.get(0).noteCount()).isEqualTo(1);
+        assertThat(summaries.get(0).timelineCount()).isEqualTo(1);
+        verifyNoMoreInteractions(incidentRepository);
+    }
+
+    @Test
+    void testPatchIncident_UpsertsSummary() {
+        when(incidentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        incidentService.patchIncident(validIncident, Map.of("notes", List.of(
+                Map.of("author", "author2", "note", "Second note", "timestamp", "2030-01-01T00:00:00Z"))));
+
+        // field by field, a concurrent timeline append to the summary is kept
+        verify(mongoTemplate).updateFirst(any(Query.class), argThat((UpdateDefinition update) ->
+                update.getUpdateObject().get("$set", Document.class).get("noteCount").equals(2)
+                        && update.getUpdateObject().get("$inc", Document.class).get("timelineCount").equals(0)
+                        && update.getUpdateObject().get("$max", Document.class).get("lastActivityAt")
+                        .equals(Instant.parse("2030-01-01T00:00:00Z"))), eq(IncidentSummary.class));
+        verify(summaryRepository, never()).save(any());
+    }
+
+    @Test
+    void testPatchIncident_ObservesEachStage() {
+        TestObservationRegistry observations = TestObservationRegistry.create();
+        IncidentService observed = incidentService(Optional.empty(), observations);
+        when(incidentRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        observed.patchIncident(validIncident, Map.of("title", "Observed Title"));
+
+        TestObservationRegistryAssert.assertThat(observations)
+                .hasNumberOfObservationsWithNameEqualTo("incidents.patch", 3)
+                .hasAnObservation(observation -> observation.hasContextualNameEqualTo("patch apply")
+                        .hasLowCardinalityKeyValue("stage", "apply"))
+                .hasAnObservation(observation -> observation.hasContextualNameEqualTo("patch validate")
+                        .hasLowCardinalityKeyValue("stage", "validate"))
+                .hasAnObservation(observation -> observation.hasContextualNameEqualTo("patch save")
+                        .hasLowCardinalityKeyValue("stage", "save"))
+                .hasObservationWithNameEqualTo("incidents.patch").that().hasBeenStopped();
+    }
+
+    @Test
+    void testPatchIncident_WhenInvalid_ObservesNoSave() {
+        TestObservationRegistry observations = TestObservationRegistry.create();
+        IncidentService observed = incidentService(Optional.empty(), observations);
+
+        assertThrows(IncidentValidationException.class,
+                () -> observed.patchIncident(validIncident, Map.of("title", "")));
+
+        TestObservationRegistryAssert.assertThat(observations)
+                .hasNumberOfObservationsWithNameEqualTo("incidents.patch", 2)
+                .forAllObservationsWithNameEqualTo("incidents.patch",
+                        observation -> observation.doesNotHaveLowCardinalityKeyValue("stage", "save"));
+        verify(incidentRepository, never()).save(any());
+    }
+
+    private IncidentService incidentService(Optional<IncidentEventStore> eventStore, ObservationRegistry observations) {
+        IncidentCache cache = new IncidentCache(
+                new IncidentCacheProperties(false, Duration.ofSeconds(30), 100, "none", "incident-changes", "node1"),
+                new SimpleMeterRegistry());
+        MongoClientProperties mongoProperties = new MongoClientProperties(null, Duration.ofSeconds(5),
+                Duration.ofSeconds(30), Duration.ofSeconds(10), List.of(),
+                new MongoClientProperties.DashboardReads("secondaryPreferred", Duration.ofSeconds(90)));
+        IncidentSummaryService summaries = new IncidentSummaryService(summaryRepository, mongoTemplate, mongoProperties);
+        return new IncidentService(incidentRepository, validator, new IncidentPatcher(), eventStore,
+                summaries, cache, publishedEvents::add, observations,
+                new QueryProperties(Duration.ofSeconds(5), Duration.ofSeconds(10), "X-Request-Timeout",
+                        Duration.ofMinutes(5), 500));
+    }
+
+    private static List<PatchOperation> parseJsonPatch(String json) throws Exception {
+        JsonPatchCodec codec = new JsonPatchCodec(new ObjectMapper().findAndRegisterModules());
+        return codec.parseJsonPatch(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
     }
 }
@@ -0,0 +1,95 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.config.MongoClientProperties;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentSummary;
+import fr.paulevans.incidents.repository.IncidentRepository;
+import fr.paulevans.incidents.repository.IncidentSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.mongodb.client.model.Filters.eq;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest
+class IncidentSummaryServiceTest {
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Autowired
+    private IncidentSummaryRepository summaryRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private IncidentSummaryService summaries;
+
+    @BeforeEach
+    void setup() {
+        incidentRepository.deleteAll();
+        summaryRepository.deleteAll();
+        mongoTemplate.dropCollection("migrations");
+        summaries = new IncidentSummaryService(summaryRepository, mongoTemplate, new MongoClientProperties(null,
+                Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofSeconds(10), List.of(),
+                new MongoClientProperties.DashboardReads("secondaryPreferred", Duration.ofSeconds(90))));
+    }
+
+    @Test
+    void testUpsertPatched_KeepsConcurrentTimelineAppends() {
+        Incident incident = incident("1");
+        summaries.upsert(incident);
+        // an event pushed onto the stored timeline after the patch read the incident
+        summaries.recordTimelineAppends(Map.of("1", 1), Instant.parse("2025-03-01T12:00:00Z"));
+
+        incident.setTitle("Patched");
+        incident.getTimeline().add(new Incident.TimelineEvent("t2", Instant.parse("2025-03-01T11:00:00Z"),
+                "Added by the patch", "user1"));
+        summaries.upsertPatched(incident, 1);
+
+        IncidentSummary summary = summaryRepository.findById("1").orElseThrow();
+        assertThat(summary.getTitle()).isEqualTo("Patched");
+        assertThat(summary.getTimelineCount()).isEqualTo(3);
+        assertThat(summary.getLastActivityAt()).isEqualTo(Instant.parse("2025-03-01T12:00:00Z"));
+    }
+
+    @Test
+    void testUpsertPatched_WhenSummaryMissing_WritesItWhole() {
+        summaries.upsertPatched(incident("1"), 0);
+
+        assertThat(summaryRepository.findById("1").orElseThrow().getTimelineCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testBackfillIfEmpty_ResumesUntilRecordedComplete() {
+        incidentRepository.saveAll(List.of(incident("1"), incident("2")));
+        summaries.upsert(incident("1")); // left by a backfill interrupted part way
+
+        summaries.backfillIfEmpty();
+
+        assertThat(summaryRepository.count()).isEqualTo(2);
+        assertThat(mongoTemplate.getCollection("migrations")
+                .find(eq("_id", IncidentSummaryService.BACKFILL_ID)).first()).isNotNull();
+
+        summaryRepository.deleteById("2");
+        summaries.backfillIfEmpty();
+        assertThat(summaryRepository.count()).isEqualTo(1);
+    }
+
+    private static Incident incident(String id) {
+        return new Incident(id, "Title", "Summary", "High", "OPEN", "creator1", Instant.parse("2025-03-01T10:00:00Z"),
+                null, null, null,
+                new ArrayList<>(List.of(new Incident.TimelineEvent("t1", Instant.parse("2025-03-01T10:00:00Z"),
+                        "Created", "user1"))),
+                new ArrayList<>(), new ArrayList<>(List.of("db")));
+    }
+}
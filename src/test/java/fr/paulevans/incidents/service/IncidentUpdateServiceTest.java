@@ -0,0 +1,85 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.config.IncidentUpdateProperties;
+import fr.paulevans.incidents.model.IncidentUpdate;
+import fr.paulevans.incidents.model.IncidentUpdateBucket;
+import fr.paulevans.incidents.repository.IncidentUpdateBucketRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class IncidentUpdateServiceTest {
+
+    private IncidentUpdateBucketRepository bucketRepository;
+    private MongoTemplate mongoTemplate;
+    private IncidentUpdateService incidentUpdateService;
+
+    @BeforeEach
+    void setup() {
+        bucketRepository = Mockito.mock(IncidentUpdateBucketRepository.class);
+        mongoTemplate = Mockito.mock(MongoTemplate.class);
+        incidentUpdateService = new IncidentUpdateService(bucketRepository, mongoTemplate,
+                new IncidentUpdateProperties(Duration.ofHours(1), 200, Duration.ofDays(90)));
+    }
+
+    @Test
+    void testBucketStart_TruncatesToBucketSpan() {
+        Instant bucketStart = incidentUpdateService.bucketStart(Instant.parse("2025-03-01T10:42:17.123Z"));
+
+        assertThat(bucketStart).isEqualTo(Instant.parse("2025-03-01T10:00:00Z"));
+    }
+
+    @Test
+    void testSaveIncidentUpdate_UpsertsIntoCurrentBucket() {
+        Optional<IncidentUpdate> saved = incidentUpdateService.saveIncidentUpdate(
+                "1", Map.of("title", Map.of("old", "Old Title", "new", "New Title")));
+
+        assertThat(saved).isPresent();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(IncidentUpdateBucket.class));
+
+        assertThat(query.getValue().getQueryObject().get("incidentId")).isEqualTo("1");
+        assertThat(query.getValue().getQueryObject().get("bucketStart"))
+                .isEqualTo(incidentUpdateService.bucketStart(saved.get().getTimestamp()));
+        assertThat(update.getValue().getUpdateObject()).containsKeys("$push", "$inc", "$set");
+    }
+
+    @Test
+    void testSaveIncidentUpdate_WhenNoChanges_ShouldNotWrite() {
+        Optional<IncidentUpdate> saved = incidentUpdateService.saveIncidentUpdate("1", Map.of());
+
+        assertThat(saved).isEmpty();
+        verify(mongoTemplate, never()).upsert(any(), any(), any(Class.class));
+    }
+
+    @Test
+    void testGetAllIncidentUpdates_FlattensBucketsInOrder() {
+        IncidentUpdate first = new IncidentUpdate(Instant.parse("2025-03-01T10:01:00Z"), "u1", "title", Map.of());
+        IncidentUpdate second = new IncidentUpdate(Instant.parse("2025-03-01T11:05:00Z"), "u1", "status", Map.of());
+        when(bucketRepository.findByIncidentIdOrderByBucketStartAscSequenceAscIdAsc("1")).thenReturn(List.of(
+                new IncidentUpdateBucket("b1", "1", Instant.parse("2025-03-01T10:00:00Z"), 0, 1, null, null, List.of(first)),
+                new IncidentUpdateBucket("b2", "1", Instant.parse("2025-03-01T11:00:00Z"), 0, 1, null, null, List.of(second))
+        ));
+
+        List<IncidentUpdate> updates = incidentUpdateService.getAllIncidentUpdatesForIncidentId("1");
+
+        assertThat(updates).containsExactly(first, second);
+    }
+}
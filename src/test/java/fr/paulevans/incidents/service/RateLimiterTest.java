@@ -0,0 +1,56 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void testTokenBucket_RefusesOnceEmptyAndRefillsOverTime() {
+        TokenBucket bucket = new TokenBucket(3, 2); // one token every 500ms
+        long now = 42 * SECOND;
+
+        assertThat(bucket.tryConsume(now)).isEqualTo(2);
+        assertThat(bucket.tryConsume(now)).isEqualTo(1);
+        assertThat(bucket.tryConsume(now)).isZero();
+        assertThat(bucket.tryConsume(now)).isEqualTo(-SECOND / 2);
+        assertThat(bucket.nanosUntilFull(now)).isEqualTo(3 * SECOND / 2);
+
+        assertThat(bucket.tryConsume(now + SECOND / 2)).isZero();
+        assertThat(bucket.tryConsume(now + 10 * SECOND)).isEqualTo(2); // never more than the capacity
+    }
+
+    @Test
+    void testTryAcquire_AppliesFirstMatchingRulePerClient() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimiter rateLimiter = new RateLimiter(new RateLimitProperties(true, "X-API-Key", Set.of(), 1000,
+                Duration.ofMinutes(10), new RateLimitProperties.Limit(100, 100), List.of(
+                new RateLimitProperties.Endpoint("GET", "/incidents/summaries/**", 2, 0.001))), meterRegistry);
+
+        assertThat(rateLimiter.tryAcquire("ip:a", "GET", "/incidents/summaries").remaining()).isEqualTo(1);
+        assertThat(rateLimiter.tryAcquire("ip:a", "GET", "/incidents/summaries/open").allowed()).isTrue();
+
+        RateLimiter.Decision throttled = rateLimiter.tryAcquire("ip:a", "GET", "/incidents/summaries");
+        assertThat(throttled.allowed()).isFalse();
+        assertThat(throttled.limit()).isEqualTo(2);
+        assertThat(throttled.retryAfterSeconds()).isPositive();
+
+        // other clients and other endpoints are not affected
+        assertThat(rateLimiter.tryAcquire("key:b", "GET", "/incidents/summaries").allowed()).isTrue();
+        RateLimiter.Decision other = rateLimiter.tryAcquire("ip:a", "PATCH", "/incidents/summaries");
+        assertThat(other.allowed()).isTrue();
+        assertThat(other.limit()).isEqualTo(100);
+
+        assertThat(meterRegistry.get("incidents.rate-limit.rejected").tag("rule", "GET /incidents/summaries/**")
+                .counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,177 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.config.EventSourcingProperties;
+import fr.paulevans.incidents.config.MongoClientProperties;
+import fr.paulevans.incidents.config.TimelineBufferProperties;
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentEvent;
+import fr.paulevans.incidents.model.IncidentEventType;
+import fr.paulevans.incidents.model.IncidentSummary;
+import fr.paulevans.incidents.patch.JsonPatchCodec;
+import fr.paulevans.incidents.repository.IncidentEventRepository;
+import fr.paulevans.incidents.repository.IncidentRepository;
+import fr.paulevans.incidents.repository.IncidentSnapshotRepository;
+import fr.paulevans.incidents.repository.IncidentSummaryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+@DataMongoTest
+@Import(IncidentSummaryService.class)
+@EnableConfigurationProperties(MongoClientProperties.class)
+class TimelineAppenderTest {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private IncidentSummaryService summaries;
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Autowired
+    private IncidentSummaryRepository summaryRepository;
+
+    @Autowired
+    private IncidentEventRepository eventRepository;
+
+    @Autowired
+    private IncidentSnapshotRepository snapshotRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private List<Object> publishedEvents;
+
+    @BeforeEach
+    void setup() {
+        incidentRepository.deleteAll();
+        summaryRepository.deleteAll();
+        eventRepository.deleteAll();
+        snapshotRepository.deleteAll();
+        for (String id : List.of("1", "2")) {
+            Incident incident = new Incident(id, "Title", "Summary", "High", "OPEN", "creator", Instant.now(), null,
+                    null, null, new ArrayList<>(List.of(event("created"))), new ArrayList<>(), new ArrayList<>());
+            incidentRepository.save(incident);
+            summaries.upsert(incident);
+        }
+        meterRegistry = new SimpleMeterRegistry();
+        publishedEvents = new ArrayList<>();
+    }
+
+    @Test
+    void testFlush_WritesQueuedEventsOncePerIncident() {
+        TimelineAppender appender = appender(true, 100);
+
+        assertThat(appender.append("1", event("a"))).isTrue();
+        appender.append("1", event("b"));
+        appender.append("2", event("c"));
+        assertThat(incidentRepository.findById("1").orElseThrow().getTimeline()).hasSize(1); // not visible yet
+
+        assertThat(appender.flush()).isEqualTo(3);
+
+        assertThat(incidentRepository.findById("1").orElseThrow().getTimeline())
+                .extracting(Incident.TimelineEvent::getDescription).containsExactly("created", "a", "b");
+        assertThat(summaryRepository.findById("1").orElseThrow().getTimelineCount()).isEqualTo(3);
+        assertThat(publishedEvents).hasSize(2);
+        assertThat(appender.pendingCount()).isZero();
+        assertThat(meterRegistry.get("incidents.timeline.buffer.lag").timer().count()).isEqualTo(3);
+        assertThat(appender.flush()).isZero();
+    }
+
+    @Test
+    void testAppend_WhenBufferFull_FlushesFirst() {
+        TimelineAppender appender = appender(true, 2);
+
+        appender.append("1", event("a"));
+        appender.append("1", event("b"));
+        appender.append("2", event("c"));
+
+        assertThat(incidentRepository.findById("1").orElseThrow().getTimeline()).hasSize(3);
+        assertThat(appender.pendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testAppend_WhenDisabled_WritesImmediately() {
+        TimelineAppender appender = appender(false, 100);
+
+        assertThat(appender.append("1", event("a"))).isFalse();
+
+        List<Incident.TimelineEvent> timeline = incidentRepository.findById("1").orElseThrow().getTimeline();
+        assertThat(timeline).hasSize(2);
+        assertThat(timeline.getLast().getId()).isNotNull();
+        assertThat(summaryRepository.findById("1").map(IncidentSummary::getTimelineCount)).contains(2);
+        assertThrows(NoSuchElementException.class, () -> appender.append("999", event("b")));
+    }
+
+    @Test
+    void testFlush_WithEventSourcing_RecordsMatchedIncidentsOnly() {
+        IncidentEventStore eventStore = new IncidentEventStore(eventRepository, snapshotRepository, incidentRepository,
+                mongoTemplate, new IncidentPatcher(), new JsonPatchCodec(Jackson2ObjectMapperBuilder.json().build()),
+                new EventSourcingProperties(true, 50, Duration.ofDays(30)), summaries, event -> { });
+        eventStore.appendCreated(incidentRepository.findById("1").orElseThrow());
+        TimelineAppender appender = appender(true, 100, Optional.of(eventStore));
+
+        appender.append("1", event("a"));
+        appender.append("999", event("lost"));
+        assertThat(appender.flush()).isEqualTo(2);
+
+        assertThat(eventRepository.findAll()).extracting(IncidentEvent::getIncidentId, IncidentEvent::getType)
+                .containsExactlyInAnyOrder(tuple("1", IncidentEventType.CREATED), tuple("1", IncidentEventType.PATCHED));
+        assertThat(publishedEvents).hasSize(1);
+        Incident stored = incidentRepository.findById("1").orElseThrow();
+        assertThat(eventStore.rebuild("1").orElseThrow().getTimeline())
+                .extracting(Incident.TimelineEvent::getId, Incident.TimelineEvent::getDescription)
+                .containsExactlyElementsOf(stored.getTimeline().stream()
+                        .map(event -> tuple(event.getId(), event.getDescription()))
+                        .toList());
+    }
+
+    @Test
+    void testFlush_WhenRecordingFailsAfterTheWrite_DoesNotRequeue() {
+        IncidentEventStore eventStore = Mockito.mock(IncidentEventStore.class);
+        doThrow(new IllegalStateException("event store down")).when(eventStore)
+                .appendTimelineEvents(any(), any(), any());
+        TimelineAppender appender = appender(true, 100, Optional.of(eventStore));
+
+        appender.append("1", event("a"));
+        assertThrows(IllegalStateException.class, appender::flush);
+
+        assertThat(appender.pendingCount()).isZero();
+        assertThat(appender.flush()).isZero();
+        assertThat(incidentRepository.findById("1").orElseThrow().getTimeline())
+                .extracting(Incident.TimelineEvent::getDescription).containsExactly("created", "a");
+    }
+
+    private TimelineAppender appender(boolean enabled, int maxPending) {
+        return appender(enabled, maxPending, Optional.empty());
+    }
+
+    private TimelineAppender appender(boolean enabled, int maxPending, Optional<IncidentEventStore> eventStore) {
+        return new TimelineAppender(mongoTemplate, eventStore, summaries, publishedEvents::add,
+                new TimelineBufferProperties(enabled, Duration.ofSeconds(2), maxPending), meterRegistry);
+    }
+
+    private static Incident.TimelineEvent event(String description) {
+        return new Incident.TimelineEvent(null, Instant.now(), description, "integration");
+    }
+}
@@ -0,0 +1,110 @@
+package fr.paulevans.incidents.service;
+
+import fr.paulevans.incidents.model.Incident;
+import fr.paulevans.incidents.model.IncidentSummary;
+import fr.paulevans.incidents.repository.IncidentRepository;
+import fr.paulevans.incidents.repository.IncidentSummaryRepository;
+import fr.paulevans.incidents.repository.TagDictionaryRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataMongoTest
+@Import({ValueEncodingMigration.class, TagDictionary.class})
+class ValueEncodingMigrationTest {
+
+    @Autowired
+    private ValueEncodingMigration migration;
+
+    @Autowired
+    private TagDictionary tagDictionary;
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Autowired
+    private IncidentSummaryRepository summaryRepository;
+
+    @Autowired
+    private TagDictionaryRepository tagDictionaryRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setup() {
+        incidentRepository.deleteAll();
+        summaryRepository.deleteAll();
+        tagDictionaryRepository.deleteAll();
+        mongoTemplate.dropCollection("migrations");
+    }
+
+    @Test
+    void testSave_StoresCodesAndReadsCanonicalValues() {
+        incidentRepository.save(incident("1", "high", "IN_PROGRESS"));
+
+        Document raw = mongoTemplate.getCollection("incidents").find().first();
+        assertThat(raw.get("severity")).isEqualTo(2);
+        assertThat(raw.get("status")).isEqualTo(1);
+
+        Incident read = incidentRepository.findById("1").orElseThrow();
+        assertThat(read.getSeverity()).isEqualTo("High");
+        assertThat(read.getStatus()).isEqualTo("IN_PROGRESS");
+    }
+
+    @Test
+    void testMigrate_EncodesLegacyStringsOnce() {
+        mongoTemplate.getCollection("incidents").insertOne(new Document("_id", "1")
+                .append("title", "Legacy").append("severity", "critical").append("status", "OPEN"));
+        mongoTemplate.getCollection("incident_summaries").insertOne(new Document("_id", "1")
+                .append("title", "Legacy").append("severity", "Critical").append("status", "OPEN"));
+
+        // still readable before the migration
+        assertThat(incidentRepository.findById("1").orElseThrow().getSeverity()).isEqualTo("critical");
+
+        migration.migrate();
+
+        Document raw = mongoTemplate.getCollection("incidents").find().first();
+        assertThat(raw.get("severity")).isEqualTo(3);
+        assertThat(raw.get("status")).isEqualTo(0);
+        assertThat(summaryRepository.findByStatusIn(List.of("OPEN")))
+                .extracting(IncidentSummary::getSeverity).containsExactly("Critical");
+
+        // a document written with a string afterwards is left alone, the migration already ran
+        mongoTemplate.getCollection("incidents").insertOne(new Document("_id", "2").append("status", "CLOSED"));
+        migration.migrate();
+        assertThat(mongoTemplate.getCollection("incidents").find(new Document("_id", "2")).first().get("status"))
+                .isEqualTo("CLOSED");
+    }
+
+    @Test
+    void testTagDictionary_SharesPersistedIds() {
+        int db = tagDictionary.intern("db");
+        int prod = tagDictionary.intern("prod");
+
+        assertThat(tagDictionary.intern("db")).isEqualTo(db);
+        assertThat(prod).isEqualTo(db + 1);
+
+        TagDictionary otherInstance = new TagDictionary(tagDictionaryRepository);
+        assertThat(otherInstance.intern("prod")).isEqualTo(prod);
+        assertThat(otherInstance.intern("cache")).isEqualTo(prod + 1);
+        assertThat(otherInstance.name(db)).isNull(); // only what it has seen
+
+        otherInstance.load();
+        assertThat(otherInstance.name(db)).isEqualTo("db");
+    }
+
+    private static Incident incident(String id, String severity, String status) {
+        return new Incident(id, "Title", "Summary", severity, status, "creator", Instant.now(), null, null,
+                Instant.now(), List.of(), List.of(), List.of("db"));
+    }
+}
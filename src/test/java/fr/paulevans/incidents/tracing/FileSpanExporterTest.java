@@ -0,0 +1,106 @@
+package fr.paulevans.incidents.tracing;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileSpanExporterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path directory;
+
+    private Path file;
+    private SdkTracerProvider tracerProvider;
+    private Tracer tracer;
+
+    @BeforeEach
+    void setup() throws Exception {
+        file = directory.resolve("traces/spans.jsonl");
+        tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(new FileSpanExporter(file, objectMapper)))
+                .build();
+        tracer = tracerProvider.get("test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.shutdown();
+    }
+
+    @Test
+    void testExport_AppendsOneJsonLinePerSpan() throws Exception {
+        Span parent = tracer.spanBuilder("patch save").setSpanKind(SpanKind.INTERNAL).startSpan();
+        try (Scope ignored = parent.makeCurrent()) {
+            tracer.spanBuilder("update incidents").setSpanKind(SpanKind.CLIENT)
+                    .setAttribute(AttributeKey.stringKey("db.operation"), "update")
+                    .setAttribute(AttributeKey.longKey("db.batch"), 2L)
+                    .startSpan()
+                    .end();
+        }
+        parent.setStatus(StatusCode.ERROR);
+        parent.end();
+
+        List<Map<String, Object>> spans = readSpans();
+        assertThat(spans).hasSize(2);
+        Map<String, Object> child = spans.get(0);
+        Map<String, Object> root = spans.get(1);
+
+        assertThat(child).containsEntry("name", "update incidents")
+                .containsEntry("kind", "CLIENT")
+                .containsEntry("traceId", root.get("traceId"))
+                .containsEntry("parentSpanId", root.get("spanId"))
+                .containsEntry("status", "UNSET")
+                .containsEntry("attributes", Map.of("db.operation", "update", "db.batch", 2));
+        assertThat(root).doesNotContainKey("parentSpanId")
+                .containsEntry("kind", "INTERNAL")
+                .containsEntry("status", "ERROR")
+                .containsKeys("startEpochNanos", "durationMicros");
+    }
+
+    @Test
+    void testExport_AppendsToExistingFile() throws Exception {
+        tracer.spanBuilder("first").startSpan().end();
+        tracerProvider.shutdown();
+
+        tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(new FileSpanExporter(file, objectMapper)))
+                .build();
+        tracerProvider.get("test").spanBuilder("second").startSpan().end();
+
+        assertThat(readSpans()).extracting(span -> span.get("name")).containsExactly("first", "second");
+    }
+
+    private List<Map<String, Object>> readSpans() throws Exception {
+        tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+        return Files.readAllLines(file).stream()
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, new TypeReference<Map<String, Object>>() { });
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+    }
+}